@@ -0,0 +1,58 @@
+package org.hibernate.assistant.benchmarks;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.BootstrapServiceRegistry;
+import org.hibernate.boot.registry.BootstrapServiceRegistryBuilder;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds session factories backed by a private H2 in-memory database. Settings are applied explicitly,
+ * overriding the {@code hibernate.properties} shipped with the main artifact, which are meant for tests
+ * and e.g. log all SQL statements.
+ */
+public class BenchmarkSessionFactories {
+	private static final AtomicInteger DATABASES = new AtomicInteger();
+
+	/**
+	 * @param annotatedClasses the classes of the domain model
+	 * @param classLoader the class loader of the domain model classes
+	 * @param createSchema whether to create the schema, or never access the database during bootstrap
+	 *
+	 * @return a new session factory
+	 */
+	public static SessionFactory build(List<Class<?>> annotatedClasses, ClassLoader classLoader, boolean createSchema) {
+		final Map<String, Object> settings = new HashMap<>();
+		settings.put( AvailableSettings.JAKARTA_JDBC_URL,
+					"jdbc:h2:mem:benchmark" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1" );
+		settings.put( AvailableSettings.JAKARTA_JDBC_USER, "sa" );
+		settings.put( AvailableSettings.JAKARTA_JDBC_PASSWORD, "" );
+		settings.put( AvailableSettings.SHOW_SQL, false );
+		settings.put( AvailableSettings.FORMAT_SQL, false );
+		settings.put( AvailableSettings.HIGHLIGHT_SQL, false );
+		settings.put( AvailableSettings.USE_SECOND_LEVEL_CACHE, false );
+		settings.put( AvailableSettings.STATEMENT_BATCH_SIZE, 1000 );
+		if ( createSchema ) {
+			settings.put( AvailableSettings.HBM2DDL_AUTO, "create-drop" );
+		}
+		else {
+			settings.put( AvailableSettings.HBM2DDL_AUTO, "none" );
+			settings.put( AvailableSettings.ALLOW_METADATA_ON_BOOT, false );
+		}
+
+		final BootstrapServiceRegistry bootstrapRegistry = new BootstrapServiceRegistryBuilder()
+				.applyClassLoader( classLoader )
+				.build();
+		final MetadataSources sources = new MetadataSources(
+				new StandardServiceRegistryBuilder( bootstrapRegistry ).applySettings( settings ).build()
+		);
+		annotatedClasses.forEach( sources::addAnnotatedClass );
+		return sources.buildMetadata().buildSessionFactory();
+	}
+}
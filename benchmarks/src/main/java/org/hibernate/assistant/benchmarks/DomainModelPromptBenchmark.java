@@ -0,0 +1,61 @@
+package org.hibernate.assistant.benchmarks;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.assistant.internal.AssistantUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jakarta.persistence.metamodel.Metamodel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the generation of the domain model prompt, in both the JSON and compact formats, for synthetic
+ * domain models of increasing size, see {@link SyntheticMetamodel}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DomainModelPromptBenchmark {
+	@Param({ "10", "100", "1000", "5000" })
+	public int entities;
+
+	private SessionFactory sessionFactory;
+	private Metamodel metamodel;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		final SyntheticMetamodel model = SyntheticMetamodel.generate( entities );
+		sessionFactory = BenchmarkSessionFactories.build( model.getClasses(), model.getClassLoader(), false );
+		metamodel = sessionFactory.getMetamodel();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		sessionFactory.close();
+	}
+
+	@Benchmark
+	public String domainModelPrompt() {
+		return AssistantUtils.getDomainModelPrompt( metamodel );
+	}
+
+	@Benchmark
+	public String compactDomainModelPrompt() {
+		return AssistantUtils.getCompactDomainModelPrompt( metamodel );
+	}
+}
@@ -0,0 +1,105 @@
+package org.hibernate.assistant.benchmarks;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.assistant.benchmarks.domain.Address;
+import org.hibernate.assistant.benchmarks.domain.Company;
+import org.hibernate.assistant.spi.QuerySerializer;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.SelectionQuery;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jakarta.persistence.Tuple;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link QuerySerializer#serializeToString(List, SelectionQuery, SessionFactoryImplementor)} for each
+ * kind of result the serializer handles differently: entities, embeddables, simple paths, compound selections
+ * and tuples. Results are fetched once per trial, so that only their serialization is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuerySerializerBenchmark {
+	public enum ResultShape {
+		ENTITY( "from Company order by id", Company.class ),
+		EMBEDDABLE( "select c.address from Company c order by c.id", Address.class ),
+		PATH( "select c.name from Company c order by c.id", String.class ),
+		COMPOUND( "select c.id, c.name, c.revenue, c.address.city from Company c order by c.id", Object[].class ),
+		TUPLE( "select c.id as id, c.name as name, c.revenue as revenue, c.address.city as city from Company c order by c.id", Tuple.class );
+
+		private final String hql;
+		private final Class<?> resultType;
+
+		ResultShape(String hql, Class<?> resultType) {
+			this.hql = hql;
+			this.resultType = resultType;
+		}
+	}
+
+	@Param({ "10", "1000", "100000" })
+	public int rows;
+
+	@Param
+	public ResultShape shape;
+
+	private SessionFactory sessionFactory;
+	private Session session;
+	private SelectionQuery<?> query;
+	private List<?> results;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		sessionFactory = BenchmarkSessionFactories.build(
+				List.of( Company.class ),
+				QuerySerializerBenchmark.class.getClassLoader(),
+				true
+		);
+		try (StatelessSession statelessSession = sessionFactory.openStatelessSession()) {
+			statelessSession.inTransaction( tx -> {
+				for ( long i = 1; i <= rows; i++ ) {
+					statelessSession.insert( new Company(
+							i,
+							"Company " + i,
+							i * 1_000.5,
+							LocalDate.of( 1900, 1, 1 ).plusDays( i % 40_000 ),
+							new Address( "City " + i % 100, "Street " + i )
+					) );
+				}
+			} );
+		}
+		session = sessionFactory.openSession();
+		query = session.createSelectionQuery( shape.hql, shape.resultType );
+		results = query.getResultList();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		session.close();
+		sessionFactory.close();
+	}
+
+	@Benchmark
+	public String serializeToString() {
+		return QuerySerializer.serializeToString( results, query, (SessionFactoryImplementor) sessionFactory );
+	}
+}
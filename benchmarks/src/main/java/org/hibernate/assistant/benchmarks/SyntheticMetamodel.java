@@ -0,0 +1,129 @@
+package org.hibernate.assistant.benchmarks;
+
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.Embedded;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OneToMany;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.annotation.AnnotationDescription;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.description.type.TypeDefinition;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.loading.ByteArrayClassLoader;
+
+/**
+ * Generates domain models of arbitrary size, to measure how the metamodel prompt scales. Entities are organized
+ * as a tree: each one has a few basic attributes, an embedded address, a many-to-one association to its parent
+ * and a one-to-many association to its children.
+ */
+public class SyntheticMetamodel {
+	private static final String PACKAGE = "org.hibernate.assistant.benchmarks.synthetic.";
+
+	private final ClassLoader classLoader;
+	private final List<Class<?>> classes;
+
+	private SyntheticMetamodel(ClassLoader classLoader, List<Class<?>> classes) {
+		this.classLoader = classLoader;
+		this.classes = classes;
+	}
+
+	/**
+	 * @param entities the number of entity types
+	 *
+	 * @return a new model with the given number of entities and a shared embeddable
+	 */
+	public static SyntheticMetamodel generate(int entities) {
+		final ByteBuddy byteBuddy = new ByteBuddy();
+		final Map<String, byte[]> types = new HashMap<>();
+
+		final TypeDescription address = latent( PACKAGE + "Address" );
+		types.put( address.getName(), byteBuddy.subclass( Object.class )
+				.name( address.getName() )
+				.annotateType( AnnotationDescription.Builder.ofType( Embeddable.class ).build() )
+				.defineField( "city", String.class, Visibility.PRIVATE )
+				.defineField( "street", String.class, Visibility.PRIVATE )
+				.defineField( "zipCode", String.class, Visibility.PRIVATE )
+				.make()
+				.getBytes() );
+
+		for ( int i = 0; i < entities; i++ ) {
+			final String name = "Entity" + i;
+			var builder = byteBuddy.subclass( Object.class )
+					.name( PACKAGE + name )
+					.annotateType( AnnotationDescription.Builder.ofType( Entity.class ).define( "name", name ).build() )
+					.defineField( "id", Long.class, Visibility.PRIVATE )
+					.annotateField( AnnotationDescription.Builder.ofType( Id.class ).build() )
+					.defineField( "name", String.class, Visibility.PRIVATE )
+					.defineField( "description", String.class, Visibility.PRIVATE )
+					.defineField( "amount", BigDecimal.class, Visibility.PRIVATE )
+					.defineField( "createdOn", LocalDate.class, Visibility.PRIVATE )
+					.defineField( "active", boolean.class, Visibility.PRIVATE )
+					.defineField( "address", address, Visibility.PRIVATE )
+					.annotateField( AnnotationDescription.Builder.ofType( Embedded.class ).build() );
+			if ( i > 0 ) {
+				builder = builder.defineField( "parent", latent( PACKAGE + "Entity" + ( i - 1 ) / 2 ), Visibility.PRIVATE )
+						.annotateField( AnnotationDescription.Builder.ofType( ManyToOne.class ).build() );
+			}
+			for ( int child = 2 * i + 1; child <= 2 * i + 2 && child < entities; child++ ) {
+				builder = builder.defineField(
+								"children" + ( child - 2 * i ),
+								TypeDescription.Generic.Builder.parameterizedType(
+										TypeDescription.ForLoadedType.of( Set.class ),
+										latent( PACKAGE + "Entity" + child )
+								).build(),
+								Visibility.PRIVATE
+						)
+						.annotateField( AnnotationDescription.Builder.ofType( OneToMany.class )
+												.define( "mappedBy", "parent" )
+												.build() );
+			}
+			types.put( PACKAGE + name, builder.make().getBytes() );
+		}
+
+		final ClassLoader classLoader = new ByteArrayClassLoader(
+				SyntheticMetamodel.class.getClassLoader(),
+				types,
+				ByteArrayClassLoader.PersistenceHandler.MANIFEST
+		);
+		final List<Class<?>> classes = new ArrayList<>( types.size() );
+		try {
+			for ( String type : types.keySet() ) {
+				classes.add( classLoader.loadClass( type ) );
+			}
+		}
+		catch (ClassNotFoundException e) {
+			throw new IllegalStateException( e );
+		}
+		return new SyntheticMetamodel( classLoader, classes );
+	}
+
+	/**
+	 * Describes a generated top-level type, possibly not generated yet.
+	 */
+	private static TypeDescription latent(String name) {
+		return new TypeDescription.Latent( name, Modifier.PUBLIC, TypeDefinition.Sort.describe( Object.class ) ) {
+			@Override
+			public TypeDescription getDeclaringType() {
+				return null;
+			}
+		};
+	}
+
+	public ClassLoader getClassLoader() {
+		return classLoader;
+	}
+
+	public List<Class<?>> getClasses() {
+		return classes;
+	}
+}
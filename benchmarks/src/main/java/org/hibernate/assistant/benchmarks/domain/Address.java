@@ -0,0 +1,26 @@
+package org.hibernate.assistant.benchmarks.domain;
+
+import jakarta.persistence.Embeddable;
+
+@Embeddable
+public class Address {
+	private String city;
+
+	private String street;
+
+	public Address() {
+	}
+
+	public Address(String city, String street) {
+		this.city = city;
+		this.street = street;
+	}
+
+	public String getCity() {
+		return city;
+	}
+
+	public String getStreet() {
+		return street;
+	}
+}
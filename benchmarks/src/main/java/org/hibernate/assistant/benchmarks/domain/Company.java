@@ -0,0 +1,52 @@
+package org.hibernate.assistant.benchmarks.domain;
+
+import jakarta.persistence.Embedded;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import java.time.LocalDate;
+
+@Entity
+public class Company {
+	@Id
+	private long id;
+
+	private String name;
+
+	private double revenue;
+
+	private LocalDate foundedOn;
+
+	@Embedded
+	private Address address;
+
+	public Company() {
+	}
+
+	public Company(long id, String name, double revenue, LocalDate foundedOn, Address address) {
+		this.id = id;
+		this.name = name;
+		this.revenue = revenue;
+		this.foundedOn = foundedOn;
+		this.address = address;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public double getRevenue() {
+		return revenue;
+	}
+
+	public LocalDate getFoundedOn() {
+		return foundedOn;
+	}
+
+	public Address getAddress() {
+		return address;
+	}
+}
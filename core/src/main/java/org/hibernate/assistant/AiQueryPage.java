@@ -0,0 +1,24 @@
+package org.hibernate.assistant;
+
+import org.hibernate.query.SelectionQuery;
+
+import java.util.List;
+
+/**
+ * A page of results of a query generated by the LLM, which can be used to retrieve the following page
+ * without generating a new query.
+ *
+ * @param query the query the results were obtained from
+ * @param results the results contained in this page
+ * @param firstResult the position of the first result of this page among all the query results
+ * @param lastKey the identifier of the root entity of the last result, used to restrict the following page,
+ * {@code null} if the query can't be paginated by key and results are skipped by position instead
+ * @param hasNextPage whether more results are available after this page
+ */
+public record AiQueryPage<T>(
+		SelectionQuery<T> query,
+		List<T> results,
+		int firstResult,
+		Object lastKey,
+		boolean hasNextPage) {
+}
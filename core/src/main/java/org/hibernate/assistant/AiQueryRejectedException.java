@@ -0,0 +1,13 @@
+package org.hibernate.assistant;
+
+import org.hibernate.HibernateException;
+
+/**
+ * Thrown when a query generated by the LLM is not executed because it breaks
+ * one of the rules of the configured {@link org.hibernate.assistant.internal.QueryGuard}.
+ */
+public class AiQueryRejectedException extends HibernateException {
+	public AiQueryRejectedException(String message) {
+		super( message );
+	}
+}
@@ -0,0 +1,27 @@
+package org.hibernate.assistant;
+
+import org.hibernate.query.SelectionQuery;
+
+import java.util.List;
+
+/**
+ * The outcome of translating a single natural language prompt as part of a batch,
+ * see {@link HibernateAssistant#createAiQueries(List, org.hibernate.SharedSessionContract, Class)}.
+ *
+ * @param message the natural language prompt
+ * @param query the generated query, {@code null} if the translation failed
+ * @param failure the reason the translation failed, {@code null} if it succeeded
+ */
+public record AiQueryResult<T>(String message, SelectionQuery<T> query, Throwable failure) {
+	public static <T> AiQueryResult<T> success(String message, SelectionQuery<T> query) {
+		return new AiQueryResult<>( message, query, null );
+	}
+
+	public static <T> AiQueryResult<T> failure(String message, Throwable failure) {
+		return new AiQueryResult<>( message, null, failure );
+	}
+
+	public boolean isSuccess() {
+		return failure == null;
+	}
+}
@@ -0,0 +1,252 @@
+package org.hibernate.assistant;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.SharedSessionContract;
+import org.hibernate.query.SelectionQuery;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Hibernate Assistant allows interacting with an underlying LLM to help you retrieve persistent data.
+ * It leverages Hibernate ORM's mapping models, query language, cross-platform support and
+ * enhanced security features to make access to information stored in relational databases
+ * as easy as a natural language prompt.
+ * <p>
+ * A single assistant instance can serve multiple independent conversations: each one is identified by
+ * a conversation id and has its own chat context. Methods that don't accept a conversation id
+ * use the {@linkplain #DEFAULT_CONVERSATION_ID default conversation}.
+ */
+public interface HibernateAssistant {
+	/**
+	 * The id of the conversation used by methods that don't explicitly specify one.
+	 */
+	String DEFAULT_CONVERSATION_ID = "default";
+
+	/**
+	 * Creates a {@link SelectionQuery} by providing the specified natural language {@code message} to the LLM
+	 * and interpreting the obtained response.
+	 *
+	 * @param message the natural language prompt
+	 * @param session Hibernate session
+	 *
+	 * @return the {@link SelectionQuery} generated by the LLM
+	 */
+	default SelectionQuery<?> createAiQuery(String message, SharedSessionContract session) {
+		return createAiQuery( message, session, null );
+	}
+
+	/**
+	 * Creates a {@link SelectionQuery} by providing the specified natural language {@code message} to the LLM
+	 * and interpreting the obtained response.
+	 *
+	 * @param message the natural language prompt
+	 * @param session Hibernate session
+	 * @param resultType The {@link Class} representing the expected query result type
+	 *
+	 * @return the {@link SelectionQuery} generated by the LLM
+	 */
+	default <T> SelectionQuery<T> createAiQuery(String message, SharedSessionContract session, Class<T> resultType) {
+		return createAiQuery( DEFAULT_CONVERSATION_ID, message, session, resultType );
+	}
+
+	/**
+	 * Creates a {@link SelectionQuery} by providing the specified natural language {@code message} to the LLM,
+	 * in the context of the given conversation, and interpreting the obtained response.
+	 *
+	 * @param conversationId the id of the conversation
+	 * @param message the natural language prompt
+	 * @param session Hibernate session
+	 * @param resultType The {@link Class} representing the expected query result type
+	 *
+	 * @return the {@link SelectionQuery} generated by the LLM
+	 */
+	<T> SelectionQuery<T> createAiQuery(
+			Object conversationId,
+			String message,
+			SharedSessionContract session,
+			Class<T> resultType);
+
+	/**
+	 * Creates a {@link SelectionQuery} for each of the specified natural language {@code messages}. Each message
+	 * is translated independently of the others and of the chat context, so that requests to the LLM can be
+	 * sent concurrently; duplicate messages are only sent once.
+	 *
+	 * @param messages the natural language prompts
+	 * @param session Hibernate session
+	 * @param resultType The {@link Class} representing the expected query result type
+	 *
+	 * @return the result of each prompt, in the same order as {@code messages}
+	 */
+	<T> List<AiQueryResult<T>> createAiQueries(
+			List<String> messages,
+			SharedSessionContract session,
+			Class<T> resultType);
+
+	/**
+	 * Prompts the underlying LLM with the provided natural language message and tries to answer it with
+	 * data extracted from the database through the persistence model.
+	 *
+	 * @param message the natural language request
+	 * @param sessionFactory Hibernate session factory
+	 *
+	 * @return a natural language response based on the results of the query
+	 */
+	default String executeQuery(String message, SessionFactory sessionFactory) {
+		return executeQuery( DEFAULT_CONVERSATION_ID, message, sessionFactory );
+	}
+
+	/**
+	 * Prompts the underlying LLM with the provided natural language message, in the context of the given
+	 * conversation, and tries to answer it with data extracted from the database through the persistence model.
+	 *
+	 * @param conversationId the id of the conversation
+	 * @param message the natural language request
+	 * @param sessionFactory Hibernate session factory
+	 *
+	 * @return a natural language response based on the results of the query
+	 */
+	String executeQuery(Object conversationId, String message, SessionFactory sessionFactory);
+
+	/**
+	 * Executes the given {@link SelectionQuery}, and provides a natural language
+	 * response by passing the resulting data back to the underlying LLM.
+	 * <p>
+	 * To directly obtain a natural language response from a natural language prompt,
+	 * you can use {@link #executeQuery(String, SessionFactory)} instead.
+	 * <p>
+	 * If you wish to execute the query manually and obtain the structured results yourself,
+	 * you should use {@link SelectionQuery}'s direct execution methods, e.g. {@link SelectionQuery#getResultList()}
+	 * or {@link SelectionQuery#getSingleResult()}.
+	 *
+	 * @param query the AI query to execute
+	 * @param session the session in which to execute the query
+	 *
+	 * @return a natural language response based on the results of the query
+	 */
+	default String executeQuery(SelectionQuery<?> query, SharedSessionContract session) {
+		return executeQuery( DEFAULT_CONVERSATION_ID, query, session );
+	}
+
+	/**
+	 * Executes the given {@link SelectionQuery}, and provides a natural language response by passing
+	 * the resulting data back to the underlying LLM, in the context of the given conversation.
+	 *
+	 * @param conversationId the id of the conversation
+	 * @param query the AI query to execute
+	 * @param session the session in which to execute the query
+	 *
+	 * @return a natural language response based on the results of the query
+	 *
+	 * @see #executeQuery(SelectionQuery, SharedSessionContract)
+	 */
+	String executeQuery(Object conversationId, SelectionQuery<?> query, SharedSessionContract session);
+
+	/**
+	 * Asynchronous version of {@link #createAiQuery(String, SharedSessionContract, Class)}. The provided
+	 * session must not be used until the returned future completes, as sessions are not thread-safe.
+	 * Cancelling the returned future interrupts the in-flight request to the LLM.
+	 *
+	 * @param message the natural language prompt
+	 * @param session Hibernate session
+	 * @param resultType The {@link Class} representing the expected query result type
+	 *
+	 * @return a future completed with the {@link SelectionQuery} generated by the LLM
+	 */
+	default <T> CompletableFuture<SelectionQuery<T>> createAiQueryAsync(
+			String message,
+			SharedSessionContract session,
+			Class<T> resultType) {
+		return createAiQueryAsync( DEFAULT_CONVERSATION_ID, message, session, resultType );
+	}
+
+	/**
+	 * Asynchronous version of {@link #createAiQuery(Object, String, SharedSessionContract, Class)}.
+	 *
+	 * @param conversationId the id of the conversation
+	 * @param message the natural language prompt
+	 * @param session Hibernate session
+	 * @param resultType The {@link Class} representing the expected query result type
+	 *
+	 * @return a future completed with the {@link SelectionQuery} generated by the LLM
+	 *
+	 * @see #createAiQueryAsync(String, SharedSessionContract, Class)
+	 */
+	<T> CompletableFuture<SelectionQuery<T>> createAiQueryAsync(
+			Object conversationId,
+			String message,
+			SharedSessionContract session,
+			Class<T> resultType);
+
+	/**
+	 * Asynchronous version of {@link #executeQuery(String, SessionFactory)}.
+	 * Cancelling the returned future interrupts the in-flight request to the LLM.
+	 *
+	 * @param message the natural language request
+	 * @param sessionFactory Hibernate session factory
+	 *
+	 * @return a future completed with a natural language response based on the results of the query
+	 */
+	default CompletableFuture<String> executeQueryAsync(String message, SessionFactory sessionFactory) {
+		return executeQueryAsync( DEFAULT_CONVERSATION_ID, message, sessionFactory );
+	}
+
+	/**
+	 * Asynchronous version of {@link #executeQuery(Object, String, SessionFactory)}.
+	 *
+	 * @param conversationId the id of the conversation
+	 * @param message the natural language request
+	 * @param sessionFactory Hibernate session factory
+	 *
+	 * @return a future completed with a natural language response based on the results of the query
+	 *
+	 * @see #executeQueryAsync(String, SessionFactory)
+	 */
+	CompletableFuture<String> executeQueryAsync(Object conversationId, String message, SessionFactory sessionFactory);
+
+	/**
+	 * Asynchronous version of {@link #executeQuery(SelectionQuery, SharedSessionContract)}. The provided
+	 * session must not be used until the returned future completes, as sessions are not thread-safe.
+	 * Cancelling the returned future interrupts the in-flight request to the LLM.
+	 *
+	 * @param query the AI query to execute
+	 * @param session the session in which to execute the query
+	 *
+	 * @return a future completed with a natural language response based on the results of the query
+	 */
+	default CompletableFuture<String> executeQueryAsync(SelectionQuery<?> query, SharedSessionContract session) {
+		return executeQueryAsync( DEFAULT_CONVERSATION_ID, query, session );
+	}
+
+	/**
+	 * Asynchronous version of {@link #executeQuery(Object, SelectionQuery, SharedSessionContract)}.
+	 *
+	 * @param conversationId the id of the conversation
+	 * @param query the AI query to execute
+	 * @param session the session in which to execute the query
+	 *
+	 * @return a future completed with a natural language response based on the results of the query
+	 *
+	 * @see #executeQueryAsync(SelectionQuery, SharedSessionContract)
+	 */
+	CompletableFuture<String> executeQueryAsync(
+			Object conversationId,
+			SelectionQuery<?> query,
+			SharedSessionContract session);
+
+	/**
+	 * Reset the assistant's current chat context. This can be helpful when
+	 * creating a new {@link SelectionQuery} that should not rely on the context
+	 * of previous requests.
+	 */
+	default void clear() {
+		clear( DEFAULT_CONVERSATION_ID );
+	}
+
+	/**
+	 * Reset the chat context of the given conversation.
+	 *
+	 * @param conversationId the id of the conversation
+	 */
+	void clear(Object conversationId);
+}
@@ -0,0 +1,146 @@
+package org.hibernate.assistant.internal;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded, thread-safe in-process cache of the HQL queries generated for natural language prompts.
+ * Entries are keyed by the normalized prompt text, the requested result type and a fingerprint
+ * of the domain model prompt the query was generated with. The least recently used entry is
+ * evicted when the cache is full, and entries expire after the configured time-to-live (if any).
+ * <p>
+ * Note that the cache is only used for self-contained questions, e.g. the ones coming from dashboards or
+ * reports: follow-up questions of a conversation depend on its previous messages, and are neither looked up
+ * nor stored.
+ */
+public class AiQueryCache {
+	private static final Pattern WHITESPACE = Pattern.compile( "\\s+" );
+	private static final Pattern TRAILING_PUNCTUATION = Pattern.compile( "[\\s?.!;]+$" );
+
+	private final int maxSize;
+	private final long timeToLiveNanos;
+	private final LinkedHashMap<Key, Entry> entries;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Creates a new cache instance.
+	 *
+	 * @param maxSize the maximum number of cached queries
+	 * @param timeToLive the time after which cached queries expire, {@code null} for no expiration
+	 */
+	public AiQueryCache(int maxSize, Duration timeToLive) {
+		if ( maxSize <= 0 ) {
+			throw new IllegalArgumentException( "Cache size must be positive" );
+		}
+		this.maxSize = maxSize;
+		this.timeToLiveNanos = timeToLive == null || timeToLive.isZero() ? 0L : timeToLive.toNanos();
+		this.entries = new LinkedHashMap<>( 16, 0.75f, true ) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+				if ( size() > AiQueryCache.this.maxSize ) {
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns the cached HQL query for the given prompt, if any.
+	 *
+	 * @param prompt the natural language prompt
+	 * @param resultType the requested result type, can be {@code null}
+	 * @param metamodelFingerprint fingerprint of the domain model prompt
+	 *
+	 * @return the cached HQL string, or {@code null} if none was found
+	 */
+	public String get(String prompt, Class<?> resultType, String metamodelFingerprint) {
+		final Key key = new Key( normalize( prompt ), resultType, metamodelFingerprint );
+		synchronized ( entries ) {
+			final Entry entry = entries.get( key );
+			if ( entry != null ) {
+				if ( !entry.isExpired( System.nanoTime() ) ) {
+					hits.increment();
+					return entry.hql();
+				}
+				entries.remove( key );
+				evictions.increment();
+			}
+		}
+		misses.increment();
+		return null;
+	}
+
+	/**
+	 * Stores the HQL query generated for the given prompt.
+	 *
+	 * @param prompt the natural language prompt
+	 * @param resultType the requested result type, can be {@code null}
+	 * @param metamodelFingerprint fingerprint of the domain model prompt
+	 * @param hql the generated HQL query
+	 */
+	public void put(String prompt, Class<?> resultType, String metamodelFingerprint, String hql) {
+		final Key key = new Key( normalize( prompt ), resultType, metamodelFingerprint );
+		final long expiresAt = timeToLiveNanos > 0 ? System.nanoTime() + timeToLiveNanos : 0L;
+		synchronized ( entries ) {
+			entries.put( key, new Entry( hql, expiresAt ) );
+		}
+	}
+
+	public void clear() {
+		synchronized ( entries ) {
+			entries.clear();
+		}
+	}
+
+	public int size() {
+		synchronized ( entries ) {
+			return entries.size();
+		}
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return the number of entries removed either because the cache was full or because they expired
+	 */
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Normalizes a natural language prompt so that trivially different versions of the same
+	 * question (whitespace, trailing punctuation) share the same cache entry. Case is preserved,
+	 * since it might be significant for the values the question refers to, e.g. names or codes.
+	 */
+	public static String normalize(String prompt) {
+		final String collapsed = WHITESPACE.matcher( prompt.strip() ).replaceAll( " " );
+		return TRAILING_PUNCTUATION.matcher( collapsed ).replaceAll( "" );
+	}
+
+	private record Key(String prompt, Class<?> resultType, String metamodelFingerprint) {
+	}
+
+	private record Entry(String hql, long expiresAt) {
+		boolean isExpired(long now) {
+			return expiresAt != 0L && now - expiresAt > 0;
+		}
+	}
+}
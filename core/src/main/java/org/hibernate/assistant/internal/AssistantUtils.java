@@ -0,0 +1,277 @@
+package org.hibernate.assistant.internal;
+
+import org.hibernate.metamodel.model.domain.ManagedDomainType;
+
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EmbeddableType;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.IdentifiableType;
+import jakarta.persistence.metamodel.ManagedType;
+import jakarta.persistence.metamodel.MapAttribute;
+import jakarta.persistence.metamodel.MappedSuperclassType;
+import jakarta.persistence.metamodel.Metamodel;
+import jakarta.persistence.metamodel.PluralAttribute;
+import jakarta.persistence.metamodel.SingularAttribute;
+import jakarta.persistence.metamodel.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class AssistantUtils {
+	private static final String COMPACT_NOTATION = "# Entity(identifier:Type, attribute:Type, ...) -> association:Type, ...\n" +
+			"# 'extends' names the supertype, whose attributes are inherited\n";
+
+	/**
+	 * Utility method that generates a JSON string representation of the mapping information
+	 * contained in the provided {@link Metamodel metamodel} instance. The representation
+	 * does not follow a strict scheme, and is more akin to natural language, as it's
+	 * mainly meant for consumption by a LLM.
+	 *
+	 * @param metamodel the metamodel instance containing information on the persistence structures
+	 *
+	 * @return the JSON representation of the provided {@link Metamodel metamodel}
+	 */
+	public static String getDomainModelPrompt(Metamodel metamodel) {
+		return getDomainModelPrompt( metamodel.getManagedTypes() );
+	}
+
+	/**
+	 * Utility method that generates a JSON string representation of the mapping information
+	 * of the provided {@link ManagedType managed types}, see {@link #getDomainModelPrompt(Metamodel)}.
+	 *
+	 * @param managedTypes the managed types to include in the representation
+	 *
+	 * @return the JSON representation of the provided managed types
+	 */
+	public static String getDomainModelPrompt(Collection<? extends ManagedType<?>> managedTypes) {
+		final List<String> entities = new ArrayList<>();
+		final List<String> embeddables = new ArrayList<>();
+		final List<String> mappedSupers = new ArrayList<>();
+		for ( ManagedType<?> managedType : managedTypes ) {
+			switch ( managedType.getPersistenceType() ) {
+				case ENTITY -> entities.add( getEntityTypeDescription( (EntityType<?>) managedType ) );
+				case EMBEDDABLE -> embeddables.add( getEmbeddableTypeDescription( (EmbeddableType<?>) managedType ) );
+				case MAPPED_SUPERCLASS -> mappedSupers.add( getMappedSuperclassTypeDescription( (MappedSuperclassType<?>) managedType ) );
+				default ->
+						throw new IllegalStateException( "Unexpected persistence type for managed type [" + managedType + "]" );
+			}
+		}
+		return "{" +
+				"\"entities\":" + toJsonArray( entities ) +
+				",\"mappedSuperclasses\":" + toJsonArray( mappedSupers ) +
+				",\"embeddables\":" + toJsonArray( embeddables ) +
+				'}';
+	}
+
+	static String toJsonArray(Collection<String> strings) {
+		return strings.isEmpty() ? "[]" : "[" + String.join( ",", strings ) + "]";
+	}
+
+	public static <T> String getEntityTypeDescription(EntityType<T> entityType) {
+		return "{\"name\":\"" + entityType.getName() + "\"," +
+				"\"class\":\"" + entityType.getJavaType().getTypeName() + "\"," +
+				superclassDescriptor( (ManagedDomainType<?>) entityType ) +
+				identifierDescriptor( entityType ) +
+				"\"attributes\":" + attributeArray( entityType.getAttributes() ) +
+				"}";
+	}
+
+	public static String superclassDescriptor(ManagedDomainType<?> managedType) {
+		final ManagedDomainType<?> superType = managedType.getSuperType();
+		return superType != null ? "\"superclass\":\"" + superType.getJavaType().getTypeName() + "\"," : "";
+	}
+
+	public static <T> String getMappedSuperclassTypeDescription(MappedSuperclassType<T> mappedSuperclass) {
+		final Class<T> javaType = mappedSuperclass.getJavaType();
+		return "{\"name\":\"" + javaType.getSimpleName() + "\"," +
+				"\"class\":\"" + javaType.getTypeName() + "\"," +
+				superclassDescriptor( (ManagedDomainType<?>) mappedSuperclass ) +
+				identifierDescriptor( mappedSuperclass ) +
+				"\"attributes\":" + attributeArray( mappedSuperclass.getAttributes() ) +
+				"}";
+	}
+
+	public static <T> String identifierDescriptor(IdentifiableType<T> identifiableType) {
+		final Type<?> idType = identifiableType.getIdType();
+		final String description;
+		if ( idType != null ) {
+			final SingularAttribute<? super T, ?> id = identifiableType.getId( idType.getJavaType() );
+			description = "\"identifierAttribute\":\"" + id.getName() + "\",";
+		}
+		else {
+			description = "";
+		}
+		return description;
+	}
+
+	public static <T> String getEmbeddableTypeDescription(EmbeddableType<T> embeddableType) {
+		final Class<T> javaType = embeddableType.getJavaType();
+		return "{\"name\":\"" + javaType.getSimpleName() + "\"," +
+				"\"class\":\"" + javaType.getTypeName() + "\"," +
+				superclassDescriptor( (ManagedDomainType<?>) embeddableType ) +
+				"\"attributes\":" + attributeArray( embeddableType.getAttributes() ) +
+				"}";
+	}
+
+	public static <T> String attributeArray(Set<Attribute<? super T, ?>> attributes) {
+		if ( attributes.isEmpty() ) {
+			return "[]";
+		}
+
+		final StringBuilder sb = new StringBuilder( "[" );
+		for ( final Attribute<? super T, ?> attribute : attributes ) {
+			sb.append( "{\"name\":\"" ).append( attribute.getName() )
+					.append( "\",\"type\":\"" ).append( attribute.getJavaType().getTypeName() );
+			// add key and element types for plural attributes
+			if ( attribute instanceof PluralAttribute<?, ?, ?> pluralAttribute ) {
+				sb.append( '<' );
+				final PluralAttribute.CollectionType collectionType = pluralAttribute.getCollectionType();
+				if ( collectionType == PluralAttribute.CollectionType.MAP ) {
+					sb.append( ( (MapAttribute<?, ?, ?>) pluralAttribute ).getKeyJavaType().getTypeName() )
+							.append( "," );
+				}
+				sb.append( pluralAttribute.getElementType().getJavaType().getTypeName() ).append( '>' );
+			}
+			sb.append( "\"}," );
+		}
+		return sb.deleteCharAt( sb.length() - 1 ).append( ']' ).toString();
+	}
+
+	/**
+	 * Utility method that generates a compact, token-efficient textual representation of the mapping
+	 * information contained in the provided {@link Metamodel metamodel} instance, e.g.:
+	 * <pre>
+	 * Company(id:long, address:Address, name:String) -> employees:List&lt;Employee&gt;
+	 * &#64;Embeddable Address(city:String, street:String)
+	 * </pre>
+	 * Common Java types and managed types are referred to by their short names, and only the attributes
+	 * declared by each type are listed since inherited ones are implied by the {@code extends} clause.
+	 *
+	 * @param metamodel the metamodel instance containing information on the persistence structures
+	 *
+	 * @return the compact representation of the provided {@link Metamodel metamodel}
+	 */
+	public static String getCompactDomainModelPrompt(Metamodel metamodel) {
+		return getCompactDomainModelPrompt( metamodel.getManagedTypes() );
+	}
+
+	/**
+	 * Utility method that generates a compact textual representation of the mapping information
+	 * of the provided {@link ManagedType managed types}, see {@link #getCompactDomainModelPrompt(Metamodel)}.
+	 *
+	 * @param managedTypes the managed types to include in the representation
+	 *
+	 * @return the compact representation of the provided managed types
+	 */
+	public static String getCompactDomainModelPrompt(Collection<? extends ManagedType<?>> managedTypes) {
+		final Map<Class<?>, String> typeNames = compactTypeNames( managedTypes );
+		final StringBuilder entities = new StringBuilder();
+		final StringBuilder mappedSupers = new StringBuilder();
+		final StringBuilder embeddables = new StringBuilder();
+		for ( ManagedType<?> managedType : managedTypes ) {
+			switch ( managedType.getPersistenceType() ) {
+				case ENTITY -> appendCompactDescription( entities, "", managedType, typeNames );
+				case MAPPED_SUPERCLASS ->
+						appendCompactDescription( mappedSupers, "@MappedSuperclass ", managedType, typeNames );
+				case EMBEDDABLE -> appendCompactDescription( embeddables, "@Embeddable ", managedType, typeNames );
+				default ->
+						throw new IllegalStateException( "Unexpected persistence type for managed type [" + managedType + "]" );
+			}
+		}
+		return COMPACT_NOTATION + entities + mappedSupers + embeddables;
+	}
+
+	private static void appendCompactDescription(
+			StringBuilder sb,
+			String prefix,
+			ManagedType<?> managedType,
+			Map<Class<?>, String> typeNames) {
+		sb.append( prefix ).append( typeNames.get( managedType.getJavaType() ) );
+		final ManagedDomainType<?> superType = ( (ManagedDomainType<?>) managedType ).getSuperType();
+		if ( superType != null ) {
+			sb.append( " extends " ).append( compactTypeName( superType.getJavaType(), typeNames ) );
+		}
+
+		final List<Attribute<?, ?>> attributes = new ArrayList<>( managedType.getDeclaredAttributes() );
+		// the identifier always comes first
+		attributes.sort( Comparator.comparing( a -> !( a instanceof SingularAttribute<?, ?> s && s.isId() ) ) );
+		char separator = '(';
+		for ( Attribute<?, ?> attribute : attributes ) {
+			if ( !attribute.isAssociation() ) {
+				sb.append( separator );
+				appendCompactAttribute( sb, attribute, typeNames );
+				separator = ',';
+			}
+		}
+		sb.append( separator == '(' ? "()" : ")" );
+		separator = '>';
+		for ( Attribute<?, ?> attribute : attributes ) {
+			if ( attribute.isAssociation() ) {
+				sb.append( separator == '>' ? " -> " : "," );
+				appendCompactAttribute( sb, attribute, typeNames );
+				separator = ',';
+			}
+		}
+		sb.append( '\n' );
+	}
+
+	private static void appendCompactAttribute(StringBuilder sb, Attribute<?, ?> attribute, Map<Class<?>, String> typeNames) {
+		sb.append( attribute.getName() ).append( ':' ).append( compactTypeName( attribute.getJavaType(), typeNames ) );
+		if ( attribute instanceof PluralAttribute<?, ?, ?> pluralAttribute ) {
+			sb.append( '<' );
+			if ( pluralAttribute.getCollectionType() == PluralAttribute.CollectionType.MAP ) {
+				sb.append( compactTypeName( ( (MapAttribute<?, ?, ?>) pluralAttribute ).getKeyJavaType(), typeNames ) )
+						.append( ',' );
+			}
+			sb.append( compactTypeName( pluralAttribute.getElementType().getJavaType(), typeNames ) ).append( '>' );
+		}
+	}
+
+	/**
+	 * Managed types are referred to by their entity or simple class name, unless
+	 * two of them share the same simple name in which case the full name is used.
+	 */
+	private static Map<Class<?>, String> compactTypeNames(Collection<? extends ManagedType<?>> managedTypes) {
+		final Map<String, Integer> simpleNameCounts = new HashMap<>();
+		for ( ManagedType<?> managedType : managedTypes ) {
+			simpleNameCounts.merge( managedType.getJavaType().getSimpleName(), 1, Integer::sum );
+		}
+		final Map<Class<?>, String> typeNames = new HashMap<>();
+		for ( ManagedType<?> managedType : managedTypes ) {
+			final Class<?> javaType = managedType.getJavaType();
+			if ( managedType instanceof EntityType<?> entityType ) {
+				typeNames.put( javaType, entityType.getName() );
+			}
+			else {
+				typeNames.put(
+						javaType,
+						simpleNameCounts.get( javaType.getSimpleName() ) > 1 ? javaType.getTypeName() : javaType.getSimpleName()
+				);
+			}
+		}
+		return typeNames;
+	}
+
+	private static String compactTypeName(Class<?> type, Map<Class<?>, String> typeNames) {
+		final String name = typeNames.get( type );
+		if ( name != null ) {
+			return name;
+		}
+		else if ( type.isArray() ) {
+			return compactTypeName( type.getComponentType(), typeNames ) + "[]";
+		}
+		else if ( type.isPrimitive() ) {
+			return type.getName();
+		}
+		final String packageName = type.getPackageName();
+		return switch ( packageName ) {
+			case "java.lang", "java.util", "java.time", "java.math", "java.sql" -> type.getSimpleName();
+			// keep other types, e.g. enums, fully qualified as they might be needed in queries
+			default -> type.getTypeName();
+		};
+	}
+}
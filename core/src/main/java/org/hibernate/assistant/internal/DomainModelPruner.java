@@ -0,0 +1,249 @@
+package org.hibernate.assistant.internal;
+
+import org.hibernate.metamodel.model.domain.ManagedDomainType;
+
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.ManagedType;
+import jakarta.persistence.metamodel.MapAttribute;
+import jakarta.persistence.metamodel.Metamodel;
+import jakarta.persistence.metamodel.PluralAttribute;
+import jakarta.persistence.metamodel.SingularAttribute;
+import jakarta.persistence.metamodel.Type;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds domain model prompts that only contain the managed types relevant to a natural language question,
+ * instead of the whole {@link Metamodel}. The relevant types are the ones whose name, or the name of one of their
+ * distinctive attributes, is mentioned in the question, plus the types up to {@code associationHops} associations
+ * away from them. Supertypes and embeddables of the selected types are always included, so that the
+ * resulting prompt is self-contained.
+ * <p>
+ * The selection only depends on the domain model terms contained in a question (its <i>shape</i>), and the
+ * resulting prompts are cached accordingly. When a question does not mention any known term, the prompt for
+ * the whole domain model is returned.
+ */
+public class DomainModelPruner {
+	private static final int MAX_CACHED_SHAPES = 1024;
+	/**
+	 * Attribute names shared by more types than this (e.g. {@code id}, {@code name}) are not used to select types
+	 */
+	private static final int MAX_ATTRIBUTE_TERM_TYPES = 3;
+
+	private static final Pattern WORD = Pattern.compile( "[\\p{L}\\p{N}]+" );
+	private static final Pattern CAMEL_CASE = Pattern.compile( "(?<=[\\p{Ll}\\p{N}])(?=\\p{Lu})" );
+
+	private final int associationHops;
+	private final MetamodelPromptFormat format;
+	private final List<ManagedType<?>> managedTypes;
+	private final Map<ManagedType<?>, Set<ManagedType<?>>> associations = new HashMap<>();
+	private final Map<ManagedType<?>, Set<ManagedType<?>>> requiredTypes = new HashMap<>();
+	private final Map<String, Set<ManagedType<?>>> typeTerms = new HashMap<>();
+	private final Map<String, Set<ManagedType<?>>> attributeTerms = new HashMap<>();
+	private final String fullPrompt;
+	private final Map<String, String> prompts = new ConcurrentHashMap<>();
+
+	public DomainModelPruner(Metamodel metamodel, int associationHops) {
+		this( metamodel, associationHops, MetamodelPromptFormat.JSON );
+	}
+
+	public DomainModelPruner(Metamodel metamodel, int associationHops, MetamodelPromptFormat format) {
+		if ( associationHops < 0 ) {
+			throw new IllegalArgumentException( "Association hops must not be negative" );
+		}
+		this.associationHops = associationHops;
+		this.format = format;
+		// use a stable ordering, so that the same selection always produces the same prompt
+		this.managedTypes = metamodel.getManagedTypes().stream()
+				.sorted( Comparator.comparing( DomainModelPruner::typeName ) )
+				.<ManagedType<?>>map( t -> t )
+				.toList();
+		this.fullPrompt = format.getDomainModelPrompt( managedTypes );
+
+		for ( ManagedType<?> managedType : managedTypes ) {
+			for ( String term : terms( typeName( managedType ) ) ) {
+				typeTerms.computeIfAbsent( term, k -> new LinkedHashSet<>() ).add( managedType );
+			}
+			final ManagedDomainType<?> superType = ( (ManagedDomainType<?>) managedType ).getSuperType();
+			if ( superType != null ) {
+				addAssociation( managedType, superType );
+				required( managedType ).add( superType );
+			}
+			for ( Attribute<?, ?> attribute : managedType.getDeclaredAttributes() ) {
+				for ( String term : terms( attribute.getName() ) ) {
+					attributeTerms.computeIfAbsent( term, k -> new LinkedHashSet<>() ).add( managedType );
+				}
+				for ( ManagedType<?> target : targetTypes( attribute ) ) {
+					addAssociation( managedType, target );
+					if ( target.getPersistenceType() == Type.PersistenceType.EMBEDDABLE ) {
+						required( managedType ).add( target );
+					}
+				}
+			}
+		}
+		attributeTerms.values().removeIf( types -> types.size() > MAX_ATTRIBUTE_TERM_TYPES );
+	}
+
+	/**
+	 * Returns the domain model prompt containing the types relevant to the given question.
+	 *
+	 * @param question the natural language question
+	 *
+	 * @return the representation of the relevant managed types in the configured {@link MetamodelPromptFormat}
+	 */
+	public String getDomainModelPrompt(String question) {
+		final Set<String> shape = shape( question );
+		if ( shape.isEmpty() ) {
+			return fullPrompt;
+		}
+		if ( prompts.size() >= MAX_CACHED_SHAPES ) {
+			prompts.clear();
+		}
+		return prompts.computeIfAbsent(
+				String.join( " ", shape ),
+				k -> format.getDomainModelPrompt( getRelevantTypes( shape ) )
+		);
+	}
+
+	/**
+	 * Returns the managed types relevant to the given question, in a stable order.
+	 *
+	 * @param question the natural language question
+	 *
+	 * @return the relevant managed types, or all managed types if the question does not mention any of them
+	 */
+	public List<ManagedType<?>> getRelevantTypes(String question) {
+		final Set<String> shape = shape( question );
+		return shape.isEmpty() ? managedTypes : getRelevantTypes( shape );
+	}
+
+	private List<ManagedType<?>> getRelevantTypes(Set<String> shape) {
+		final Set<ManagedType<?>> selected = new LinkedHashSet<>();
+		for ( String term : shape ) {
+			selected.addAll( typeTerms.getOrDefault( term, Set.of() ) );
+			selected.addAll( attributeTerms.getOrDefault( term, Set.of() ) );
+		}
+
+		// expand the selection following associations, one hop at a time; supertypes are added to the
+		// frontier at no cost, since their associations are inherited by the selected types
+		Set<ManagedType<?>> frontier = addRequiredTypes( selected, Set.copyOf( selected ) );
+		for ( int hop = 0; hop < associationHops && !frontier.isEmpty(); hop++ ) {
+			final Set<ManagedType<?>> next = new LinkedHashSet<>();
+			for ( ManagedType<?> managedType : frontier ) {
+				for ( ManagedType<?> associated : associations.getOrDefault( managedType, Set.of() ) ) {
+					if ( selected.add( associated ) ) {
+						next.add( associated );
+					}
+				}
+			}
+			frontier = addRequiredTypes( selected, next );
+		}
+
+		return managedTypes.stream().filter( selected::contains ).toList();
+	}
+
+	/**
+	 * Adds the supertypes and embeddables needed to describe the given types to the selection.
+	 *
+	 * @return the given types, together with the required types that were added
+	 */
+	private Set<ManagedType<?>> addRequiredTypes(Set<ManagedType<?>> selected, Set<ManagedType<?>> types) {
+		final Set<ManagedType<?>> result = new LinkedHashSet<>( types );
+		final ArrayDeque<ManagedType<?>> queue = new ArrayDeque<>( types );
+		while ( !queue.isEmpty() ) {
+			for ( ManagedType<?> required : requiredTypes.getOrDefault( queue.poll(), Set.of() ) ) {
+				if ( selected.add( required ) ) {
+					result.add( required );
+					queue.add( required );
+				}
+			}
+		}
+		return result;
+	}
+
+	private Set<String> shape(String question) {
+		final Set<String> shape = new TreeSet<>();
+		for ( String term : terms( question ) ) {
+			if ( typeTerms.containsKey( term ) || attributeTerms.containsKey( term ) ) {
+				shape.add( term );
+			}
+		}
+		return shape;
+	}
+
+	private void addAssociation(ManagedType<?> source, ManagedType<?> target) {
+		if ( source != target ) {
+			associations.computeIfAbsent( source, k -> new LinkedHashSet<>() ).add( target );
+			associations.computeIfAbsent( target, k -> new LinkedHashSet<>() ).add( source );
+		}
+	}
+
+	private Set<ManagedType<?>> required(ManagedType<?> managedType) {
+		return requiredTypes.computeIfAbsent( managedType, k -> new LinkedHashSet<>() );
+	}
+
+	private static List<ManagedType<?>> targetTypes(Attribute<?, ?> attribute) {
+		if ( attribute instanceof SingularAttribute<?, ?> singular ) {
+			return singular.getType() instanceof ManagedType<?> target ? List.of( target ) : List.of();
+		}
+		else if ( attribute instanceof PluralAttribute<?, ?, ?> plural ) {
+			final Type<?> keyType = plural instanceof MapAttribute<?, ?, ?> map ? map.getKeyType() : null;
+			if ( plural.getElementType() instanceof ManagedType<?> element ) {
+				return keyType instanceof ManagedType<?> key ? List.of( element, key ) : List.of( element );
+			}
+			return keyType instanceof ManagedType<?> key ? List.of( key ) : List.of();
+		}
+		return List.of();
+	}
+
+	private static String typeName(ManagedType<?> managedType) {
+		return managedType instanceof EntityType<?> entityType ?
+				entityType.getName() :
+				managedType.getJavaType().getSimpleName();
+	}
+
+	/**
+	 * Splits the given text into lower-case, singular words. Camel-case identifiers
+	 * produce both the individual words and the whole identifier.
+	 */
+	static Set<String> terms(String text) {
+		final Set<String> terms = new LinkedHashSet<>();
+		final Matcher matcher = WORD.matcher( text );
+		while ( matcher.find() ) {
+			final String word = matcher.group();
+			terms.add( stem( word.toLowerCase( Locale.ROOT ) ) );
+			final String[] parts = CAMEL_CASE.split( word );
+			if ( parts.length > 1 ) {
+				for ( String part : parts ) {
+					terms.add( stem( part.toLowerCase( Locale.ROOT ) ) );
+				}
+			}
+		}
+		return terms;
+	}
+
+	static String stem(String word) {
+		final int length = word.length();
+		if ( length > 4 && word.endsWith( "ies" ) ) {
+			return word.substring( 0, length - 3 ) + "y";
+		}
+		else if ( word.endsWith( "sses" ) || word.endsWith( "xes" ) || word.endsWith( "ches" ) || word.endsWith( "shes" ) ) {
+			return word.substring( 0, length - 2 );
+		}
+		else if ( length > 3 && word.endsWith( "s" ) && !word.endsWith( "ss" ) && !word.endsWith( "us" ) ) {
+			return word.substring( 0, length - 1 );
+		}
+		return word;
+	}
+}
@@ -0,0 +1,187 @@
+package org.hibernate.assistant.internal;
+
+import org.hibernate.assistant.spi.AssistantMetrics;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link AssistantMetrics} implementation aggregating the reported values in memory, e.g. for tests or
+ * to be periodically exported to a dashboard. Durations and sizes are recorded in {@link Histogram}s with
+ * power-of-two buckets, so recording a value is lock-free and constant in time and memory, while percentiles
+ * are approximated by the upper bound of the bucket they fall in.
+ */
+public class InMemoryAssistantMetrics implements AssistantMetrics {
+	private final Map<Stage, Histogram> stages = new EnumMap<>( Stage.class );
+	private final Histogram promptLengths = new Histogram();
+	private final Histogram responseLengths = new Histogram();
+	private final Histogram resultRows = new Histogram();
+	private final Histogram resultBytes = new Histogram();
+	private final LongAdder inputTokens = new LongAdder();
+	private final LongAdder outputTokens = new LongAdder();
+
+	public InMemoryAssistantMetrics() {
+		for ( Stage stage : Stage.values() ) {
+			stages.put( stage, new Histogram() );
+		}
+	}
+
+	@Override
+	public void onStage(Stage stage, long nanos) {
+		stages.get( stage ).record( nanos );
+	}
+
+	@Override
+	public void onChat(int promptLength, int responseLength, Integer inputTokens, Integer outputTokens) {
+		promptLengths.record( promptLength );
+		responseLengths.record( responseLength );
+		if ( inputTokens != null ) {
+			this.inputTokens.add( inputTokens );
+		}
+		if ( outputTokens != null ) {
+			this.outputTokens.add( outputTokens );
+		}
+	}
+
+	@Override
+	public void onResults(long rows, long bytes) {
+		resultRows.record( rows );
+		resultBytes.record( bytes );
+	}
+
+	/**
+	 * @return the durations of the given stage, in nanoseconds
+	 */
+	public Histogram getLatencies(Stage stage) {
+		return stages.get( stage );
+	}
+
+	/**
+	 * @return the number of characters of the prompts sent to the chat model
+	 */
+	public Histogram getPromptLengths() {
+		return promptLengths;
+	}
+
+	/**
+	 * @return the number of characters of the chat model's responses
+	 */
+	public Histogram getResponseLengths() {
+		return responseLengths;
+	}
+
+	/**
+	 * @return the number of rows of serialized query results
+	 */
+	public Histogram getResultRows() {
+		return resultRows;
+	}
+
+	/**
+	 * @return the size of serialized query results, in bytes
+	 */
+	public Histogram getResultBytes() {
+		return resultBytes;
+	}
+
+	/**
+	 * @return the total number of input tokens reported by the chat model
+	 */
+	public long getInputTokens() {
+		return inputTokens.sum();
+	}
+
+	/**
+	 * @return the total number of output tokens reported by the chat model
+	 */
+	public long getOutputTokens() {
+		return outputTokens.sum();
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder( "InMemoryAssistantMetrics" );
+		stages.forEach( (stage, histogram) -> sb.append( "\n  " ).append( stage ).append( " (ns): " ).append( histogram ) );
+		sb.append( "\n  prompt length: " ).append( promptLengths );
+		sb.append( "\n  response length: " ).append( responseLengths );
+		sb.append( "\n  result rows: " ).append( resultRows );
+		sb.append( "\n  result bytes: " ).append( resultBytes );
+		sb.append( "\n  tokens: " ).append( getInputTokens() ).append( " in, " ).append( getOutputTokens() ).append( " out" );
+		return sb.toString();
+	}
+
+	/**
+	 * Histogram of non-negative values, counted in 64 buckets: bucket {@code i} contains the values
+	 * between {@code 2^(i-1)} (inclusive) and {@code 2^i} (exclusive), bucket {@code 0} only contains {@code 0}.
+	 */
+	public static class Histogram {
+		private final AtomicLongArray buckets = new AtomicLongArray( Long.SIZE );
+		private final LongAdder count = new LongAdder();
+		private final LongAdder sum = new LongAdder();
+		private final LongAccumulator max = new LongAccumulator( Math::max, 0 );
+
+		public void record(long value) {
+			final long v = Math.max( value, 0 );
+			buckets.incrementAndGet( Math.min( Long.SIZE - Long.numberOfLeadingZeros( v ), Long.SIZE - 1 ) );
+			count.increment();
+			sum.add( v );
+			max.accumulate( v );
+		}
+
+		public long getCount() {
+			return count.sum();
+		}
+
+		public long getSum() {
+			return sum.sum();
+		}
+
+		public long getMax() {
+			return max.get();
+		}
+
+		public double getMean() {
+			final long count = getCount();
+			return count == 0 ? 0 : (double) getSum() / count;
+		}
+
+		/**
+		 * @param percentile the percentile, between {@code 0} and {@code 100}
+		 *
+		 * @return an upper bound of the given percentile of the recorded values, never greater than the maximum
+		 */
+		public long getPercentile(double percentile) {
+			final long count = getCount();
+			if ( count == 0 ) {
+				return 0;
+			}
+			final long rank = Math.max( 1, (long) Math.ceil( count * percentile / 100 ) );
+			long seen = 0;
+			for ( int i = 0; i < buckets.length(); i++ ) {
+				seen += buckets.get( i );
+				if ( seen >= rank ) {
+					return i == 0 ? 0 : Math.min( ( 1L << i ) - 1, getMax() );
+				}
+			}
+			return getMax();
+		}
+
+		@Override
+		public String toString() {
+			return String.format(
+					Locale.ROOT,
+					"count=%d mean=%.1f p50=%d p90=%d p99=%d max=%d",
+					getCount(),
+					getMean(),
+					getPercentile( 50 ),
+					getPercentile( 90 ),
+					getPercentile( 99 ),
+					getMax()
+			);
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package org.hibernate.assistant.internal;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts the HQL query from a response of the LLM while it's being streamed, so that the query can be used
+ * as soon as it's complete, regardless of anything the model writes after it.
+ * <p>
+ * With structured JSON responses the text is tokenized as it arrives, decoding JSON strings, and the query
+ * is complete once the string value of the {@code hqlQuery} property is closed. With plain text responses,
+ * the query starts with {@code SELECT} and is complete once it's terminated by a semicolon or a new line,
+ * like in {@link #extractHql(String)}.
+ */
+public class IncrementalHqlExtractor {
+	private static final Pattern HQL_PATTERN = Pattern.compile( "(?i)\\bSELECT\\b.*?(?:;|\\n|$)" );
+	private static final Pattern TERMINATED_HQL_PATTERN = Pattern.compile( "(?i)\\bSELECT\\b.*?(?:;|\\n)" );
+	private static final String HQL_PROPERTY = "hqlQuery";
+
+	private enum State {
+		OUTSIDE,
+		STRING,
+		ESCAPE,
+		UNICODE,
+		AFTER_STRING
+	}
+
+	private final boolean structuredJson;
+	private final StringBuilder text = new StringBuilder();
+	private final StringBuilder string = new StringBuilder();
+	private State state = State.OUTSIDE;
+	private boolean hqlValue;
+	private int unicode;
+	private int unicodeDigits;
+	private String hql;
+
+	/**
+	 * @param structuredJson whether the response is a JSON object with an {@code hqlQuery} property
+	 */
+	public IncrementalHqlExtractor(boolean structuredJson) {
+		this.structuredJson = structuredJson;
+	}
+
+	/**
+	 * Extracts the first {@code SELECT} query from a plain text response.
+	 *
+	 * @param response the complete response
+	 *
+	 * @return the HQL query, or {@code null} if none was found
+	 */
+	public static String extractHql(String response) {
+		// Try our best to extract valid HQL from text
+		final Matcher matcher = HQL_PATTERN.matcher( response );
+		return matcher.find() ? matcher.group().trim() : null;
+	}
+
+	/**
+	 * Appends the next part of the response.
+	 *
+	 * @param partialResponse the text streamed by the model
+	 *
+	 * @return {@code true} if the query is complete, in which case any following text can be ignored
+	 */
+	public boolean append(String partialResponse) {
+		if ( hql != null ) {
+			return true;
+		}
+		if ( structuredJson ) {
+			for ( int i = 0; i < partialResponse.length() && hql == null; i++ ) {
+				accept( partialResponse.charAt( i ) );
+			}
+		}
+		else {
+			final int start = text.length();
+			text.append( partialResponse );
+			if ( partialResponse.indexOf( '\n' ) >= 0 || partialResponse.indexOf( ';' ) >= 0 ) {
+				// the query might start in a previous part, so look for it from its beginning
+				final Matcher matcher = TERMINATED_HQL_PATTERN.matcher( text );
+				if ( matcher.find() && matcher.end() > start ) {
+					hql = matcher.group().trim();
+				}
+			}
+		}
+		return hql != null;
+	}
+
+	/**
+	 * @return the complete HQL query, or {@code null} if it wasn't found yet
+	 */
+	public String hql() {
+		return hql;
+	}
+
+	private void accept(char c) {
+		switch ( state ) {
+			case OUTSIDE -> {
+				if ( c == '"' ) {
+					string.setLength( 0 );
+					state = State.STRING;
+				}
+				else if ( !Character.isWhitespace( c ) ) {
+					// the property value is not a string, e.g. null
+					hqlValue = false;
+				}
+			}
+			case STRING -> {
+				if ( c == '\\' ) {
+					state = State.ESCAPE;
+				}
+				else if ( c == '"' ) {
+					if ( hqlValue ) {
+						hql = string.toString();
+					}
+					state = State.AFTER_STRING;
+				}
+				else {
+					string.append( c );
+				}
+			}
+			case ESCAPE -> {
+				state = State.STRING;
+				switch ( c ) {
+					case 'n' -> string.append( '\n' );
+					case 'r' -> string.append( '\r' );
+					case 't' -> string.append( '\t' );
+					case 'b' -> string.append( '\b' );
+					case 'f' -> string.append( '\f' );
+					case 'u' -> {
+						unicode = 0;
+						unicodeDigits = 0;
+						state = State.UNICODE;
+					}
+					default -> string.append( c );
+				}
+			}
+			case UNICODE -> {
+				unicode = unicode * 16 + Character.digit( c, 16 );
+				if ( ++unicodeDigits == 4 ) {
+					string.append( (char) unicode );
+					state = State.STRING;
+				}
+			}
+			case AFTER_STRING -> {
+				if ( c == ':' ) {
+					// the string was a property name
+					hqlValue = string.toString().equals( HQL_PROPERTY );
+					state = State.OUTSIDE;
+				}
+				else if ( !Character.isWhitespace( c ) ) {
+					hqlValue = false;
+					state = State.OUTSIDE;
+					accept( c );
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package org.hibernate.assistant.internal;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A {@link CompletableFuture} whose value is computed by a task submitted to an {@link ExecutorService}.
+ * Unlike {@link CompletableFuture#supplyAsync}, {@linkplain #cancel(boolean) cancelling} this future with
+ * {@code mayInterruptIfRunning} set to {@code true} interrupts the thread running the task, so that blocking
+ * operations such as in-flight HTTP requests to the LLM are aborted instead of running to completion.
+ */
+public class InterruptibleFuture<T> extends CompletableFuture<T> {
+	private volatile Future<?> task;
+
+	private InterruptibleFuture() {
+	}
+
+	/**
+	 * Submits the given task to the executor.
+	 *
+	 * @param task the task computing the future's value
+	 * @param executor the executor running the task
+	 *
+	 * @return a future completed with the task's result or failure
+	 */
+	public static <T> InterruptibleFuture<T> submit(Callable<T> task, ExecutorService executor) {
+		final InterruptibleFuture<T> future = new InterruptibleFuture<>();
+		future.task = executor.submit( () -> {
+			try {
+				future.complete( task.call() );
+			}
+			catch (Throwable t) {
+				future.completeExceptionally( t );
+			}
+		} );
+		if ( future.isCancelled() ) {
+			// cancelled before the task was assigned
+			future.task.cancel( true );
+		}
+		return future;
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		final boolean cancelled = super.cancel( mayInterruptIfRunning );
+		final Future<?> task = this.task;
+		if ( cancelled && task != null ) {
+			task.cancel( mayInterruptIfRunning );
+		}
+		return cancelled;
+	}
+}
@@ -0,0 +1,390 @@
+package org.hibernate.assistant.internal;
+
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.SessionFactoryObserver;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.dialect.JsonHelper.JsonAppender;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metamodel.mapping.AttributeMapping;
+import org.hibernate.metamodel.mapping.BasicValuedModelPart;
+import org.hibernate.metamodel.mapping.EmbeddableMappingType;
+import org.hibernate.metamodel.mapping.EmbeddableValuedModelPart;
+import org.hibernate.metamodel.mapping.EntityIdentifierMapping;
+import org.hibernate.metamodel.mapping.EntityMappingType;
+import org.hibernate.metamodel.mapping.EntityValuedModelPart;
+import org.hibernate.metamodel.mapping.ModelPart;
+import org.hibernate.metamodel.mapping.PluralAttributeMapping;
+import org.hibernate.property.access.spi.Getter;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.proxy.LazyInitializer;
+import org.hibernate.type.descriptor.java.JavaType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Specialized JSON writers for the model parts of a {@link SessionFactory}, replacing the generic traversal of the
+ * mapping model performed by {@link org.hibernate.dialect.JsonHelper} for every value. The writer of each entity and
+ * embeddable type is built once, with the escaped attribute names and the property {@link Getter getters} of its
+ * attributes already resolved, and is then shared by all queries executed on the same session factory.
+ * <p>
+ * The output format is the same as {@code JsonHelper}'s: entities are written as objects starting with their
+ * identifier, while uninitialized proxies and entities which were already written higher up in the same value,
+ * i.e. cycles, are written as a {@code "EntityClass#id"} reference. Uninitialized collections are written as
+ * {@code "<uninitialized>"}.
+ */
+public class JsonWriters {
+	private static final Map<SessionFactoryImplementor, JsonWriters> WRITERS = new ConcurrentHashMap<>();
+
+	/**
+	 * Writes a single value as JSON.
+	 */
+	@FunctionalInterface
+	public interface ValueWriter {
+		void write(Object value, JsonAppender jsonAppender);
+	}
+
+	private final SessionFactoryImplementor factory;
+	private final Map<EntityMappingType, EntityWriter> entityWriters = new ConcurrentHashMap<>();
+	private final Map<EmbeddableMappingType, EmbeddableWriter> embeddableWriters = new ConcurrentHashMap<>();
+
+	private JsonWriters(SessionFactoryImplementor factory) {
+		this.factory = factory;
+	}
+
+	/**
+	 * @param factory the session factory
+	 *
+	 * @return the writers of the given session factory's model parts, discarded once the factory is closed
+	 */
+	public static JsonWriters forFactory(SessionFactoryImplementor factory) {
+		final JsonWriters writers = WRITERS.get( factory );
+		if ( writers != null ) {
+			return writers;
+		}
+		return WRITERS.computeIfAbsent( factory, sf -> {
+			// writers reference the factory's mapping model, so a weak key would never be cleared
+			sf.addObserver( new SessionFactoryObserver() {
+				@Override
+				public void sessionFactoryClosed(SessionFactory closed) {
+					WRITERS.remove( sf );
+				}
+			} );
+			return new JsonWriters( sf );
+		} );
+	}
+
+	/**
+	 * @param entityMappingType the entity type
+	 *
+	 * @return the writer of instances of the given entity type, or of its subtypes
+	 */
+	public ValueWriter entityWriter(EntityMappingType entityMappingType) {
+		return topLevel( entityWriter0( entityMappingType ) );
+	}
+
+	/**
+	 * @param modelPart a basic, embeddable, entity valued or plural model part
+	 *
+	 * @return the writer of the values of the given model part
+	 */
+	public ValueWriter writer(ModelPart modelPart) {
+		return topLevel( partWriter( modelPart ) );
+	}
+
+	private static ValueWriter topLevel(PartWriter writer) {
+		return (value, jsonAppender) -> writer.write( value, jsonAppender, null );
+	}
+
+	private EntityWriter entityWriter0(EntityMappingType entityMappingType) {
+		final EntityWriter writer = entityWriters.get( entityMappingType );
+		if ( writer != null ) {
+			return writer;
+		}
+		// not computeIfAbsent(), building a writer looks up the writers of embeddables
+		final EntityWriter newWriter = new EntityWriter( entityMappingType );
+		final EntityWriter existing = entityWriters.putIfAbsent( entityMappingType, newWriter );
+		return existing != null ? existing : newWriter;
+	}
+
+	private EmbeddableWriter embeddableWriter(EmbeddableMappingType embeddableMappingType) {
+		final EmbeddableWriter writer = embeddableWriters.get( embeddableMappingType );
+		if ( writer != null ) {
+			return writer;
+		}
+		final EmbeddableWriter newWriter = new EmbeddableWriter( embeddableMappingType );
+		final EmbeddableWriter existing = embeddableWriters.putIfAbsent( embeddableMappingType, newWriter );
+		return existing != null ? existing : newWriter;
+	}
+
+	private PartWriter partWriter(ModelPart modelPart) {
+		return switch ( modelPart ) {
+			case PluralAttributeMapping plural -> new PluralWriter( partWriter( plural.getElementDescriptor() ) );
+			// entity writers are resolved lazily, as associations may be circular
+			case EntityValuedModelPart entity -> new EntityReferenceWriter( entity.getEntityMappingType() );
+			case EmbeddableValuedModelPart embeddable -> embeddableWriter( embeddable.getEmbeddableTypeDescriptor() );
+			case BasicValuedModelPart basic -> basicWriter( basic.getJdbcMapping().getJavaTypeDescriptor() );
+			default -> (value, jsonAppender, path) -> {
+				if ( value == null ) {
+					jsonAppender.append( "null" );
+				}
+				else {
+					appendString( value.toString(), jsonAppender );
+				}
+			};
+		};
+	}
+
+	private static PartWriter basicWriter(JavaType<?> javaType) {
+		//noinspection unchecked
+		final JavaType<Object> objectJavaType = (JavaType<Object>) javaType;
+		return (value, jsonAppender, path) -> {
+			if ( value == null ) {
+				jsonAppender.append( "null" );
+			}
+			else if ( value instanceof Number || value instanceof Boolean ) {
+				jsonAppender.append( value.toString() );
+			}
+			else {
+				appendString( objectJavaType.toString( value ), jsonAppender );
+			}
+		};
+	}
+
+	/**
+	 * Writes a JSON string, escaping quotes, backslashes and control characters.
+	 */
+	static void appendString(String string, JsonAppender jsonAppender) {
+		jsonAppender.append( '"' );
+		int start = 0;
+		for ( int i = 0; i < string.length(); i++ ) {
+			final char c = string.charAt( i );
+			if ( c == '"' || c == '\\' || c < 0x20 ) {
+				jsonAppender.append( string, start, i );
+				switch ( c ) {
+					case '"' -> jsonAppender.append( "\\\"" );
+					case '\\' -> jsonAppender.append( "\\\\" );
+					case '\n' -> jsonAppender.append( "\\n" );
+					case '\r' -> jsonAppender.append( "\\r" );
+					case '\t' -> jsonAppender.append( "\\t" );
+					default -> jsonAppender.append( String.format( Locale.ROOT, "\\u%04x", (int) c ) );
+				}
+				start = i + 1;
+			}
+		}
+		jsonAppender.append( string, start, string.length() ).append( '"' );
+	}
+
+	private static String quotedName(String name) {
+		final StringBuilder sb = new StringBuilder();
+		appendString( name, new JsonAppender( sb, true ) );
+		return sb.append( ':' ).toString();
+	}
+
+	/**
+	 * Writes a value which might be nested in a top-level value.
+	 */
+	@FunctionalInterface
+	private interface PartWriter {
+		/**
+		 * @param path the entities being written which contain the value, {@code null} if there's none
+		 */
+		void write(Object value, JsonAppender jsonAppender, List<Object> path);
+	}
+
+	private record AttributeWriter(String prefix, Getter getter, PartWriter writer) {
+		void write(Object owner, JsonAppender jsonAppender, List<Object> path) {
+			jsonAppender.append( prefix );
+			writer.write( getter.get( owner ), jsonAppender, path );
+		}
+	}
+
+	private AttributeWriter[] attributeWriters(
+			List<AttributeMapping> attributes,
+			char firstSeparator) {
+		final AttributeWriter[] writers = new AttributeWriter[attributes.size()];
+		char separator = firstSeparator;
+		for ( int i = 0; i < writers.length; i++ ) {
+			final AttributeMapping attribute = attributes.get( i );
+			writers[i] = new AttributeWriter(
+					separator + quotedName( attribute.getAttributeName() ),
+					attribute.getPropertyAccess().getGetter(),
+					partWriter( attribute )
+			);
+			separator = ',';
+		}
+		return writers;
+	}
+
+	private class EntityWriter implements PartWriter {
+		private final Class<?> javaTypeClass;
+		private final String referencePrefix;
+		private final EntityIdentifierMapping identifierMapping;
+		private final String identifierPrefix;
+		private final PartWriter identifierWriter;
+		private final AttributeWriter[] attributeWriters;
+
+		private EntityWriter(EntityMappingType entityMappingType) {
+			this.javaTypeClass = entityMappingType.getJavaType().getJavaTypeClass();
+			this.referencePrefix = javaTypeClass.getName() + "#";
+			this.identifierMapping = entityMappingType.getIdentifierMapping();
+			this.identifierPrefix = "{" + quotedName( identifierMapping.getAttributeName() );
+			this.identifierWriter = partWriter( identifierMapping );
+			final List<AttributeMapping> attributes = new ArrayList<>( entityMappingType.getNumberOfAttributeMappings() );
+			for ( int i = 0; i < entityMappingType.getNumberOfAttributeMappings(); i++ ) {
+				final AttributeMapping attribute = entityMappingType.getAttributeMapping( i );
+				if ( attribute != identifierMapping ) {
+					attributes.add( attribute );
+				}
+			}
+			this.attributeWriters = attributeWriters( attributes, ',' );
+		}
+
+		@Override
+		public void write(Object value, JsonAppender jsonAppender, List<Object> path) {
+			if ( value == null ) {
+				jsonAppender.append( "null" );
+				return;
+			}
+
+			final LazyInitializer lazyInitializer = HibernateProxy.extractLazyInitializer( value );
+			if ( lazyInitializer != null ) {
+				if ( lazyInitializer.isUninitialized() ) {
+					final EntityMappingType concreteType = factory.getMappingMetamodel()
+							.getEntityDescriptor( lazyInitializer.getEntityName() );
+					entityWriter0( concreteType ).writeReference( lazyInitializer.getInternalIdentifier(), jsonAppender );
+					return;
+				}
+				value = lazyInitializer.getImplementation();
+			}
+
+			final EntityWriter concreteWriter = value.getClass() == javaTypeClass ?
+					this :
+					entityWriter0( factory.getMappingMetamodel().getEntityDescriptor( value.getClass() ) );
+			concreteWriter.writeEntity( value, jsonAppender, path );
+		}
+
+		private void writeEntity(Object entity, JsonAppender jsonAppender, List<Object> path) {
+			final Object id = identifierMapping.getIdentifier( entity );
+			if ( !Hibernate.isInitialized( entity ) || path != null && containsInstance( path, entity ) ) {
+				writeReference( id, jsonAppender );
+				return;
+			}
+
+			final List<Object> entityPath = path != null ? path : new ArrayList<>( 4 );
+			entityPath.add( entity );
+			jsonAppender.append( identifierPrefix );
+			identifierWriter.write( id, jsonAppender, entityPath );
+			for ( AttributeWriter attributeWriter : attributeWriters ) {
+				attributeWriter.write( entity, jsonAppender, entityPath );
+			}
+			jsonAppender.append( '}' );
+			entityPath.removeLast();
+		}
+
+		private void writeReference(Object id, JsonAppender jsonAppender) {
+			appendString( referencePrefix + id, jsonAppender );
+		}
+	}
+
+	private static boolean containsInstance(List<Object> path, Object entity) {
+		for ( Object element : path ) {
+			if ( element == entity ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private class EntityReferenceWriter implements PartWriter {
+		private final EntityMappingType entityMappingType;
+		private EntityWriter writer;
+
+		private EntityReferenceWriter(EntityMappingType entityMappingType) {
+			this.entityMappingType = entityMappingType;
+		}
+
+		@Override
+		public void write(Object value, JsonAppender jsonAppender, List<Object> path) {
+			EntityWriter writer = this.writer;
+			if ( writer == null ) {
+				// writers are immutable, racing threads resolve the same instance
+				this.writer = writer = entityWriter0( entityMappingType );
+			}
+			writer.write( value, jsonAppender, path );
+		}
+	}
+
+	private class EmbeddableWriter implements PartWriter {
+		private final AttributeWriter[] attributeWriters;
+
+		private EmbeddableWriter(EmbeddableMappingType embeddableMappingType) {
+			final List<AttributeMapping> attributes = new ArrayList<>( embeddableMappingType.getNumberOfAttributeMappings() );
+			for ( int i = 0; i < embeddableMappingType.getNumberOfAttributeMappings(); i++ ) {
+				attributes.add( embeddableMappingType.getAttributeMapping( i ) );
+			}
+			this.attributeWriters = attributeWriters( attributes, '{' );
+		}
+
+		@Override
+		public void write(Object value, JsonAppender jsonAppender, List<Object> path) {
+			if ( value == null ) {
+				jsonAppender.append( "null" );
+				return;
+			}
+			if ( attributeWriters.length == 0 ) {
+				jsonAppender.append( '{' );
+			}
+			for ( AttributeWriter attributeWriter : attributeWriters ) {
+				attributeWriter.write( value, jsonAppender, path );
+			}
+			jsonAppender.append( '}' );
+		}
+	}
+
+	private record PluralWriter(PartWriter elementWriter) implements PartWriter {
+		@Override
+		public void write(Object value, JsonAppender jsonAppender, List<Object> path) {
+			if ( value == null ) {
+				jsonAppender.append( "null" );
+			}
+			else if ( value instanceof PersistentCollection<?> collection && !collection.wasInitialized() ) {
+				jsonAppender.append( "\"<uninitialized>\"" );
+			}
+			else if ( value instanceof Map<?, ?> map ) {
+				char separator = '{';
+				for ( Map.Entry<?, ?> entry : map.entrySet() ) {
+					jsonAppender.append( separator );
+					appendString( String.valueOf( entry.getKey() ), jsonAppender );
+					jsonAppender.append( ':' );
+					elementWriter.write( entry.getValue(), jsonAppender, path );
+					separator = ',';
+				}
+				if ( separator == '{' ) {
+					jsonAppender.append( '{' );
+				}
+				jsonAppender.append( '}' );
+			}
+			else if ( value instanceof Collection<?> collection ) {
+				char separator = '[';
+				for ( Object element : collection ) {
+					jsonAppender.append( separator );
+					elementWriter.write( element, jsonAppender, path );
+					separator = ',';
+				}
+				if ( separator == '[' ) {
+					jsonAppender.append( '[' );
+				}
+				jsonAppender.append( ']' );
+			}
+			else {
+				elementWriter.write( value, jsonAppender, path );
+			}
+		}
+	}
+}
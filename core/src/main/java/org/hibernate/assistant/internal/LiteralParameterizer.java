@@ -0,0 +1,182 @@
+package org.hibernate.assistant.internal;
+
+import org.hibernate.grammars.hql.HqlLexer;
+import org.hibernate.query.hql.internal.HqlParseTreeBuilder;
+
+import org.antlr.v4.runtime.Token;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Replaces the literals of generated HQL queries with named parameters. Queries generated by the LLM never
+ * contain parameters, so each distinct literal value would otherwise produce a distinct query string, i.e. its
+ * own entry in Hibernate's query plan cache and its own prepared statement: with the literals lifted, structurally
+ * identical questions share a single interpretation and SQL statement.
+ * <p>
+ * Only literals whose type can be inferred from the other operand are lifted: the right-hand side of comparisons
+ * and {@code like} patterns, {@code between} bounds and the elements of {@code in} lists. Literals appearing
+ * in other positions, e.g. in the select clause, in arithmetic expressions or as function arguments, are
+ * left untouched, as are queries that already declare parameters.
+ * <p>
+ * The query is processed using Hibernate's own HQL lexer, so literals are recognized exactly as the parser does.
+ */
+public class LiteralParameterizer {
+	private static final String PARAMETER_PREFIX = "p";
+
+	private static final Set<Integer> COMPARISON_OPERATORS = Set.of(
+			HqlLexer.EQUAL,
+			HqlLexer.NOT_EQUAL,
+			HqlLexer.GREATER,
+			HqlLexer.GREATER_EQUAL,
+			HqlLexer.LESS,
+			HqlLexer.LESS_EQUAL,
+			HqlLexer.LIKE,
+			HqlLexer.ILIKE,
+			HqlLexer.BETWEEN
+	);
+
+	/**
+	 * Tokens which can follow a complete operand: a literal followed by anything else, e.g. an arithmetic
+	 * operator or a temporal unit, is part of a larger expression.
+	 */
+	private static final Set<Integer> OPERAND_TERMINATORS = Set.of(
+			Token.EOF,
+			HqlLexer.AND,
+			HqlLexer.OR,
+			HqlLexer.RIGHT_PAREN,
+			HqlLexer.COMMA,
+			HqlLexer.ESCAPE,
+			HqlLexer.WHEN,
+			HqlLexer.THEN,
+			HqlLexer.ELSE,
+			HqlLexer.END,
+			HqlLexer.GROUP,
+			HqlLexer.HAVING,
+			HqlLexer.ORDER,
+			HqlLexer.LIMIT,
+			HqlLexer.OFFSET,
+			HqlLexer.FETCH,
+			HqlLexer.UNION,
+			HqlLexer.INTERSECT,
+			HqlLexer.EXCEPT
+	);
+
+	/**
+	 * The result of parameterizing a query.
+	 *
+	 * @param hql the query string, unchanged if no literal was lifted
+	 * @param parameters the values of the named parameters, in order of appearance
+	 */
+	public record ParameterizedHql(String hql, Map<String, Object> parameters) {
+	}
+
+	/**
+	 * @param hql the query
+	 *
+	 * @return the query with its literals replaced by named parameters, and the values of the parameters
+	 */
+	public static ParameterizedHql parameterize(String hql) {
+		final List<Token> tokens = new ArrayList<>();
+		for ( Token token : HqlParseTreeBuilder.INSTANCE.buildHqlLexer( hql ).getAllTokens() ) {
+			if ( token.getChannel() == Token.DEFAULT_CHANNEL ) {
+				if ( token.getType() == HqlLexer.COLON || token.getType() == HqlLexer.QUESTION_MARK ) {
+					// don't mix lifted literals with existing parameters
+					return new ParameterizedHql( hql, Map.of() );
+				}
+				tokens.add( token );
+			}
+		}
+
+		final StringBuilder sb = new StringBuilder( hql.length() );
+		final Map<String, Object> parameters = new LinkedHashMap<>();
+		int position = 0;
+		int depth = 0;
+		// the parenthesis depth of the current in list, if any
+		int listDepth = -1;
+		boolean betweenBound = false;
+		for ( int i = 0; i < tokens.size(); i++ ) {
+			final Token token = tokens.get( i );
+			final int previous = type( tokens, i - 1 );
+			final int next = type( tokens, i + 1 );
+			if ( token.getType() == HqlLexer.LEFT_PAREN ) {
+				depth++;
+				if ( previous == HqlLexer.IN && next != HqlLexer.SELECT && next != HqlLexer.FROM ) {
+					listDepth = depth;
+				}
+			}
+			else if ( token.getType() == HqlLexer.RIGHT_PAREN ) {
+				if ( depth == listDepth ) {
+					listDepth = -1;
+				}
+				depth--;
+			}
+
+			final Object value = value( token );
+			final boolean lift = value != null && OPERAND_TERMINATORS.contains( next ) && (
+					depth == listDepth && ( previous == HqlLexer.LEFT_PAREN || previous == HqlLexer.COMMA )
+							|| betweenBound && previous == HqlLexer.AND
+							|| COMPARISON_OPERATORS.contains( previous ) && value( tokens, i - 2 ) == null );
+			if ( lift ) {
+				final String name = PARAMETER_PREFIX + ( parameters.size() + 1 );
+				parameters.put( name, value );
+				sb.append( hql, position, token.getStartIndex() ).append( ':' ).append( name );
+				position = token.getStopIndex() + 1;
+			}
+			// the upper bound of a between predicate is lifted only if the lower one was
+			betweenBound = lift ?
+					previous == HqlLexer.BETWEEN :
+					betweenBound && token.getType() == HqlLexer.AND;
+		}
+
+		if ( parameters.isEmpty() ) {
+			return new ParameterizedHql( hql, Map.of() );
+		}
+		sb.append( hql, position, hql.length() );
+		return new ParameterizedHql( sb.toString(), parameters );
+	}
+
+	private static int type(List<Token> tokens, int index) {
+		return index >= 0 && index < tokens.size() ? tokens.get( index ).getType() : Token.EOF;
+	}
+
+	private static Object value(List<Token> tokens, int index) {
+		return index >= 0 && index < tokens.size() ? value( tokens.get( index ) ) : null;
+	}
+
+	/**
+	 * @return the value of the literal token, or {@code null} if it's not a literal that can be lifted
+	 */
+	private static Object value(Token token) {
+		final String text = token.getText().replace( "_", "" );
+		try {
+			return switch ( token.getType() ) {
+				case HqlLexer.STRING_LITERAL -> text.indexOf( '\\' ) < 0 ?
+						token.getText().substring( 1, token.getText().length() - 1 ).replace( "''", "'" ) :
+						null;
+				case HqlLexer.INTEGER_LITERAL -> {
+					final long value = Long.parseLong( text );
+					yield value == (int) value ? (Object) (int) value : (Object) value;
+				}
+				case HqlLexer.LONG_LITERAL -> Long.parseLong( stripSuffix( text, 1 ) );
+				case HqlLexer.FLOAT_LITERAL -> Float.parseFloat( stripSuffix( text, 1 ) );
+				case HqlLexer.DOUBLE_LITERAL -> Double.parseDouble( text );
+				case HqlLexer.BIG_INTEGER_LITERAL -> new BigInteger( stripSuffix( text, 2 ) );
+				case HqlLexer.BIG_DECIMAL_LITERAL -> new BigDecimal( stripSuffix( text, 2 ) );
+				default -> null;
+			};
+		}
+		catch (NumberFormatException e) {
+			// e.g. hexadecimal or octal notations
+			return null;
+		}
+	}
+
+	private static String stripSuffix(String text, int length) {
+		return text.substring( 0, text.length() - length );
+	}
+}
@@ -0,0 +1,35 @@
+package org.hibernate.assistant.internal;
+
+import jakarta.persistence.metamodel.ManagedType;
+import jakarta.persistence.metamodel.Metamodel;
+import java.util.Collection;
+
+/**
+ * The format used to describe the domain model to the LLM.
+ */
+public enum MetamodelPromptFormat {
+	/**
+	 * JSON objects describing each managed type and its attributes, using fully qualified type names.
+	 *
+	 * @see AssistantUtils#getDomainModelPrompt(Metamodel)
+	 */
+	JSON,
+	/**
+	 * A dense, token-efficient notation with one line per managed type and short type names, e.g.
+	 * {@code Company(id:long, name:String, address:Address) -> employees:List<Employee>}.
+	 *
+	 * @see AssistantUtils#getCompactDomainModelPrompt(Metamodel)
+	 */
+	COMPACT;
+
+	public String getDomainModelPrompt(Metamodel metamodel) {
+		return getDomainModelPrompt( metamodel.getManagedTypes() );
+	}
+
+	public String getDomainModelPrompt(Collection<? extends ManagedType<?>> managedTypes) {
+		return switch ( this ) {
+			case JSON -> AssistantUtils.getDomainModelPrompt( managedTypes );
+			case COMPACT -> AssistantUtils.getCompactDomainModelPrompt( managedTypes );
+		};
+	}
+}
@@ -0,0 +1,445 @@
+package org.hibernate.assistant.internal;
+
+import org.hibernate.SharedSessionContract;
+import org.hibernate.assistant.AiQueryRejectedException;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.SelectionQuery;
+import org.hibernate.query.spi.DomainQueryExecutionContext;
+import org.hibernate.query.spi.QueryOptions;
+import org.hibernate.query.sqm.SqmSelectionQuery;
+import org.hibernate.query.sqm.internal.DomainParameterXref;
+import org.hibernate.query.sqm.spi.BaseSemanticQueryWalker;
+import org.hibernate.query.sqm.tree.domain.SqmBasicValuedSimplePath;
+import org.hibernate.query.sqm.tree.domain.SqmCorrelation;
+import org.hibernate.query.sqm.tree.domain.SqmEmbeddedValuedSimplePath;
+import org.hibernate.query.sqm.tree.domain.SqmEntityValuedSimplePath;
+import org.hibernate.query.sqm.tree.domain.SqmPath;
+import org.hibernate.query.sqm.tree.domain.SqmPluralValuedSimplePath;
+import org.hibernate.query.sqm.tree.domain.SqmTreatedPath;
+import org.hibernate.query.sqm.tree.from.SqmAttributeJoin;
+import org.hibernate.query.sqm.tree.from.SqmCrossJoin;
+import org.hibernate.query.sqm.tree.from.SqmEntityJoin;
+import org.hibernate.query.sqm.tree.from.SqmFrom;
+import org.hibernate.query.sqm.tree.from.SqmJoin;
+import org.hibernate.query.sqm.tree.from.SqmRoot;
+import org.hibernate.query.sqm.tree.predicate.SqmJunctionPredicate;
+import org.hibernate.query.sqm.tree.predicate.SqmPredicate;
+import org.hibernate.query.sqm.tree.select.SqmQueryGroup;
+import org.hibernate.query.sqm.tree.select.SqmQueryPart;
+import org.hibernate.query.sqm.tree.select.SqmQuerySpec;
+import org.hibernate.query.sqm.tree.select.SqmSelectStatement;
+import org.hibernate.sql.ast.tree.select.SelectStatement;
+import org.hibernate.sql.exec.spi.JdbcOperationQuerySelect;
+import org.hibernate.sql.exec.spi.JdbcParameterBindings;
+
+import org.jboss.logging.Logger;
+
+import jakarta.persistence.criteria.Predicate;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Checks queries generated by the LLM before they are executed, to protect the database from runaway queries.
+ * The following rules can be configured:
+ * <ul>
+ *     <li>unconstrained joins, which result in cartesian products, can be rejected: cross joins, multiple roots
+ *     and entity joins must be connected to the rest of the {@code from} clause by an {@code on} condition or
+ *     a conjunct of the {@code where} clause referencing both sides, e.g. {@code e.company = c}. Only the
+ *     references are checked, not what the predicates compare;</li>
+ *     <li>a maximum number of results can be made mandatory: queries without a limit, or with a higher one,
+ *     are either rejected or rewritten applying the limit through {@link SelectionQuery#setMaxResults(int)},
+ *     depending on the configured {@link Action}. Both the limit set on the query and the one in its text
+ *     are considered, and rewriting keeps the {@code offset} of the query;</li>
+ *     <li>a maximum number of estimated rows read by the query can be enforced. The query is translated to SQL
+ *     and the estimate is obtained from the database's {@code EXPLAIN} output: currently only H2 is supported,
+ *     on other databases this rule is not checked. Since reading rows can't be avoided by rewriting the query,
+ *     queries exceeding the estimate are always rejected.</li>
+ * </ul>
+ */
+public class QueryGuard {
+	private static final Logger log = Logger.getLogger( QueryGuard.class );
+
+	private static final Pattern H2_TABLE_SCAN = Pattern.compile( "/\\* ([^.\\s]+)\\.([^.\\s]+)\\.tableScan \\*/" );
+
+	/**
+	 * What to do with a query that breaks a rule, when it can be rewritten.
+	 */
+	public enum Action {
+		REJECT,
+		REWRITE
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public static class Builder {
+		private long maxEstimatedRows;
+		private boolean rejectUnconstrainedJoins = true;
+		private int maxResults;
+		private Action action = Action.REWRITE;
+
+		private Builder() {
+		}
+
+		/**
+		 * @param maxEstimatedRows the maximum number of rows the database estimates the query reads,
+		 * {@code 0} (the default) disables this rule
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder maxEstimatedRows(long maxEstimatedRows) {
+			this.maxEstimatedRows = maxEstimatedRows;
+			return this;
+		}
+
+		/**
+		 * @param rejectUnconstrainedJoins whether to reject queries containing unconstrained joins,
+		 * {@code true} by default
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder rejectUnconstrainedJoins(boolean rejectUnconstrainedJoins) {
+			this.rejectUnconstrainedJoins = rejectUnconstrainedJoins;
+			return this;
+		}
+
+		/**
+		 * @param maxResults the mandatory maximum number of results of queries,
+		 * {@code 0} (the default) disables this rule
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder maxResults(int maxResults) {
+			this.maxResults = maxResults;
+			return this;
+		}
+
+		/**
+		 * @param action what to do with queries breaking a rule that can be rewritten,
+		 * {@link Action#REWRITE} by default
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder action(Action action) {
+			this.action = action;
+			return this;
+		}
+
+		public QueryGuard build() {
+			return new QueryGuard( this );
+		}
+	}
+
+	private final long maxEstimatedRows;
+	private final boolean rejectUnconstrainedJoins;
+	private final int maxResults;
+	private final Action action;
+
+	private QueryGuard(Builder builder) {
+		this.maxEstimatedRows = builder.maxEstimatedRows;
+		this.rejectUnconstrainedJoins = builder.rejectUnconstrainedJoins;
+		this.maxResults = builder.maxResults;
+		this.action = builder.action == null ? Action.REWRITE : builder.action;
+	}
+
+	/**
+	 * @return the maximum number of results of a query, {@code 0} if not limited
+	 */
+	public int getMaxResults() {
+		return maxResults;
+	}
+
+	/**
+	 * Checks the given query against the configured rules, possibly rewriting it.
+	 *
+	 * @param query the query to check
+	 * @param session the session the query will be executed in
+	 *
+	 * @throws AiQueryRejectedException if the query breaks one of the rules and could not be rewritten
+	 */
+	public void check(SelectionQuery<?> query, SharedSessionContract session) {
+		final SqmSelectStatement<?> sqm = (SqmSelectStatement<?>) ( (SqmSelectionQuery<?>) query ).getSqmStatement();
+
+		if ( rejectUnconstrainedJoins && hasUnconstrainedJoins( sqm.getQueryPart() ) ) {
+			throw new AiQueryRejectedException( "Query contains unconstrained joins, which result in cartesian products" );
+		}
+
+		if ( maxResults > 0 ) {
+			final int limit = QueryPaginator.getMaxResults( query );
+			if ( limit < 0 || limit > maxResults ) {
+				if ( action == Action.REJECT ) {
+					throw new AiQueryRejectedException( "Query must not return more than " + maxResults + " results" );
+				}
+				log.debugf( "Limiting AI query results to %d", maxResults );
+				QueryPaginator.limitMaxResults( query, maxResults );
+			}
+		}
+
+		if ( maxEstimatedRows > 0 ) {
+			final long estimatedRows = estimateRows( sqm, (DomainQueryExecutionContext) query, session );
+			if ( estimatedRows > maxEstimatedRows ) {
+				throw new AiQueryRejectedException( "Query is estimated to read " + estimatedRows
+															+ " rows, more than the maximum of " + maxEstimatedRows );
+			}
+		}
+	}
+
+	private static boolean hasUnconstrainedJoins(SqmQueryPart<?> queryPart) {
+		if ( queryPart instanceof SqmQueryGroup<?> group ) {
+			return group.getQueryParts().stream().anyMatch( QueryGuard::hasUnconstrainedJoins );
+		}
+		final SqmQuerySpec<?> querySpec = (SqmQuerySpec<?>) queryPart;
+		final JoinGraph graph = new JoinGraph();
+		final List<SqmPredicate> predicates = new ArrayList<>();
+		for ( SqmRoot<?> root : querySpec.getFromClause().getRoots() ) {
+			graph.add( root, predicates );
+		}
+		if ( querySpec.getRestriction() != null ) {
+			predicates.add( querySpec.getRestriction() );
+		}
+		for ( SqmPredicate predicate : predicates ) {
+			for ( SqmPredicate conjunct : conjuncts( predicate, new ArrayList<>() ) ) {
+				final FromCollector collector = new FromCollector();
+				conjunct.accept( collector );
+				graph.connect( collector.froms );
+			}
+		}
+		return !graph.isConnected();
+	}
+
+	private static List<SqmPredicate> conjuncts(SqmPredicate predicate, List<SqmPredicate> conjuncts) {
+		if ( predicate instanceof SqmJunctionPredicate junction
+				&& junction.getOperator() == Predicate.BooleanOperator.AND && !junction.isNegated() ) {
+			junction.getPredicates().forEach( p -> conjuncts( p, conjuncts ) );
+		}
+		else {
+			conjuncts.add( predicate );
+		}
+		return conjuncts;
+	}
+
+	/**
+	 * The nodes of the {@code from} clause of a query, grouped by the ones joined through associations or
+	 * predicates referencing them, with a union-find structure.
+	 */
+	private static class JoinGraph {
+		private final Map<SqmFrom<?, ?>, SqmFrom<?, ?>> parents = new IdentityHashMap<>();
+
+		void add(SqmFrom<?, ?> from, List<SqmPredicate> predicates) {
+			parents.put( from, from );
+			for ( SqmJoin<?, ?> join : from.getSqmJoins() ) {
+				add( join, predicates );
+				if ( join instanceof SqmCrossJoin<?> || join instanceof SqmEntityJoin<?, ?> ) {
+					// only joined by the on condition, if any
+					if ( join.getJoinPredicate() != null ) {
+						predicates.add( join.getJoinPredicate() );
+					}
+				}
+				else {
+					union( from, join );
+				}
+			}
+		}
+
+		void connect(List<SqmFrom<?, ?>> froms) {
+			SqmFrom<?, ?> previous = null;
+			for ( SqmFrom<?, ?> from : froms ) {
+				final SqmFrom<?, ?> node = resolve( from );
+				if ( node != null ) {
+					if ( previous != null ) {
+						union( previous, node );
+					}
+					previous = node;
+				}
+			}
+		}
+
+		boolean isConnected() {
+			SqmFrom<?, ?> component = null;
+			for ( SqmFrom<?, ?> from : parents.keySet() ) {
+				final SqmFrom<?, ?> root = find( from );
+				if ( component == null ) {
+					component = root;
+				}
+				else if ( component != root ) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * @return the node of the given path source, {@code null} if it's defined by a subquery
+		 */
+		private SqmFrom<?, ?> resolve(SqmFrom<?, ?> from) {
+			SqmFrom<?, ?> node = from;
+			while ( !parents.containsKey( node ) ) {
+				if ( node instanceof SqmCorrelation<?, ?> correlation
+						&& correlation.getWrappedPath() instanceof SqmFrom<?, ?> correlated ) {
+					node = correlated;
+				}
+				else {
+					return null;
+				}
+			}
+			return node;
+		}
+
+		private SqmFrom<?, ?> find(SqmFrom<?, ?> from) {
+			SqmFrom<?, ?> root = from;
+			while ( parents.get( root ) != root ) {
+				root = parents.get( root );
+			}
+			return root;
+		}
+
+		private void union(SqmFrom<?, ?> first, SqmFrom<?, ?> second) {
+			parents.put( find( first ), find( second ) );
+		}
+	}
+
+	/**
+	 * Collects the {@code from} clause nodes referenced by the paths of a predicate, including subqueries.
+	 */
+	private static class FromCollector extends BaseSemanticQueryWalker {
+		private final List<SqmFrom<?, ?>> froms = new ArrayList<>();
+
+		private Object collect(SqmPath<?> path) {
+			for ( SqmPath<?> node = path; node != null; node = node.getLhs() ) {
+				if ( node instanceof SqmFrom<?, ?> from ) {
+					froms.add( from );
+					break;
+				}
+			}
+			return path;
+		}
+
+		@Override
+		public Object visitRootPath(SqmRoot<?> sqmRoot) {
+			collect( sqmRoot );
+			return super.visitRootPath( sqmRoot );
+		}
+
+		@Override
+		public Object visitQualifiedEntityJoin(SqmEntityJoin<?, ?> joinedFromElement) {
+			collect( joinedFromElement );
+			return super.visitQualifiedEntityJoin( joinedFromElement );
+		}
+
+		@Override
+		public Object visitQualifiedAttributeJoin(SqmAttributeJoin<?, ?> joinedFromElement) {
+			collect( joinedFromElement );
+			return super.visitQualifiedAttributeJoin( joinedFromElement );
+		}
+
+		@Override
+		public Object visitCrossJoin(SqmCrossJoin<?> joinedFromElement) {
+			collect( joinedFromElement );
+			return super.visitCrossJoin( joinedFromElement );
+		}
+
+		@Override
+		public Object visitBasicValuedPath(SqmBasicValuedSimplePath<?> path) {
+			return collect( path );
+		}
+
+		@Override
+		public Object visitEmbeddableValuedPath(SqmEmbeddedValuedSimplePath<?> path) {
+			return collect( path );
+		}
+
+		@Override
+		public Object visitEntityValuedPath(SqmEntityValuedSimplePath<?> path) {
+			return collect( path );
+		}
+
+		@Override
+		public Object visitPluralValuedPath(SqmPluralValuedSimplePath<?> path) {
+			return collect( path );
+		}
+
+		@Override
+		public Object visitTreatedPath(SqmTreatedPath<?, ?> sqmTreatedPath) {
+			return collect( sqmTreatedPath.getWrappedPath() );
+		}
+	}
+
+	/**
+	 * @return the number of rows the database estimates the query reads, or {@code -1} if not available
+	 */
+	private static long estimateRows(
+			SqmSelectStatement<?> sqm,
+			DomainQueryExecutionContext executionContext,
+			SharedSessionContract session) {
+		final SessionFactoryImplementor factory = executionContext.getSession().getFactory();
+		final Dialect dialect = factory.getJdbcServices().getDialect();
+		if ( !( dialect instanceof H2Dialect ) ) {
+			log.debugf( "Estimating the rows read by queries is not supported for %s", dialect );
+			return -1;
+		}
+
+		final JdbcOperationQuerySelect select = toSql( sqm, executionContext, factory );
+		final String plan = session.doReturningWork( connection -> {
+			try (PreparedStatement statement = connection.prepareStatement( "explain " + select.getSqlString() )) {
+				// the plan doesn't depend on the values of parameters, e.g. lifted literals
+				for ( int i = 1; i <= select.getParameterBinders().size(); i++ ) {
+					statement.setObject( i, null );
+				}
+				final StringBuilder sb = new StringBuilder();
+				try (ResultSet resultSet = statement.executeQuery()) {
+					while ( resultSet.next() ) {
+						sb.append( resultSet.getString( 1 ) ).append( '\n' );
+					}
+				}
+				return sb.toString();
+			}
+		} );
+
+		// with nested loops, the number of rows read is the product of the sizes of the scanned tables
+		long estimatedRows = 1;
+		final Matcher matcher = H2_TABLE_SCAN.matcher( plan );
+		while ( matcher.find() ) {
+			final Long rows = session.createNativeQuery(
+							"select row_count_estimate from information_schema.tables where table_schema = ?1 and table_name = ?2",
+							Long.class
+					)
+					.setParameter( 1, matcher.group( 1 ) )
+					.setParameter( 2, matcher.group( 2 ) )
+					.getSingleResultOrNull();
+			if ( rows != null && rows > 0 ) {
+				// saturate instead of overflowing, the query is rejected anyway
+				estimatedRows = estimatedRows > Long.MAX_VALUE / rows ? Long.MAX_VALUE : estimatedRows * rows;
+			}
+		}
+		log.debugf( "Estimated rows read by query: %d", estimatedRows );
+		return estimatedRows;
+	}
+
+	private static JdbcOperationQuerySelect toSql(
+			SqmSelectStatement<?> sqm,
+			DomainQueryExecutionContext executionContext,
+			SessionFactoryImplementor factory) {
+		// translate without limits, the estimate concerns the rows read by the whole query
+		final SelectStatement sqlAst = factory.getQueryEngine().getSqmTranslatorFactory().createSelectTranslator(
+				sqm,
+				QueryOptions.NONE,
+				DomainParameterXref.from( sqm ),
+				executionContext.getQueryParameterBindings(),
+				executionContext.getSession().getLoadQueryInfluencers(),
+				factory.getSqlTranslationEngine(),
+				false
+		).translate().getSqlAst();
+		return factory.getJdbcServices().getJdbcEnvironment().getSqlAstTranslatorFactory()
+				.buildSelectTranslator( factory, sqlAst )
+				.translate( JdbcParameterBindings.NO_BINDINGS, QueryOptions.NONE );
+	}
+}
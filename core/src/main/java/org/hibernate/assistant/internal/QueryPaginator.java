@@ -0,0 +1,394 @@
+package org.hibernate.assistant.internal;
+
+import org.hibernate.SharedSessionContract;
+import org.hibernate.assistant.AiQueryPage;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metamodel.mapping.BasicEntityIdentifierMapping;
+import org.hibernate.metamodel.mapping.EntityIdentifierMapping;
+import org.hibernate.query.SelectionQuery;
+import org.hibernate.query.common.FetchClauseType;
+import org.hibernate.query.spi.DomainQueryExecutionContext;
+import org.hibernate.query.spi.QueryParameterBinding;
+import org.hibernate.query.spi.QueryParameterBindings;
+import org.hibernate.query.sqm.NodeBuilder;
+import org.hibernate.query.sqm.SqmQuerySource;
+import org.hibernate.query.sqm.SqmSelectionQuery;
+import org.hibernate.query.sqm.tree.SqmCopyContext;
+import org.hibernate.query.sqm.tree.SqmTypedNode;
+import org.hibernate.query.sqm.tree.domain.SqmPath;
+import org.hibernate.query.sqm.tree.domain.SqmSingularJoin;
+import org.hibernate.query.sqm.tree.expression.SqmAggregateFunction;
+import org.hibernate.query.sqm.tree.expression.SqmBinaryArithmetic;
+import org.hibernate.query.sqm.tree.expression.SqmExpression;
+import org.hibernate.query.sqm.tree.expression.SqmFunction;
+import org.hibernate.query.sqm.tree.expression.SqmLiteral;
+import org.hibernate.query.sqm.tree.expression.SqmParameter;
+import org.hibernate.query.sqm.tree.expression.SqmUnaryOperation;
+import org.hibernate.query.sqm.tree.from.SqmFrom;
+import org.hibernate.query.sqm.tree.from.SqmJoin;
+import org.hibernate.query.sqm.tree.from.SqmRoot;
+import org.hibernate.query.sqm.tree.predicate.SqmPredicate;
+import org.hibernate.query.sqm.tree.select.SqmQueryPart;
+import org.hibernate.query.sqm.tree.select.SqmQuerySpec;
+import org.hibernate.query.sqm.tree.select.SqmSelectStatement;
+import org.hibernate.query.sqm.tree.select.SqmSelectableNode;
+import org.hibernate.query.sqm.tree.select.SqmSelection;
+
+import org.jboss.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Retrieves the results of a {@link SelectionQuery} one page at a time. Whenever possible, pages are restricted
+ * by key: the query is ordered by the identifier of its root entity, and each page only includes results whose
+ * identifier is greater than the last one of the previous page, so that retrieving deep pages is as fast as
+ * retrieving the first one. The identifier is added to the selection of the paginated query and removed from
+ * the results.
+ * <p>
+ * Queries which can't be paginated by key, e.g. because they define their own ordering, aggregate or group results,
+ * join collections or define their own {@code limit} or {@code offset}, fall back to skipping results by position
+ * through {@link SelectionQuery#setFirstResult(int)}. Since the position and number of results set on a query
+ * replace those in its text, the latter are removed from the copy and combined with the position of the page.
+ * <p>
+ * Pages never include results past a maximum position, e.g. the maximum number of results enforced
+ * by a {@link QueryGuard}. The original query is never modified, each page is retrieved through a copy of
+ * its SQM tree.
+ */
+public class QueryPaginator {
+	private static final Logger log = Logger.getLogger( QueryPaginator.class );
+
+	/**
+	 * Retrieves the first page of results of the given query.
+	 *
+	 * @param query the query
+	 * @param session the session in which to execute the query
+	 * @param pageSize the maximum number of results of the page
+	 * @param maxResults the maximum number of results across all pages, {@link Integer#MAX_VALUE} for no limit
+	 *
+	 * @return the first page of results
+	 */
+	public static <T> AiQueryPage<T> firstPage(
+			SelectionQuery<T> query,
+			SharedSessionContract session,
+			int pageSize,
+			int maxResults) {
+		return page( query, session, pageSize, maxResults, 0, null );
+	}
+
+	/**
+	 * Retrieves the page of results following the given one.
+	 *
+	 * @param page the previous page
+	 * @param session the session in which to execute the query
+	 * @param pageSize the maximum number of results of the page
+	 * @param maxResults the maximum number of results across all pages, {@link Integer#MAX_VALUE} for no limit
+	 *
+	 * @return the next page of results, empty if the given page was the last one
+	 */
+	public static <T> AiQueryPage<T> nextPage(
+			AiQueryPage<T> page,
+			SharedSessionContract session,
+			int pageSize,
+			int maxResults) {
+		final int firstResult = page.firstResult() + page.results().size();
+		if ( !page.hasNextPage() ) {
+			return new AiQueryPage<>( page.query(), List.of(), firstResult, page.lastKey(), false );
+		}
+		return page( page.query(), session, pageSize, maxResults, firstResult, page.lastKey() );
+	}
+
+	/**
+	 * Returns the maximum number of results of a query, either set through {@link SelectionQuery#setMaxResults(int)}
+	 * or defined by the {@code limit} in its text. The position and number of results set on a query replace
+	 * those in its text, see {@link #limitMaxResults(SelectionQuery, int)}.
+	 *
+	 * @param query the query
+	 *
+	 * @return the maximum number of results, {@link Integer#MAX_VALUE} for no limit,
+	 * or {@code -1} if the limit is not known, e.g. a percentage or an unbound parameter
+	 */
+	public static int getMaxResults(SelectionQuery<?> query) {
+		if ( hasLimitOptions( query ) ) {
+			return query.getMaxResults();
+		}
+		final SqmQueryPart<?> queryPart = sqmStatement( query ).getQueryPart();
+		if ( queryPart.getFetchExpression() != null && queryPart.getFetchClauseType() != FetchClauseType.ROWS_ONLY ) {
+			return -1;
+		}
+		return intValue( queryPart.getFetchExpression(), query, Integer.MAX_VALUE );
+	}
+
+	/**
+	 * Limits the number of results of a query, if it doesn't already return fewer. Since the position and number
+	 * of results set on a query replace those in its text, the {@code offset} in the text is kept by setting
+	 * it as the {@linkplain SelectionQuery#setFirstResult(int) first result}.
+	 *
+	 * @param query the query
+	 * @param maxResults the maximum number of results
+	 */
+	public static void limitMaxResults(SelectionQuery<?> query, int maxResults) {
+		final int limit = getMaxResults( query );
+		if ( limit >= 0 && limit <= maxResults ) {
+			return;
+		}
+		if ( !hasLimitOptions( query ) ) {
+			final int offset = intValue( sqmStatement( query ).getQueryPart().getOffsetExpression(), query, 0 );
+			if ( offset < 0 ) {
+				log.debugf( "The offset of the query is not known, it will be ignored" );
+			}
+			query.setFirstResult( Math.max( offset, 0 ) );
+		}
+		query.setMaxResults( maxResults );
+	}
+
+	private static boolean hasLimitOptions(SelectionQuery<?> query) {
+		return query.getFirstResult() != 0 || query.getMaxResults() != Integer.MAX_VALUE;
+	}
+
+	private static <T> AiQueryPage<T> page(
+			SelectionQuery<T> query,
+			SharedSessionContract session,
+			int pageSize,
+			int maxResults,
+			int firstResult,
+			Object lastKey) {
+		final SqmSelectStatement<T> sqm = sqmStatement( query );
+		final SqmQueryPart<T> queryPart = sqm.getQueryPart();
+		if ( queryPart.getOffsetExpression() != null || queryPart.getFetchExpression() != null ) {
+			final int offset = intValue( queryPart.getOffsetExpression(), query, 0 );
+			final int limit = intValue( queryPart.getFetchExpression(), query, Integer.MAX_VALUE );
+			if ( offset < 0 || limit < 0
+					|| queryPart.getFetchExpression() != null && queryPart.getFetchClauseType() != FetchClauseType.ROWS_ONLY ) {
+				log.debugf( "Query limits can't be combined with pagination, retrieving all results" );
+				return singlePage( query, session );
+			}
+			return offsetPage( query, session, pageSize, offset, Math.min( limit, maxResults ), firstResult );
+		}
+
+		final String keyName = keyName( sqm, (SessionFactoryImplementor) session.getFactory() );
+		if ( keyName == null ) {
+			return offsetPage( query, session, pageSize, 0, maxResults, firstResult );
+		}
+		final int remaining = maxResults - firstResult;
+		if ( remaining <= 0 ) {
+			return new AiQueryPage<>( query, List.of(), firstResult, lastKey, false );
+		}
+		final int limit = Math.min( pageSize, remaining );
+
+		final SqmSelectStatement<Object[]> keyed = sqm.createCopy( SqmCopyContext.simpleContext( SqmQuerySource.CRITERIA ), Object[].class );
+		final SqmQuerySpec<Object[]> querySpec = keyed.getQuerySpec();
+		final int selections = querySpec.getSelectClause().getSelections().size();
+		final NodeBuilder nodeBuilder = keyed.nodeBuilder();
+		final SqmPath<Object> key = querySpec.getFromClause().getRoots().getFirst().get( keyName );
+		querySpec.getSelectClause().add( key, null );
+		if ( lastKey != null ) {
+			final SqmPredicate restriction = querySpec.getRestriction();
+			final SqmPredicate keyPredicate = nodeBuilder.greaterThan( comparable( key ), comparable( lastKey ) );
+			keyed.where( restriction == null ? keyPredicate : nodeBuilder.and( restriction, keyPredicate ) );
+		}
+		keyed.orderBy( nodeBuilder.asc( key ) );
+
+		final SelectionQuery<Object[]> copy = session.createSelectionQuery( keyed );
+		copyParameters( query, copy );
+		final List<Object[]> rows = copy.setMaxResults( limit < remaining ? limit + 1 : limit ).getResultList();
+		final boolean hasNextPage = rows.size() > limit;
+		final int size = hasNextPage ? limit : rows.size();
+		final List<T> results = new ArrayList<>( size );
+		for ( int i = 0; i < size; i++ ) {
+			final Object[] row = rows.get( i );
+			//noinspection unchecked
+			results.add( (T) ( selections == 1 ? row[0] : Arrays.copyOf( row, selections ) ) );
+		}
+		return new AiQueryPage<>(
+				query,
+				results,
+				firstResult,
+				size > 0 ? rows.get( size - 1 )[selections] : lastKey,
+				hasNextPage
+		);
+	}
+
+	/**
+	 * Retrieves a page skipping the results of the previous ones.
+	 *
+	 * @param offset the position of the first result of the query, i.e. its own {@code offset}
+	 * @param maxResults the maximum number of results of the query after the offset
+	 */
+	private static <T> AiQueryPage<T> offsetPage(
+			SelectionQuery<T> query,
+			SharedSessionContract session,
+			int pageSize,
+			int offset,
+			int maxResults,
+			int firstResult) {
+		final int remaining = maxResults - firstResult;
+		if ( remaining <= 0 ) {
+			return new AiQueryPage<>( query, List.of(), firstResult, null, false );
+		}
+		log.debugf( "Query can't be paginated by key, skipping %d results", offset + firstResult );
+		final SqmSelectStatement<T> sqm = sqmStatement( query ).copy( SqmCopyContext.simpleContext( SqmQuerySource.CRITERIA ) );
+		sqm.getQueryPart().setOffsetExpression( null );
+		sqm.getQueryPart().setFetchExpression( null );
+		final SelectionQuery<T> copy = session.createSelectionQuery( sqm );
+		copyParameters( query, copy );
+		final int limit = Math.min( pageSize, remaining );
+		final List<T> results = copy.setFirstResult( offset + firstResult )
+				.setMaxResults( limit < remaining ? limit + 1 : limit )
+				.getResultList();
+		final boolean hasNextPage = results.size() > limit;
+		return new AiQueryPage<>(
+				query,
+				hasNextPage ? new ArrayList<>( results.subList( 0, limit ) ) : results,
+				firstResult,
+				null,
+				hasNextPage
+		);
+	}
+
+	private static <T> AiQueryPage<T> singlePage(SelectionQuery<T> query, SharedSessionContract session) {
+		final SelectionQuery<T> copy = session.createSelectionQuery(
+				sqmStatement( query ).copy( SqmCopyContext.simpleContext( SqmQuerySource.CRITERIA ) )
+		);
+		copyParameters( query, copy );
+		return new AiQueryPage<>( query, copy.getResultList(), 0, null, false );
+	}
+
+	/**
+	 * @return the value of a literal or parameter expression, {@code defaultValue} if there's no expression,
+	 * or {@code -1} if its value is not known
+	 */
+	private static int intValue(SqmExpression<? extends Number> expression, SelectionQuery<?> query, int defaultValue) {
+		if ( expression == null ) {
+			return defaultValue;
+		}
+		final Object value;
+		if ( expression instanceof SqmLiteral<?> literal ) {
+			value = literal.getLiteralValue();
+		}
+		else if ( expression instanceof SqmParameter<?> parameter ) {
+			final QueryParameterBindings bindings = ( (DomainQueryExecutionContext) query ).getQueryParameterBindings();
+			final QueryParameterBinding<?> binding = parameter.getName() != null ?
+					bindings.getBinding( parameter.getName() ) :
+					parameter.getPosition() != null ? bindings.getBinding( parameter.getPosition() ) : null;
+			value = binding != null && binding.isBound() ? binding.getBindValue() : null;
+		}
+		else {
+			value = null;
+		}
+		return value instanceof Number number && number.intValue() >= 0 ? number.intValue() : -1;
+	}
+
+	/**
+	 * @return the name of the identifier attribute to paginate the query by, or {@code null}
+	 * if the query can't be paginated by key
+	 */
+	private static String keyName(SqmSelectStatement<?> sqm, SessionFactoryImplementor factory) {
+		if ( !( sqm.getQueryPart() instanceof SqmQuerySpec<?> querySpec )
+				|| querySpec.getOrderByClause() != null && !querySpec.getOrderByClause().getSortSpecifications().isEmpty()
+				|| !querySpec.getGroupByClauseExpressions().isEmpty()
+				|| querySpec.getHavingClausePredicate() != null
+				|| querySpec.isDistinct()
+				|| querySpec.getFromClause().getRoots().size() != 1 ) {
+			return null;
+		}
+		final Class<?> resultType = sqm.getResultType();
+		if ( querySpec.getSelectClause().getSelections().size() > 1
+				&& resultType != null && resultType != Object[].class && resultType != Object.class ) {
+			// the results are instantiated from the selections, which can't be extended with the key
+			return null;
+		}
+		for ( SqmSelection<?> selection : querySpec.getSelectClause().getSelections() ) {
+			if ( isAggregate( selection.getSelectableNode() ) ) {
+				// all rows are aggregated into one, selecting the key would require grouping by it
+				return null;
+			}
+		}
+		final SqmRoot<?> root = querySpec.getFromClause().getRoots().getFirst();
+		if ( !hasOnlySingularJoins( root ) ) {
+			// joined collections would split the results of a single root entity across pages
+			return null;
+		}
+		final EntityIdentifierMapping identifierMapping = factory.getMappingMetamodel()
+				.getEntityDescriptor( root.getEntityName() )
+				.getIdentifierMapping();
+		return identifierMapping instanceof BasicEntityIdentifierMapping ?
+				identifierMapping.getAttributeName() :
+				null;
+	}
+
+	/**
+	 * @return whether the given selection aggregates rows, e.g. {@code count(*)} or {@code max(e.salary) / 2}
+	 */
+	private static boolean isAggregate(SqmTypedNode<?> node) {
+		if ( node instanceof SqmAggregateFunction<?> ) {
+			return true;
+		}
+		else if ( node instanceof SqmFunction<?> function ) {
+			return function.getArguments().stream().anyMatch( QueryPaginator::isAggregate );
+		}
+		else if ( node instanceof SqmBinaryArithmetic<?> arithmetic ) {
+			return isAggregate( arithmetic.getLeftHandOperand() ) || isAggregate( arithmetic.getRightHandOperand() );
+		}
+		else if ( node instanceof SqmUnaryOperation<?> operation ) {
+			return isAggregate( operation.getOperand() );
+		}
+		else if ( node instanceof SqmSelectableNode<?> selectable ) {
+			// e.g. the arguments of an instantiation
+			final List<SqmSelectableNode<?>> subSelections = new ArrayList<>();
+			selectable.visitSubSelectableNodes( subSelections::add );
+			// simple selections visit themselves
+			return subSelections.stream().anyMatch( sub -> sub != selectable && isAggregate( sub ) );
+		}
+		return false;
+	}
+
+	private static boolean hasOnlySingularJoins(SqmFrom<?, ?> from) {
+		for ( SqmJoin<?, ?> join : from.getSqmJoins() ) {
+			if ( !( join instanceof SqmSingularJoin<?, ?> ) || !hasOnlySingularJoins( join ) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void copyParameters(SelectionQuery<?> source, SelectionQuery<?> target) {
+		( (DomainQueryExecutionContext) source ).getQueryParameterBindings().visitBindings( (parameter, binding) -> {
+			if ( !binding.isBound() ) {
+				return;
+			}
+			if ( parameter.getName() != null ) {
+				if ( binding.isMultiValued() ) {
+					target.setParameterList( parameter.getName(), binding.getBindValues() );
+				}
+				else {
+					target.setParameter( parameter.getName(), binding.getBindValue() );
+				}
+			}
+			else if ( parameter.getPosition() != null ) {
+				if ( binding.isMultiValued() ) {
+					target.setParameterList( parameter.getPosition(), binding.getBindValues() );
+				}
+				else {
+					target.setParameter( parameter.getPosition(), binding.getBindValue() );
+				}
+			}
+		} );
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> SqmSelectStatement<T> sqmStatement(SelectionQuery<T> query) {
+		return (SqmSelectStatement<T>) ( (SqmSelectionQuery<T>) query ).getSqmStatement();
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static SqmExpression<Comparable> comparable(SqmExpression<?> expression) {
+		return (SqmExpression<Comparable>) expression;
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static Comparable comparable(Object value) {
+		return (Comparable) value;
+	}
+}
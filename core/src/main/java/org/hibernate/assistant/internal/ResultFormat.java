@@ -0,0 +1,29 @@
+package org.hibernate.assistant.internal;
+
+/**
+ * The format used to describe the results of a query to the LLM.
+ */
+public enum ResultFormat {
+	/**
+	 * A JSON array with one element per row, where entities and embeddables are represented as JSON objects.
+	 *
+	 * @see org.hibernate.assistant.spi.QuerySerializer#serialize(org.hibernate.query.SelectionQuery,
+	 * org.hibernate.SharedSessionContract, Appendable)
+	 */
+	JSON,
+	/**
+	 * A compact table: column headers appear once, followed by one {@code |}-delimited line per row, and the
+	 * values of low-cardinality columns are replaced by short codes defined before the headers, e.g.
+	 * <pre>
+	 * dictionary of address.city: @1=Milan|@2=Segrate
+	 * id|name|address.city
+	 * 1|Red Hat|@1
+	 * 2|IBM|@2
+	 * </pre>
+	 * Entities and embeddables are flattened into one column per basic attribute, while associated entities
+	 * are represented by their identifier. This usually takes far fewer tokens than {@link #JSON}.
+	 *
+	 * @see TabularFormat
+	 */
+	TABULAR
+}
@@ -0,0 +1,133 @@
+package org.hibernate.assistant.internal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spills the JSON rows of a query result to a memory-mapped temporary file, grouping them in chunks of at most
+ * {@code chunkLength} characters, so that arbitrarily large results can be processed one chunk at a time without
+ * keeping them on the heap. Rows are never split across chunks, and each {@linkplain #chunk(int) chunk} is a
+ * valid JSON array on its own. A single row longer than the chunk length gets its own chunk.
+ * <p>
+ * The file is written sequentially through regions of {@value #REGION_SIZE} bytes mapped on demand, and chunks
+ * can be read concurrently once all rows have been appended. It's deleted when the spill is {@linkplain #close()
+ * closed}, though the operating system might only release the mapped memory once the buffers are garbage collected.
+ */
+public class ResultSpill implements Closeable {
+	private static final int REGION_SIZE = 8 * 1024 * 1024;
+	private static final byte SEPARATOR = ',';
+
+	private final Path file;
+	private final FileChannel channel;
+	private final int chunkLength;
+	private final List<Long> chunkOffsets = new ArrayList<>();
+	private MappedByteBuffer region;
+	private long position;
+	private long chunkCharacters;
+	private long rows;
+
+	private ResultSpill(Path file, int chunkLength) throws IOException {
+		this.file = file;
+		this.chunkLength = chunkLength;
+		this.channel = FileChannel.open( file, StandardOpenOption.READ, StandardOpenOption.WRITE );
+	}
+
+	/**
+	 * Creates a new spill backed by a temporary file.
+	 *
+	 * @param chunkLength the maximum number of characters of each chunk
+	 *
+	 * @return the new spill, which must be closed to delete its file
+	 *
+	 * @throws IOException if the temporary file could not be created
+	 */
+	public static ResultSpill create(int chunkLength) throws IOException {
+		return new ResultSpill( Files.createTempFile( "hibernate-assistant-", ".json" ), chunkLength );
+	}
+
+	/**
+	 * Appends the JSON representation of a row, starting a new chunk if it doesn't fit in the current one.
+	 *
+	 * @param row the serialized row
+	 *
+	 * @throws IOException if writing to the file fails
+	 */
+	public void append(CharSequence row) throws IOException {
+		if ( rows == 0 || chunkCharacters + 1 + row.length() > chunkLength ) {
+			chunkOffsets.add( position );
+			chunkCharacters = row.length();
+		}
+		else {
+			write( ByteBuffer.wrap( new byte[] { SEPARATOR } ) );
+			chunkCharacters += 1 + row.length();
+		}
+		write( StandardCharsets.UTF_8.encode( CharBuffer.wrap( row ) ) );
+		rows++;
+	}
+
+	private void write(ByteBuffer bytes) throws IOException {
+		while ( bytes.hasRemaining() ) {
+			if ( region == null || !region.hasRemaining() ) {
+				// mapping past the end of the file extends it
+				region = channel.map( FileChannel.MapMode.READ_WRITE, position, REGION_SIZE );
+			}
+			final int length = Math.min( bytes.remaining(), region.remaining() );
+			region.put( region.position(), bytes, bytes.position(), length );
+			region.position( region.position() + length );
+			bytes.position( bytes.position() + length );
+			position += length;
+		}
+	}
+
+	/**
+	 * @return the number of rows appended to the spill
+	 */
+	public long rowCount() {
+		return rows;
+	}
+
+	/**
+	 * @return the number of chunks, {@code 0} if no row was appended
+	 */
+	public int chunkCount() {
+		return chunkOffsets.size();
+	}
+
+	/**
+	 * Reads a chunk back from the file.
+	 *
+	 * @param index the index of the chunk, starting from {@code 0}
+	 *
+	 * @return the JSON array containing the rows of the chunk
+	 *
+	 * @throws IOException if reading the file fails
+	 */
+	public String chunk(int index) throws IOException {
+		final long start = chunkOffsets.get( index );
+		final long end = index + 1 < chunkOffsets.size() ? chunkOffsets.get( index + 1 ) : position;
+		final MappedByteBuffer buffer = channel.map( FileChannel.MapMode.READ_ONLY, start, end - start );
+		final CharBuffer chars = StandardCharsets.UTF_8.decode( buffer );
+		return new StringBuilder( chars.length() + 2 ).append( '[' ).append( chars ).append( ']' ).toString();
+	}
+
+	@Override
+	public void close() throws IOException {
+		region = null;
+		try {
+			channel.close();
+		}
+		finally {
+			Files.deleteIfExists( file );
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package org.hibernate.assistant.internal;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders rows of string cells in the {@link ResultFormat#TABULAR tabular} result format. Cells are separated
+ * by {@value #DELIMITER} and rows by new lines, {@code null} values are written as {@code null}, and cells which
+ * could be mistaken for something else are quoted, doubling any quote they contain.
+ * <p>
+ * A column is dictionary-encoded when its values repeat enough that replacing them with {@code @n} codes, defined
+ * once on a {@code dictionary of <column>:} line before the headers, makes the output shorter.
+ */
+public class TabularFormat {
+	public static final char DELIMITER = '|';
+
+	/**
+	 * Explains the format to the LLM, to be sent together with the data.
+	 */
+	public static final String DESCRIPTION = "The data is a table: the first line contains the column names,"
+			+ " then each line is a row, with values separated by " + DELIMITER + "."
+			+ " Values containing " + DELIMITER + ", quotes or line breaks, or starting or ending with a space,"
+			+ " are enclosed in double quotes, and quotes inside them are doubled. An unquoted null means no value."
+			+ " Values starting with @ are codes, which stand for the value they are assigned on the"
+			+ " \"dictionary of <column>:\" line of their column, before the column names.";
+
+	private static final String NULL = "null";
+	private static final char CODE_PREFIX = '@';
+	private static final String DICTIONARY_PREFIX = "dictionary of ";
+
+	/**
+	 * The minimum number of rows for dictionary encoding to be considered.
+	 */
+	private static final int MIN_DICTIONARY_ROWS = 4;
+
+	/**
+	 * The maximum number of distinct values of a dictionary-encoded column.
+	 */
+	private static final int MAX_DICTIONARY_SIZE = 64;
+
+	/**
+	 * @param cells the cells of a row
+	 *
+	 * @return the number of characters needed to write the cells without any encoding
+	 */
+	public static int length(String[] cells) {
+		int length = cells.length - 1;
+		for ( String cell : cells ) {
+			length += cell != null ? cell.length() : NULL.length();
+		}
+		return length;
+	}
+
+	/**
+	 * Writes the column headers and the rows, dictionary-encoding columns whenever that reduces the output size.
+	 *
+	 * @param columns the names of the columns
+	 * @param rows the cells of each row, one per column
+	 * @param sb where to write the table
+	 */
+	public static void write(List<String> columns, List<String[]> rows, StringBuilder sb) {
+		final List<Map<String, String>> dictionaries = new ArrayList<>( columns.size() );
+		for ( int i = 0; i < columns.size(); i++ ) {
+			final Map<String, String> dictionary = dictionary( rows, i, columns.get( i ) );
+			dictionaries.add( dictionary );
+			if ( dictionary != null ) {
+				sb.append( DICTIONARY_PREFIX ).append( columns.get( i ) ).append( ": " );
+				char separator = 0;
+				for ( Map.Entry<String, String> entry : dictionary.entrySet() ) {
+					if ( separator != 0 ) {
+						sb.append( separator );
+					}
+					sb.append( entry.getValue() ).append( '=' );
+					appendCell( entry.getKey(), sb );
+					separator = DELIMITER;
+				}
+				sb.append( '\n' );
+			}
+		}
+
+		for ( int i = 0; i < columns.size(); i++ ) {
+			if ( i > 0 ) {
+				sb.append( DELIMITER );
+			}
+			appendCell( columns.get( i ), sb );
+		}
+		for ( String[] row : rows ) {
+			sb.append( '\n' );
+			for ( int i = 0; i < row.length; i++ ) {
+				if ( i > 0 ) {
+					sb.append( DELIMITER );
+				}
+				final Map<String, String> dictionary = dictionaries.get( i );
+				final String code = dictionary != null && row[i] != null ? dictionary.get( row[i] ) : null;
+				if ( code != null ) {
+					sb.append( code );
+				}
+				else {
+					appendCell( row[i], sb );
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the codes of the values of the given column, or {@code null} if encoding it doesn't pay off
+	 */
+	private static Map<String, String> dictionary(List<String[]> rows, int column, String name) {
+		if ( rows.size() < MIN_DICTIONARY_ROWS ) {
+			return null;
+		}
+		final Map<String, Integer> counts = new LinkedHashMap<>();
+		for ( String[] row : rows ) {
+			final String cell = row[column];
+			if ( cell != null ) {
+				counts.merge( cell, 1, Integer::sum );
+				if ( counts.size() > MAX_DICTIONARY_SIZE || counts.size() > rows.size() / 2 ) {
+					return null;
+				}
+			}
+		}
+
+		final Map<String, String> dictionary = new LinkedHashMap<>( counts.size() * 2 );
+		long saved = -( DICTIONARY_PREFIX.length() + name.length() + 2 );
+		for ( Map.Entry<String, Integer> entry : counts.entrySet() ) {
+			final String code = CODE_PREFIX + Integer.toString( dictionary.size() + 1 );
+			final int length = entry.getKey().length();
+			// each occurrence is replaced by the code, which is defined once
+			saved += (long) entry.getValue() * ( length - code.length() ) - ( code.length() + length + 2 );
+			dictionary.put( entry.getKey(), code );
+		}
+		return saved > 0 ? dictionary : null;
+	}
+
+	private static void appendCell(String cell, StringBuilder sb) {
+		if ( cell == null ) {
+			sb.append( NULL );
+		}
+		else if ( needsQuoting( cell ) ) {
+			sb.append( '"' );
+			for ( int i = 0; i < cell.length(); i++ ) {
+				final char c = cell.charAt( i );
+				if ( c == '"' ) {
+					sb.append( '"' );
+				}
+				sb.append( c );
+			}
+			sb.append( '"' );
+		}
+		else {
+			sb.append( cell );
+		}
+	}
+
+	private static boolean needsQuoting(String cell) {
+		if ( cell.isEmpty() || cell.equals( NULL ) || cell.charAt( 0 ) == CODE_PREFIX
+				|| Character.isWhitespace( cell.charAt( 0 ) )
+				|| Character.isWhitespace( cell.charAt( cell.length() - 1 ) ) ) {
+			return true;
+		}
+		for ( int i = 0; i < cell.length(); i++ ) {
+			final char c = cell.charAt( i );
+			if ( c == DELIMITER || c == '"' || c == '\n' || c == '\r' ) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
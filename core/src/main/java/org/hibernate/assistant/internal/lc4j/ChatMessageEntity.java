@@ -0,0 +1,76 @@
+package org.hibernate.assistant.internal.lc4j;
+
+import org.hibernate.Length;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import java.time.Instant;
+
+/**
+ * A chat message stored by {@link HibernateChatMemoryStore}. This class must be included in the domain model
+ * of the {@link org.hibernate.SessionFactory} used by the store.
+ */
+@Entity(name = "AiChatMessage")
+@Table(name = "hibernate_assistant_chat_message",
+		indexes = @Index(name = "hibernate_assistant_chat_message_conversation", columnList = "conversation_id, createdAt, id"))
+public class ChatMessageEntity {
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "hibernate_assistant_chat_message_seq")
+	@SequenceGenerator(name = "hibernate_assistant_chat_message_seq", allocationSize = 50)
+	private Long id;
+
+	@Column(name = "conversation_id", nullable = false)
+	private String conversationId;
+
+	@Column(nullable = false, length = Length.LONG32)
+	private String message;
+
+	@Column(nullable = false)
+	private Instant createdAt;
+
+	public ChatMessageEntity() {
+	}
+
+	public ChatMessageEntity(String conversationId, String message, Instant createdAt) {
+		this.conversationId = conversationId;
+		this.message = message;
+		this.createdAt = createdAt;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getConversationId() {
+		return conversationId;
+	}
+
+	public void setConversationId(String conversationId) {
+		this.conversationId = conversationId;
+	}
+
+	/**
+	 * @return the JSON representation of the message, see {@link dev.langchain4j.data.message.ChatMessageSerializer}
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	public void setMessage(String message) {
+		this.message = message;
+	}
+
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Instant createdAt) {
+		this.createdAt = createdAt;
+	}
+}
@@ -0,0 +1,113 @@
+package org.hibernate.assistant.internal.lc4j;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.ChatMemoryProvider;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hibernate.assistant.HibernateAssistant.DEFAULT_CONVERSATION_ID;
+
+/**
+ * The chat memories of the conversations served by a {@link HibernateAssistantLC4J}, keyed by conversation id.
+ * Memories are obtained from a {@link ChatMemoryProvider} the first time a conversation is used, and are
+ * dropped once they have not been accessed for longer than the configured idle timeout; the memory of
+ * the {@linkplain org.hibernate.assistant.HibernateAssistant#DEFAULT_CONVERSATION_ID default conversation}
+ * is never evicted.
+ * <p>
+ * Conversations are stored in a {@link ConcurrentHashMap}, so different conversations never contend with
+ * each other, while the messages of each conversation are guarded by their own {@link ChatMemory}'s monitor.
+ */
+class ConversationMemories {
+	private final ChatMemoryProvider chatMemoryProvider;
+	private final ChatMemory defaultMemory;
+	private final long idleTimeoutNanos;
+	private final ConcurrentHashMap<Object, Conversation> conversations = new ConcurrentHashMap<>();
+	private final AtomicLong lastSweep = new AtomicLong( System.nanoTime() );
+
+	/**
+	 * @param chatMemoryProvider provides the memories of new conversations
+	 * @param defaultMemory the memory of the default conversation
+	 * @param idleTimeout the time after which idle conversations are evicted, {@code null} to never evict them
+	 */
+	ConversationMemories(ChatMemoryProvider chatMemoryProvider, ChatMemory defaultMemory, Duration idleTimeout) {
+		this.chatMemoryProvider = chatMemoryProvider;
+		this.defaultMemory = defaultMemory;
+		this.idleTimeoutNanos = idleTimeout == null || idleTimeout.isZero() ? 0L : idleTimeout.toNanos();
+	}
+
+	/**
+	 * @return a snapshot of the messages of the given conversation
+	 */
+	List<ChatMessage> messages(Object conversationId) {
+		final ChatMemory memory = get( conversationId );
+		synchronized ( memory ) {
+			return List.copyOf( memory.messages() );
+		}
+	}
+
+	/**
+	 * Adds a message to the given conversation.
+	 *
+	 * @return a snapshot of the messages of the conversation, including the new one
+	 */
+	List<ChatMessage> add(Object conversationId, ChatMessage message) {
+		final ChatMemory memory = get( conversationId );
+		synchronized ( memory ) {
+			memory.add( message );
+			return List.copyOf( memory.messages() );
+		}
+	}
+
+	void clear(Object conversationId) {
+		final ChatMemory memory = get( conversationId );
+		synchronized ( memory ) {
+			memory.clear();
+		}
+		if ( memory != defaultMemory ) {
+			conversations.remove( conversationId );
+		}
+	}
+
+	/**
+	 * @return the number of conversations currently held in memory, excluding the default one
+	 */
+	int size() {
+		return conversations.size();
+	}
+
+	private ChatMemory get(Object conversationId) {
+		if ( DEFAULT_CONVERSATION_ID.equals( conversationId ) ) {
+			return defaultMemory;
+		}
+		final long now = System.nanoTime();
+		evictIdleConversations( now );
+		final Conversation conversation = conversations.computeIfAbsent(
+				conversationId,
+				id -> new Conversation( chatMemoryProvider.get( id ) )
+		);
+		conversation.lastAccess = now;
+		return conversation.memory;
+	}
+
+	private void evictIdleConversations(long now) {
+		if ( idleTimeoutNanos > 0 ) {
+			// sweep at most once per timeout period, only one thread at a time
+			final long last = lastSweep.get();
+			if ( now - last > idleTimeoutNanos && lastSweep.compareAndSet( last, now ) ) {
+				conversations.values().removeIf( c -> now - c.lastAccess > idleTimeoutNanos );
+			}
+		}
+	}
+
+	private static class Conversation {
+		private final ChatMemory memory;
+		private volatile long lastAccess;
+
+		private Conversation(ChatMemory memory) {
+			this.memory = memory;
+		}
+	}
+}
@@ -0,0 +1,1777 @@
+package org.hibernate.assistant.internal.lc4j;
+
+import org.hibernate.HibernateException;
+import org.hibernate.SessionFactory;
+import org.hibernate.SharedSessionContract;
+import org.hibernate.assistant.AiQueryPage;
+import org.hibernate.assistant.AiQueryResult;
+import org.hibernate.assistant.HibernateAssistant;
+import org.hibernate.assistant.internal.AiQueryCache;
+import org.hibernate.assistant.internal.DomainModelPruner;
+import org.hibernate.assistant.internal.IncrementalHqlExtractor;
+import org.hibernate.assistant.internal.InterruptibleFuture;
+import org.hibernate.assistant.internal.LiteralParameterizer;
+import org.hibernate.assistant.internal.LiteralParameterizer.ParameterizedHql;
+import org.hibernate.assistant.internal.MetamodelPromptFormat;
+import org.hibernate.assistant.internal.QueryGuard;
+import org.hibernate.assistant.internal.QueryPaginator;
+import org.hibernate.assistant.internal.ResultFormat;
+import org.hibernate.assistant.internal.ResultSpill;
+import org.hibernate.assistant.internal.TabularFormat;
+import org.hibernate.assistant.spi.AssistantMetrics;
+import org.hibernate.assistant.spi.QuerySerializer;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metamodel.model.domain.JpaMetamodel;
+import org.hibernate.metamodel.model.domain.ManagedDomainType;
+import org.hibernate.query.IllegalSelectQueryException;
+import org.hibernate.query.SelectionQuery;
+import org.hibernate.query.spi.HqlInterpretation;
+import org.hibernate.query.sqm.tree.select.SqmSelectStatement;
+
+import org.jboss.logging.Logger;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.ChatMemoryProvider;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ResponseFormat;
+import dev.langchain4j.model.chat.request.json.JsonObjectSchema;
+import dev.langchain4j.model.chat.request.json.JsonSchema;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.input.PromptTemplate;
+import dev.langchain4j.model.output.TokenUsage;
+import dev.langchain4j.rag.AugmentationRequest;
+import dev.langchain4j.rag.DefaultRetrievalAugmentor;
+import dev.langchain4j.rag.RetrievalAugmentor;
+import dev.langchain4j.rag.content.injector.DefaultContentInjector;
+import dev.langchain4j.rag.query.Metadata;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import jakarta.persistence.metamodel.Metamodel;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static dev.langchain4j.internal.Utils.getOrDefault;
+import static dev.langchain4j.internal.ValidationUtils.ensureGreaterThanZero;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+import static dev.langchain4j.model.chat.request.ResponseFormatType.JSON;
+import static org.hibernate.assistant.internal.lc4j.HibernateContentRetriever.INJECTOR_PROMPT_TEMPLATE;
+
+/**
+ * Implementation of {@link HibernateAssistant} based on <a href="https://docs.langchain4j.dev/">LangChain4j</a> APIs.
+ * The user must provide a {@link ChatModel} instance that will be used to interact with the LLMs.
+ * Optionally, a {@link ChatMemory} can also be provided, otherwise a default {@link MessageWindowChatMemory}
+ * with a maximum of {@code 10} messages will be used.
+ * <p>
+ * The assistant is thread-safe and can serve many concurrent conversations, each identified by a conversation id:
+ * their memories are obtained through a {@link ChatMemoryProvider}, while the system message describing
+ * the domain model is shared by all of them and sent along with each request.
+ * <p>
+ * It is highly recommended to use a {@link ChatModel} that supports
+ * <a href="https://docs.langchain4j.dev/tutorials/structured-outputs#json-schema">JSON Schema</a>
+ * to improve the chances of extracting a valid HQL query from the LLM's responses. Note that this requires
+ * enabling <a href="https://docs.langchain4j.dev/tutorials/structured-outputs#json-schema">JSON Schema</a>
+ * support on the provided chat model.
+ */
+public class HibernateAssistantLC4J implements HibernateAssistant {
+	private static final Logger log = Logger.getLogger( HibernateAssistantLC4J.class );
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	/**
+	 * Runs the requests fanned out by a single operation, e.g. {@linkplain Builder#speculativeCandidates(int)
+	 * speculative candidates}. The operation itself might be running on the configured
+	 * {@linkplain Builder#executor(ExecutorService) executor}, and blocks until the requests complete: submitting
+	 * them to the same executor could exhaust a bounded thread pool and never make progress.
+	 */
+	private static final ExecutorService FAN_OUT_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+	/**
+	 * The step between the temperatures of the {@linkplain Builder#speculativeCandidates(int) speculative candidates}
+	 * after the first one, which uses the model's default.
+	 */
+	private static final double CANDIDATE_TEMPERATURE_STEP = 0.3;
+
+	private static final PromptTemplate METAMODEL_PROMPT_TEMPLATE = PromptTemplate.from(
+			"""
+					You are an expert in writing Hibernate Query Language (HQL) queries.
+					You have access to a entity model with the following structure:
+					
+					{{it}}
+					
+					If a user asks a question that can be answered by querying this model, generate an HQL SELECT query.
+					The query must not include any input parameters.
+					Do not output anything else aside from a valid HQL statement!
+					""" );
+
+	private static final String METAMODEL_PROMPT_JSON_SCHEMA = """
+			{
+				"title": "MappedObject",
+				"description": "A mapped Java class that corresponds to a managed type in the domain metamodel",
+				"type": "object",
+				"properties": {
+					"type": {"type": "string", "description":"The type of persistent object","enum": ["ENTITY", "EMBEDDABLE", "MAPPED_SUPERCLASS"]},
+					"name": {"type": "string", "description":"The short name of the mapped object"},
+					"class": {"type": "string", "description":"The fully qualified class name of the mapped object"},
+					"superclass": {"type": "string", "description":"The name of the superclass the object extends from, if any"},
+					"identifier": {
+						"description":"The identifier attribute of the mapped object, if any",
+						"type": "object",
+						"properties": {
+							"name": {"type": "string","description":"The name of the identifier attribute"},
+							"type": {"type": "string","description":"The type (fully qualified class name) of the identifier attribute"},
+						}
+					},
+					"attributes": {
+						"type": "array",
+						"description": "List of attributes contained in the mapped object"
+					}
+				}
+			}
+			""";
+
+	public static final int DEFAULT_MAX_RESULT_LENGTH = 16_000;
+
+	public static final int DEFAULT_PAGE_SIZE = 100;
+
+	public static final int DEFAULT_BATCH_PARALLELISM = 8;
+
+	public static final int DEFAULT_MAX_REPAIR_ATTEMPTS = 2;
+
+	public static final Duration DEFAULT_CONVERSATION_IDLE_TIMEOUT = Duration.ofMinutes( 30 );
+
+	public static final Duration DEFAULT_STREAM_HQL_TIMEOUT = Duration.ofMinutes( 2 );
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public static class Builder {
+		private ChatModel chatModel;
+		private StreamingChatModel streamingChatModel;
+		private ChatMemory chatMemory;
+		private ChatMemoryProvider chatMemoryProvider;
+		private ChatMemoryStore chatMemoryStore;
+		private Duration conversationIdleTimeout = DEFAULT_CONVERSATION_IDLE_TIMEOUT;
+		private Metamodel metamodel;
+		private PromptTemplate metamodelPromptTemplate;
+		private MetamodelPromptFormat metamodelPromptFormat = MetamodelPromptFormat.JSON;
+		private boolean structuredJson = true;
+		private boolean streamHql;
+		private Duration streamHqlTimeout = DEFAULT_STREAM_HQL_TIMEOUT;
+		private int queryCacheSize;
+		private Duration queryCacheTimeToLive;
+		private SemanticAiQueryCache semanticQueryCache;
+		private int schemaPruningHops = -1;
+		private int fetchSize;
+		private int pageSize = DEFAULT_PAGE_SIZE;
+		private int maxResultLength = DEFAULT_MAX_RESULT_LENGTH;
+		private ResultFormat resultFormat = ResultFormat.JSON;
+		private int mapReduceChunkLength;
+		private ExecutorService executor;
+		private int batchParallelism = DEFAULT_BATCH_PARALLELISM;
+		private int maxRepairAttempts = DEFAULT_MAX_REPAIR_ATTEMPTS;
+		private int speculativeCandidates = 1;
+		private QueryGuard queryGuard;
+		private boolean parameterizeLiterals = true;
+		private AssistantMetrics metrics;
+
+		private Builder() {
+		}
+
+		public Builder chatModel(ChatModel chatModel) {
+			this.chatModel = chatModel;
+			return this;
+		}
+
+		/**
+		 * The model used to stream natural language answers, see
+		 * {@link HibernateAssistantLC4J#executeQueryStreaming(SelectionQuery, SharedSessionContract, StreamingChatResponseHandler)}.
+		 * HQL queries are generated through the {@link ChatModel}, unless {@link #streamHql(boolean)} is enabled.
+		 *
+		 * @param streamingChatModel the streaming chat model
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder streamingChatModel(StreamingChatModel streamingChatModel) {
+			this.streamingChatModel = streamingChatModel;
+			return this;
+		}
+
+		/**
+		 * The memory of the {@linkplain HibernateAssistant#DEFAULT_CONVERSATION_ID default conversation}.
+		 *
+		 * @param chatMemory the chat memory
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder chatMemory(ChatMemory chatMemory) {
+			this.chatMemory = chatMemory;
+			return this;
+		}
+
+		/**
+		 * Provides the memories of conversations identified by a conversation id. When not specified, each
+		 * conversation gets a {@link MessageWindowChatMemory} with a maximum of {@code 10} messages.
+		 * Note that the system message describing the domain model is not stored in the memories.
+		 *
+		 * @param chatMemoryProvider the chat memory provider
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder chatMemoryProvider(ChatMemoryProvider chatMemoryProvider) {
+			this.chatMemoryProvider = chatMemoryProvider;
+			return this;
+		}
+
+		/**
+		 * The store backing the default {@link MessageWindowChatMemory} of each conversation, e.g. a
+		 * {@link HibernateChatMemoryStore} to make conversations persistent. Ignored when a
+		 * {@link #chatMemoryProvider(ChatMemoryProvider) chat memory provider} is specified.
+		 *
+		 * @param chatMemoryStore the chat memory store
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder chatMemoryStore(ChatMemoryStore chatMemoryStore) {
+			this.chatMemoryStore = chatMemoryStore;
+			return this;
+		}
+
+		/**
+		 * The time after which the memory of a conversation that has not been used is evicted. Defaults to
+		 * 30 minutes, {@code null} or {@link Duration#ZERO} disable eviction. The memory of the
+		 * {@linkplain HibernateAssistant#DEFAULT_CONVERSATION_ID default conversation} is never evicted.
+		 *
+		 * @param conversationIdleTimeout the idle timeout
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder conversationIdleTimeout(Duration conversationIdleTimeout) {
+			this.conversationIdleTimeout = conversationIdleTimeout;
+			return this;
+		}
+
+		public Builder metamodel(Metamodel metamodel) {
+			this.metamodel = metamodel;
+			return this;
+		}
+
+		public Builder structuredJson(boolean structuredJson) {
+			this.structuredJson = structuredJson;
+			return this;
+		}
+
+		/**
+		 * Generate HQL queries through the {@link #streamingChatModel(StreamingChatModel) streaming chat model},
+		 * parsing the response as it's streamed: the query is interpreted and created as soon as it's complete,
+		 * without waiting for the rest of the response, which is ignored. Since LangChain4j provides no way to
+		 * cancel a streaming response, the model still generates the remaining output, but nothing waits for it.
+		 * Disabled by default.
+		 *
+		 * @param streamHql whether to stream HQL queries
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder streamHql(boolean streamHql) {
+			this.streamHql = streamHql;
+			return this;
+		}
+
+		/**
+		 * The maximum time to wait for a complete HQL query when {@link #streamHql(boolean)} is enabled, after
+		 * which query creation fails. Streaming chat models don't fail requests that stop producing tokens,
+		 * so this should be at least the time the model takes to generate a query. Defaults to 2 minutes.
+		 *
+		 * @param streamHqlTimeout the timeout of streamed HQL queries
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder streamHqlTimeout(Duration streamHqlTimeout) {
+			this.streamHqlTimeout = streamHqlTimeout;
+			return this;
+		}
+
+		/**
+		 * The initial {@link SystemMessage} to instruct the language model about creating HQL queries,
+		 * and the structure of the domain metamodel (mapped classes and their structure).
+		 * <p>
+		 * Must include {@code {{it}}} where the generated mapped objects information will be substituted.
+		 * Defaults to {@link #METAMODEL_PROMPT_TEMPLATE}.
+		 *
+		 * @param metamodelPromptTemplate the custom prompt template to be used
+		 *
+		 * @return {{@code this}} for chaining calls
+		 */
+		public Builder metamodelPromptTemplate(PromptTemplate metamodelPromptTemplate) {
+			this.metamodelPromptTemplate = metamodelPromptTemplate;
+			return this;
+		}
+
+		/**
+		 * The format used to describe the domain metamodel in the {@link #metamodelPromptTemplate(PromptTemplate)}.
+		 * {@link MetamodelPromptFormat#COMPACT} greatly reduces the number of prompt tokens for large domain models.
+		 * Defaults to {@link MetamodelPromptFormat#JSON}.
+		 *
+		 * @param metamodelPromptFormat the format of the domain model prompt
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder metamodelPromptFormat(MetamodelPromptFormat metamodelPromptFormat) {
+			this.metamodelPromptFormat = metamodelPromptFormat;
+			return this;
+		}
+
+		/**
+		 * Enables caching of the HQL queries generated for natural language prompts, so that repeated
+		 * questions skip the round trip to the LLM. The cache is keyed by the normalized prompt text,
+		 * the requested result type and the domain model prompt, and evicts the least recently used
+		 * entries once {@code queryCacheSize} queries are stored. Questions following previous messages of
+		 * a conversation are not cached. Disabled by default.
+		 *
+		 * @param queryCacheSize the maximum number of cached queries, {@code 0} disables the cache
+		 *
+		 * @return {@code this} for chaining calls
+		 *
+		 * @see AiQueryCache
+		 */
+		public Builder queryCacheSize(int queryCacheSize) {
+			this.queryCacheSize = queryCacheSize;
+			return this;
+		}
+
+		/**
+		 * The time after which cached HQL queries expire, only used when {@link #queryCacheSize(int)} is enabled.
+		 * Defaults to no expiration.
+		 *
+		 * @param queryCacheTimeToLive the time-to-live of cached queries
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder queryCacheTimeToLive(Duration queryCacheTimeToLive) {
+			this.queryCacheTimeToLive = queryCacheTimeToLive;
+			return this;
+		}
+
+		/**
+		 * Enables a semantic cache of the generated HQL queries, so that near-duplicate questions reuse
+		 * a previously generated query without calling the chat model. Prompts are embedded with the provided
+		 * {@link EmbeddingModel}, an in-process model is recommended to keep lookups fast. Like with
+		 * {@link #queryCacheSize(int)}, questions following previous messages of a conversation are not cached.
+		 * Disabled by default.
+		 *
+		 * @param embeddingModel the model used to embed natural language prompts
+		 * @param minSimilarity the minimum cosine similarity for two prompts to be considered equivalent
+		 * @param maxSize the maximum number of cached queries
+		 *
+		 * @return {@code this} for chaining calls
+		 *
+		 * @see SemanticAiQueryCache
+		 */
+		public Builder semanticQueryCache(EmbeddingModel embeddingModel, double minSimilarity, int maxSize) {
+			this.semanticQueryCache = new SemanticAiQueryCache( embeddingModel, minSimilarity, maxSize );
+			return this;
+		}
+
+		/**
+		 * Enables pruning of the domain model prompt sent when creating queries: only the managed types relevant
+		 * to each question, i.e. the ones it mentions and the ones up to {@code associationHops} associations away
+		 * from them, are included in the system message of the request. This greatly reduces the size of the prompt
+		 * for large domain models. Disabled by default.
+		 *
+		 * @param associationHops the number of association hops used to expand the relevant types, usually 1 or 2
+		 *
+		 * @return {@code this} for chaining calls
+		 *
+		 * @see DomainModelPruner
+		 */
+		public Builder schemaPruning(int associationHops) {
+			this.schemaPruningHops = associationHops;
+			return this;
+		}
+
+		/**
+		 * The JDBC fetch size used when executing queries and serializing their results, i.e. the number of rows
+		 * retrieved from the database in each round trip. When {@code 0}, the default (driver-specific) fetch size
+		 * is used, unless one was explicitly set on the query.
+		 *
+		 * @param fetchSize the JDBC fetch size
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder fetchSize(int fetchSize) {
+			this.fetchSize = fetchSize;
+			return this;
+		}
+
+		/**
+		 * The number of results in each page of AI queries. Queries created by the assistant are limited to
+		 * the first page through {@link SelectionQuery#setMaxResults(int)}, unless the LLM generated a query
+		 * with its own limit, and the following pages can be retrieved with
+		 * {@link #nextPage(AiQueryPage, SharedSessionContract)}. When no {@link #fetchSize(int) fetch size} is
+		 * configured, it's also used as JDBC fetch size. Defaults to {@value HibernateAssistantLC4J#DEFAULT_PAGE_SIZE}.
+		 *
+		 * @param pageSize the number of results in each page
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder pageSize(int pageSize) {
+			this.pageSize = pageSize;
+			return this;
+		}
+
+		/**
+		 * The maximum number of characters of the query results included in the prompt sent to the chat model
+		 * when answering a question with {@link #executeQuery(SelectionQuery, SharedSessionContract)}. Once the
+		 * budget is reached, no further rows are rendered and a footer reporting how many rows were shown
+		 * out of the total is added instead. Defaults to {@value HibernateAssistantLC4J#DEFAULT_MAX_RESULT_LENGTH} characters,
+		 * roughly a quarter as many tokens.
+		 *
+		 * @param maxResultLength the maximum number of characters, {@code 0} for no limit
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder maxResultLength(int maxResultLength) {
+			this.maxResultLength = maxResultLength;
+			return this;
+		}
+
+		/**
+		 * The format of the query results included in the prompt sent to the chat model when answering a question
+		 * with {@link #executeQuery(SelectionQuery, SharedSessionContract)}, and returned by
+		 * {@link #executeQueryToString(SelectionQuery, SharedSessionContract)}. {@link ResultFormat#TABULAR}
+		 * writes each attribute name once and dictionary-encodes repeated values, so the same rows take far fewer
+		 * tokens. Defaults to {@link ResultFormat#JSON}.
+		 *
+		 * @param resultFormat the format of the query results
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder resultFormat(ResultFormat resultFormat) {
+			this.resultFormat = resultFormat;
+			return this;
+		}
+
+		/**
+		 * Enables answering questions over results too large for a single prompt with
+		 * {@link #executeQuery(SelectionQuery, SharedSessionContract)}. Instead of being truncated to the
+		 * {@link #maxResultLength(int) maximum length}, results are spilled to a memory-mapped temporary file
+		 * in chunks of at most the given number of characters, always in the {@link ResultFormat#JSON} format.
+		 * Each chunk is sent to the chat model together with the conversation, asking for a partial answer,
+		 * with up to {@link #batchParallelism(int)} concurrent requests, and a final request combines the partial
+		 * answers. When the partial answers are longer than a chunk altogether, they are first combined in groups
+		 * of at most a chunk, as many times as needed. Only the final request is recorded in the chat memory,
+		 * and at most as many chunks as the parallelism are kept in memory at the same time. Since all results are processed, queries created by
+		 * the assistant are not limited to the first {@link #pageSize(int) page}. Disabled ({@code 0}) by default.
+		 *
+		 * @param mapReduceChunkLength the maximum number of characters of each chunk, {@code 0} to disable
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder mapReduceChunkLength(int mapReduceChunkLength) {
+			this.mapReduceChunkLength = mapReduceChunkLength;
+			return this;
+		}
+
+		/**
+		 * The executor running the asynchronous operations, e.g.
+		 * {@link HibernateAssistant#createAiQueryAsync(String, SharedSessionContract, Class)}.
+		 * Defaults to an executor starting a new virtual thread for each operation.
+		 * <p>
+		 * Only the asynchronous operations themselves are submitted to this executor: the concurrent requests
+		 * an operation waits for, such as {@linkplain #speculativeCandidates(int) speculative candidates} or
+		 * {@linkplain #mapReduceChunkLength(int) partial answers}, always run on virtual threads, so that
+		 * a bounded thread pool can't be exhausted by operations waiting for their own requests.
+		 *
+		 * @param executor the executor service
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder executor(ExecutorService executor) {
+			this.executor = executor;
+			return this;
+		}
+
+		/**
+		 * The maximum number of concurrent chat requests sent by
+		 * {@link HibernateAssistant#createAiQueries(List, SharedSessionContract, Class)}.
+		 * This should usually match the number of requests the model server can process in parallel.
+		 * Defaults to {@value HibernateAssistantLC4J#DEFAULT_BATCH_PARALLELISM}.
+		 *
+		 * @param batchParallelism the maximum number of concurrent requests
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder batchParallelism(int batchParallelism) {
+			this.batchParallelism = batchParallelism;
+			return this;
+		}
+
+		/**
+		 * The maximum number of times an invalid HQL query generated by the LLM is sent back to it, together
+		 * with the error reported by Hibernate, asking to fix it. Defaults to
+		 * {@value HibernateAssistantLC4J#DEFAULT_MAX_REPAIR_ATTEMPTS}, {@code 0} disables repairs.
+		 *
+		 * @param maxRepairAttempts the maximum number of repair attempts
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder maxRepairAttempts(int maxRepairAttempts) {
+			this.maxRepairAttempts = maxRepairAttempts;
+			return this;
+		}
+
+		/**
+		 * The number of HQL queries requested concurrently for each question, trading additional tokens for
+		 * a lower worst-case latency. The first request uses the model's default temperature, and the following
+		 * ones increasing temperatures of {@code 0.3}, {@code 0.6} and so on, up to {@code 1.0}, so that
+		 * candidates differ. Each candidate is validated as soon as
+		 * it's received, and the first valid one is used, cancelling the requests still in flight. Only when
+		 * no candidate is valid the first one is {@linkplain #maxRepairAttempts(int) repaired}. Requests run on
+		 * virtual threads. Defaults to {@code 1}, i.e. disabled.
+		 *
+		 * @param speculativeCandidates the number of concurrent requests for each query
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder speculativeCandidates(int speculativeCandidates) {
+			this.speculativeCandidates = speculativeCandidates;
+			return this;
+		}
+
+		/**
+		 * A {@link QueryGuard} checking queries before they are executed by the assistant, rejecting or
+		 * rewriting the ones that could be too expensive for the database. Queries created by the assistant
+		 * without a limit of their own are limited to the first {@link #pageSize(int) page}, but never
+		 * to more than the {@linkplain QueryGuard.Builder#maxResults(int) maximum number of results} of
+		 * the guard. Disabled by default.
+		 *
+		 * @param queryGuard the guard to apply to queries before executing them
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder queryGuard(QueryGuard queryGuard) {
+			this.queryGuard = queryGuard;
+			return this;
+		}
+
+		/**
+		 * Whether to replace the literals of generated queries with parameters, so that queries only differing
+		 * in their literal values share the same interpretation in Hibernate's query plan cache and the same
+		 * prepared statement, see {@link LiteralParameterizer}. Enabled by default.
+		 *
+		 * @param parameterizeLiterals whether to parameterize literals
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder parameterizeLiterals(boolean parameterizeLiterals) {
+			this.parameterizeLiterals = parameterizeLiterals;
+			return this;
+		}
+
+		/**
+		 * The listener notified about the duration of each stage of the assistant's pipeline, the token usage
+		 * of chat requests and the size of query results, e.g. an
+		 * {@link org.hibernate.assistant.internal.InMemoryAssistantMetrics}. Disabled by default.
+		 *
+		 * @param metrics the metrics listener
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder metrics(AssistantMetrics metrics) {
+			this.metrics = metrics;
+			return this;
+		}
+
+		public HibernateAssistantLC4J build() {
+			return new HibernateAssistantLC4J( this );
+		}
+
+		private ChatMemory defaultChatMemory(Object conversationId) {
+			// this can be tweaked, but really should be user-provided
+			final MessageWindowChatMemory.Builder builder = MessageWindowChatMemory.builder()
+					.id( conversationId )
+					.maxMessages( 10 );
+			if ( chatMemoryStore != null ) {
+				builder.chatMemoryStore( chatMemoryStore );
+			}
+			return builder.build();
+		}
+	}
+
+	// note : another alternative use-case can be generating ddl (with Hibernate's SchemaManager),
+	//  and creating plain SQL queries (might be better in some contexts, but less safe)
+
+	//	private final AiQueryService service;
+	private final ChatModel chatModel;
+	private final StreamingChatModel streamingChatModel;
+	private final PromptTemplate metamodelPromptTemplate;
+	private final SystemMessage metamodelPrompt;
+	private final ConversationMemories conversations;
+	private final JpaMetamodel metamodel;
+	private final boolean structuredJson;
+	private final boolean streamHql;
+	private final Duration streamHqlTimeout;
+	private final AiQueryCache queryCache;
+	private final SemanticAiQueryCache semanticQueryCache;
+	private final String metamodelFingerprint;
+	private final DomainModelPruner domainModelPruner;
+	private final int fetchSize;
+	private final int pageSize;
+	private final int maxResultLength;
+	private final ResultFormat resultFormat;
+	private final int mapReduceChunkLength;
+	private final ExecutorService executor;
+	private final int batchParallelism;
+	private final int maxRepairAttempts;
+	private final int speculativeCandidates;
+	private final QueryGuard queryGuard;
+	private final boolean parameterizeLiterals;
+	private final AssistantMetrics metrics;
+	private final Map<SessionFactory, RetrievalAugmentor> retrievalAugmentors = new ConcurrentHashMap<>();
+
+	private HibernateAssistantLC4J(
+			ChatModel chatModel,
+			StreamingChatModel streamingChatModel,
+			ConversationMemories conversations,
+			Metamodel metamodel,
+			PromptTemplate metamodelPromptTemplate,
+			MetamodelPromptFormat metamodelPromptFormat,
+			boolean structuredJson,
+			boolean streamHql,
+			Duration streamHqlTimeout,
+			AiQueryCache queryCache,
+			SemanticAiQueryCache semanticQueryCache,
+			int schemaPruningHops,
+			int fetchSize,
+			int pageSize,
+			int maxResultLength,
+			ResultFormat resultFormat,
+			int mapReduceChunkLength,
+			ExecutorService executor,
+			int batchParallelism,
+			int maxRepairAttempts,
+			int speculativeCandidates,
+			QueryGuard queryGuard,
+			boolean parameterizeLiterals,
+			AssistantMetrics metrics) {
+		this.chatModel = chatModel;
+		this.streamingChatModel = streamingChatModel;
+		this.conversations = conversations;
+		this.metamodel = (JpaMetamodel) metamodel;
+		this.structuredJson = structuredJson;
+		this.streamHql = streamHql;
+		this.streamHqlTimeout = streamHqlTimeout;
+		this.queryCache = queryCache;
+		this.semanticQueryCache = semanticQueryCache;
+		this.domainModelPruner = schemaPruningHops >= 0 ?
+				new DomainModelPruner( metamodel, schemaPruningHops, metamodelPromptFormat ) :
+				null;
+		this.fetchSize = fetchSize;
+		this.pageSize = pageSize;
+		this.maxResultLength = maxResultLength;
+		this.resultFormat = resultFormat;
+		this.mapReduceChunkLength = mapReduceChunkLength;
+		this.executor = executor;
+		this.batchParallelism = batchParallelism;
+		this.maxRepairAttempts = maxRepairAttempts;
+		this.speculativeCandidates = speculativeCandidates;
+		this.queryGuard = queryGuard;
+		this.parameterizeLiterals = parameterizeLiterals;
+		this.metrics = metrics;
+
+		this.metamodelPromptTemplate = metamodelPromptTemplate;
+		this.metamodelPrompt = getMetamodelPrompt( metamodelPromptTemplate, metamodelPromptFormat, metamodel );
+		this.metamodelFingerprint = fingerprint( metamodelPrompt.text() );
+		log.debugf( "Metamodel prompt: %s", metamodelPrompt.text() );
+	}
+
+	private HibernateAssistantLC4J(Builder builder) {
+		this(
+				ensureNotNull( builder.chatModel, "ChatModel" ),
+				builder.streamHql ?
+						ensureNotNull( builder.streamingChatModel, "StreamingChatModel" ) :
+						builder.streamingChatModel,
+				conversationMemories( builder ),
+				ensureNotNull( builder.metamodel, "Metamodel" ),
+				getOrDefault( builder.metamodelPromptTemplate, METAMODEL_PROMPT_TEMPLATE ),
+				getOrDefault( builder.metamodelPromptFormat, MetamodelPromptFormat.JSON ),
+				builder.structuredJson,
+				builder.streamHql,
+				ensureNotNull( builder.streamHqlTimeout, "streamHqlTimeout" ),
+				builder.queryCacheSize > 0 ?
+						new AiQueryCache( builder.queryCacheSize, builder.queryCacheTimeToLive ) :
+						null,
+				builder.semanticQueryCache,
+				builder.schemaPruningHops,
+				builder.fetchSize,
+				ensureGreaterThanZero( builder.pageSize, "pageSize" ),
+				builder.maxResultLength,
+				getOrDefault( builder.resultFormat, ResultFormat.JSON ),
+				builder.mapReduceChunkLength,
+				getOrDefault( builder.executor, Executors::newVirtualThreadPerTaskExecutor ),
+				ensureGreaterThanZero( builder.batchParallelism, "batchParallelism" ),
+				builder.maxRepairAttempts,
+				ensureGreaterThanZero( builder.speculativeCandidates, "speculativeCandidates" ),
+				builder.queryGuard,
+				builder.parameterizeLiterals,
+				getOrDefault( builder.metrics, AssistantMetrics.NONE )
+		);
+	}
+
+	private static ConversationMemories conversationMemories(Builder builder) {
+		final ChatMemoryProvider chatMemoryProvider = getOrDefault(
+				builder.chatMemoryProvider,
+				builder::defaultChatMemory
+		);
+		return new ConversationMemories(
+				chatMemoryProvider,
+				getOrDefault( builder.chatMemory, () -> chatMemoryProvider.get( DEFAULT_CONVERSATION_ID ) ),
+				builder.conversationIdleTimeout
+		);
+	}
+
+	private static SystemMessage getMetamodelPrompt(
+			PromptTemplate metamodelPromptTemplate,
+			MetamodelPromptFormat metamodelPromptFormat,
+			Metamodel metamodel) {
+		return metamodelPromptTemplate.apply( metamodelPromptFormat.getDomainModelPrompt( metamodel ) )
+				.toSystemMessage();
+	}
+
+	private static String fingerprint(String prompt) {
+		return UUID.nameUUIDFromBytes( prompt.getBytes( StandardCharsets.UTF_8 ) ).toString();
+	}
+
+	/**
+	 * Returns the cache of generated HQL queries, which exposes hit, miss and eviction statistics.
+	 *
+	 * @return the query cache, or {@code null} if caching was not enabled through {@link Builder#queryCacheSize(int)}
+	 */
+	public AiQueryCache getQueryCache() {
+		return queryCache;
+	}
+
+	/**
+	 * Returns the semantic cache of generated HQL queries, which exposes hit and miss statistics.
+	 *
+	 * @return the semantic query cache, or {@code null} if it was not enabled through
+	 * {@link Builder#semanticQueryCache(EmbeddingModel, double, int)}
+	 */
+	public SemanticAiQueryCache getSemanticQueryCache() {
+		return semanticQueryCache;
+	}
+
+	@Override
+	public void clear(Object conversationId) {
+		conversations.clear( conversationId );
+	}
+
+	@Override
+	public <T> SelectionQuery<T> createAiQuery(
+			Object conversationId,
+			String message,
+			SharedSessionContract session,
+			Class<T> resultType) {
+		return createAiQuery( conversationId, message, session, resultType, true );
+	}
+
+	@Override
+	public <T> CompletableFuture<SelectionQuery<T>> createAiQueryAsync(
+			Object conversationId,
+			String message,
+			SharedSessionContract session,
+			Class<T> resultType) {
+		return InterruptibleFuture.submit(
+				() -> createAiQuery( conversationId, message, session, resultType ),
+				executor
+		);
+	}
+
+	/**
+	 * Creates a {@link SelectionQuery} from the given natural language {@code message}. When {@code storeMessage}
+	 * is {@code false} the request is still sent along with the current chat context, but the message is not added
+	 * to the conversation's {@link ChatMemory}: this is used by {@link HibernateContentRetriever}, since the retrieval
+	 * chain already records the user's question together with the final answer.
+	 */
+	<T> SelectionQuery<T> createAiQuery(
+			Object conversationId,
+			String message,
+			SharedSessionContract session,
+			Class<T> resultType,
+			boolean storeMessage) {
+		final String prompt = message;
+		final UserMessage userMessage = userMessage( message, resultType );
+		final List<ChatMessage> history = storeMessage ?
+				conversations.add( conversationId, userMessage ) :
+				conversations.messages( conversationId );
+		// follow-up questions depend on the previous turns, so their queries can't be cached by prompt
+		final boolean cacheable = history.stream().allMatch( m -> m == userMessage || m instanceof SystemMessage );
+
+		final String cachedHql = cacheable && queryCache != null ?
+				queryCache.get( prompt, resultType, metamodelFingerprint ) :
+				null;
+		if ( cachedHql != null ) {
+			log.debugf( "Cached HQL: %s", cachedHql );
+			return createSelectionQuery( cachedHql, session, resultType );
+		}
+
+		final Embedding embedding = cacheable && semanticQueryCache != null ? semanticQueryCache.embed( prompt ) : null;
+		if ( embedding != null ) {
+			final String similarHql = semanticQueryCache.get( embedding, prompt, resultType, metamodelFingerprint );
+			if ( similarHql != null ) {
+				// not stored in the exact cache, a similar prompt is not necessarily the same question
+				log.debugf( "Cached HQL for similar prompt: %s", similarHql );
+				return createSelectionQuery( similarHql, session, resultType );
+			}
+		}
+
+		final SystemMessage systemMessage = systemMessage( prompt );
+		final List<ChatMessage> messages = withSystemMessage( systemMessage, history );
+		if ( !storeMessage ) {
+			messages.add( userMessage );
+		}
+
+		final String hql = generateValidHql( messages, systemMessage, userMessage, resultType, session.getFactory() );
+
+		final SelectionQuery<T> query = createSelectionQuery( hql, session, resultType );
+		// only cache queries that were successfully interpreted
+		if ( cacheable && queryCache != null ) {
+			queryCache.put( prompt, resultType, metamodelFingerprint, hql );
+		}
+		if ( embedding != null ) {
+			semanticQueryCache.put( embedding, prompt, resultType, metamodelFingerprint, hql );
+		}
+		return query;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Up to {@link Builder#batchParallelism(int)} chat requests are sent concurrently, running on the
+	 * configured {@link Builder#executor(ExecutorService) executor}, while queries are created in the calling
+	 * thread. Each request only contains the domain model system message and the prompt itself, the chat memory
+	 * is neither used nor updated. Queries found in the {@link #getQueryCache() query cache} are not requested
+	 * again, and successfully created queries are stored in it. If the calling thread is interrupted while
+	 * waiting, the requests still in flight are cancelled.
+	 */
+	@Override
+	public <T> List<AiQueryResult<T>> createAiQueries(
+			List<String> messages,
+			SharedSessionContract session,
+			Class<T> resultType) {
+		// send a single request for prompts that only differ in whitespace or trailing punctuation
+		final Map<String, CompletableFuture<String>> requests = new LinkedHashMap<>();
+		final Semaphore permits = new Semaphore( batchParallelism );
+		for ( String message : messages ) {
+			requests.computeIfAbsent( AiQueryCache.normalize( message ), k -> {
+				final String cachedHql = queryCache != null ?
+						queryCache.get( message, resultType, metamodelFingerprint ) :
+						null;
+				if ( cachedHql != null ) {
+					return CompletableFuture.completedFuture( cachedHql );
+				}
+				final SystemMessage systemMessage = systemMessage( message );
+				final UserMessage userMessage = userMessage( message, resultType );
+				return InterruptibleFuture.submit(
+						() -> {
+							permits.acquire();
+							try {
+								return generateValidHql(
+										List.of( systemMessage, userMessage ),
+										systemMessage,
+										userMessage,
+										resultType,
+										session.getFactory()
+								);
+							}
+							finally {
+								permits.release();
+							}
+						},
+						executor
+				);
+			} );
+		}
+
+		final List<AiQueryResult<T>> results = new ArrayList<>( messages.size() );
+		for ( String message : messages ) {
+			try {
+				final String hql = requests.get( AiQueryCache.normalize( message ) ).get();
+				final SelectionQuery<T> query = createSelectionQuery( hql, session, resultType );
+				if ( queryCache != null ) {
+					queryCache.put( message, resultType, metamodelFingerprint, hql );
+				}
+				results.add( AiQueryResult.success( message, query ) );
+			}
+			catch (InterruptedException e) {
+				requests.values().forEach( request -> request.cancel( true ) );
+				Thread.currentThread().interrupt();
+				throw new RuntimeException( e );
+			}
+			catch (ExecutionException e) {
+				results.add( AiQueryResult.failure( message, e.getCause() ) );
+			}
+			catch (RuntimeException e) {
+				results.add( AiQueryResult.failure( message, e ) );
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Creates a {@link SelectionQuery} for the given HQL generated by the LLM, limited to the first
+	 * {@link Builder#pageSize(int) page} of results unless it already defines a limit or map-reduce answering
+	 * is enabled. The page never exceeds the maximum number of results of the {@link Builder#queryGuard(QueryGuard)
+	 * query guard}, and keeps the {@code offset} of the query, if any. When enabled, literals are replaced
+	 * by parameters.
+	 */
+	private <T> SelectionQuery<T> createSelectionQuery(String hql, SharedSessionContract session, Class<T> resultType) {
+		final SelectionQuery<T> query = parameterizeLiterals ?
+				createParameterizedQuery( hql, session, resultType ) :
+				session.createSelectionQuery( hql, resultType );
+		if ( mapReduceChunkLength == 0 && QueryPaginator.getMaxResults( query ) == Integer.MAX_VALUE ) {
+			QueryPaginator.limitMaxResults( query, Math.min( pageSize, maxPagedResults() ) );
+		}
+		if ( fetchSize == 0 && query.getFetchSize() == null ) {
+			query.setFetchSize( pageSize );
+		}
+		return query;
+	}
+
+	private static <T> SelectionQuery<T> createParameterizedQuery(
+			String hql,
+			SharedSessionContract session,
+			Class<T> resultType) {
+		final ParameterizedHql parameterized = LiteralParameterizer.parameterize( hql );
+		if ( !parameterized.parameters().isEmpty() ) {
+			try {
+				final SelectionQuery<T> query = session.createSelectionQuery( parameterized.hql(), resultType );
+				parameterized.parameters().forEach( query::setParameter );
+				return query;
+			}
+			catch (HibernateException | IllegalArgumentException e) {
+				log.debugf( "Could not parameterize literals, using the original query: %s", e.getMessage() );
+			}
+		}
+		return session.createSelectionQuery( hql, resultType );
+	}
+
+	private <T> UserMessage userMessage(String message, Class<T> resultType) {
+		final ManagedDomainType<T> managedType = resultType != null && resultType != Object.class && !resultType.isInterface() ?
+				metamodel.findManagedType( resultType ) :
+				null;
+		if ( managedType != null ) {
+			message += "\nThe query must return objects of type \"" + managedType.getTypeName() + "\".";
+		}
+		return UserMessage.from( message );
+	}
+
+	private SystemMessage systemMessage(String prompt) {
+		return domainModelPruner != null ?
+				// only send the part of the domain model that is relevant to the question
+				metamodelPromptTemplate.apply( domainModelPruner.getDomainModelPrompt( prompt ) ).toSystemMessage() :
+				metamodelPrompt;
+	}
+
+	/**
+	 * Generates an HQL query and checks that it's a valid selection query, i.e. that it can be parsed and
+	 * semantically interpreted against the domain model, without executing it. When it's not, the error
+	 * reported by Hibernate is sent back to the LLM asking to fix the query, up to the configured
+	 * {@link Builder#maxRepairAttempts(int) maximum number of attempts}. Repair requests only contain
+	 * the system message, the original question, the invalid query and the error, regardless of
+	 * the context used to generate the first query. With {@link Builder#speculativeCandidates(int)
+	 * speculative candidates}, the first query is the first valid candidate, if any.
+	 *
+	 * @return the valid HQL query
+	 */
+	private String generateValidHql(
+			List<ChatMessage> messages,
+			SystemMessage systemMessage,
+			UserMessage userMessage,
+			Class<?> resultType,
+			SessionFactory sessionFactory) {
+		// a valid candidate is interpreted again below, which is cheap thanks to the query interpretation cache
+		String hql = speculativeCandidates > 1 ?
+				generateCandidates( messages, resultType, sessionFactory ) :
+				generateHql( messages );
+		for ( int attempt = 1; ; attempt++ ) {
+			final long start = System.nanoTime();
+			final RuntimeException error = validateHql( hql, resultType, sessionFactory );
+			metrics.onStage( AssistantMetrics.Stage.HQL_INTERPRETATION, System.nanoTime() - start );
+			if ( error == null ) {
+				return hql;
+			}
+			else if ( attempt > maxRepairAttempts ) {
+				throw error;
+			}
+			log.debugf( "Invalid HQL (repair attempt %d): %s", attempt, error.getMessage() );
+			hql = generateHql( List.of(
+					systemMessage,
+					userMessage,
+					hqlMessage( hql == null ? "" : hql, structuredJson ),
+					UserMessage.from( "The query is not valid, Hibernate reported the following error:\n"
+											+ error.getMessage()
+											+ "\nFix the query so that it answers the original question." )
+			) );
+		}
+	}
+
+	/**
+	 * Sends {@link Builder#speculativeCandidates(int)} concurrent requests with increasing temperatures, and
+	 * validates each candidate query as soon as it's received.
+	 *
+	 * @return the first valid candidate, or the first one when none is valid
+	 *
+	 * @throws RuntimeException the failure of the first request, when no candidate is valid
+	 */
+	private String generateCandidates(List<ChatMessage> messages, Class<?> resultType, SessionFactory sessionFactory) {
+		final CompletableFuture<String> valid = new CompletableFuture<>();
+		final List<CompletableFuture<String>> candidates = new ArrayList<>( speculativeCandidates );
+		for ( int i = 0; i < speculativeCandidates; i++ ) {
+			final Double temperature = i == 0 ? null : Math.min( 1.0, CANDIDATE_TEMPERATURE_STEP * i );
+			candidates.add( InterruptibleFuture.submit(
+					() -> {
+						final String hql = generateHql( messages, temperature );
+						final long start = System.nanoTime();
+						final RuntimeException error = validateHql( hql, resultType, sessionFactory );
+						metrics.onStage( AssistantMetrics.Stage.HQL_INTERPRETATION, System.nanoTime() - start );
+						if ( error == null ) {
+							valid.complete( hql );
+						}
+						else {
+							log.debugf( "Invalid HQL candidate (temperature %s): %s", temperature, error.getMessage() );
+						}
+						return hql;
+					},
+					FAN_OUT_EXECUTOR
+			) );
+		}
+
+		// wait until a candidate is valid, or all of them were received
+		try {
+			CompletableFuture.anyOf( valid, CompletableFuture.allOf( candidates.toArray( new CompletableFuture<?>[0] ) ) )
+					.handle( (result, error) -> null )
+					.get();
+		}
+		catch (InterruptedException e) {
+			candidates.forEach( candidate -> candidate.cancel( true ) );
+			Thread.currentThread().interrupt();
+			throw new RuntimeException( e );
+		}
+		catch (ExecutionException e) {
+			// never thrown, failures are handled above
+			throw new RuntimeException( e.getCause() );
+		}
+		if ( valid.isDone() ) {
+			candidates.forEach( candidate -> candidate.cancel( true ) );
+			return valid.join();
+		}
+		try {
+			return candidates.getFirst().join();
+		}
+		catch (CompletionException e) {
+			throw e.getCause() instanceof RuntimeException runtimeException ? runtimeException : e;
+		}
+	}
+
+	/**
+	 * @return the error describing why the query is not valid, or {@code null} if it is
+	 */
+	private RuntimeException validateHql(String hql, Class<?> resultType, SessionFactory sessionFactory) {
+		if ( hql == null || hql.isBlank() ) {
+			return new IllegalArgumentException( "The response did not contain an HQL query" );
+		}
+		if ( parameterizeLiterals ) {
+			// interpret the query that will be executed, so that its interpretation is cached
+			final String parameterized = LiteralParameterizer.parameterize( hql ).hql();
+			if ( !parameterized.equals( hql ) && interpretHql( parameterized, resultType, sessionFactory ) == null ) {
+				return null;
+			}
+		}
+		return interpretHql( hql, resultType, sessionFactory );
+	}
+
+	private static RuntimeException interpretHql(String hql, Class<?> resultType, SessionFactory sessionFactory) {
+		try {
+			final HqlInterpretation<?> interpretation = ( (SessionFactoryImplementor) sessionFactory ).getQueryEngine()
+					.interpretHql( hql, resultType );
+			if ( !( interpretation.getSqmStatement() instanceof SqmSelectStatement<?> ) ) {
+				return new IllegalSelectQueryException( "Expecting a selection query, but found `" + hql + "`", hql );
+			}
+			return null;
+		}
+		catch (HibernateException | IllegalArgumentException e) {
+			return e;
+		}
+	}
+
+	private String generateHql(List<ChatMessage> messages) {
+		return generateHql( messages, null );
+	}
+
+	private String generateHql(List<ChatMessage> messages, Double temperature) {
+		final ChatRequest.Builder requestBuilder = ChatRequest.builder().messages( messages ).temperature( temperature );
+		if ( structuredJson ) {
+			requestBuilder.responseFormat( hqlResponseFormat() );
+		}
+
+		final ChatRequest chatRequest = requestBuilder.build();
+
+		final String hql = streamHql ?
+				streamHql( chatRequest ) :
+				extractHql( chat( chatRequest ), structuredJson );
+
+		log.debugf( "Extracted HQL: %s", hql );
+
+		return hql;
+	}
+
+	/**
+	 * Streams the response to the given request, returning the HQL query as soon as it's complete. The rest
+	 * of the response is ignored, though the whole exchange is still recorded in the metrics once it ends.
+	 */
+	private String streamHql(ChatRequest chatRequest) {
+		final IncrementalHqlExtractor extractor = new IncrementalHqlExtractor( structuredJson );
+		final CompletableFuture<String> hql = new CompletableFuture<>();
+		final long start = System.nanoTime();
+		streamingChatModel.chat( chatRequest, new StreamingChatResponseHandler() {
+			@Override
+			public void onPartialResponse(String partialResponse) {
+				if ( !hql.isDone() && extractor.append( partialResponse ) ) {
+					metrics.onStage( AssistantMetrics.Stage.CHAT, System.nanoTime() - start );
+					hql.complete( extractor.hql() );
+				}
+			}
+
+			@Override
+			public void onCompleteResponse(ChatResponse completeResponse) {
+				recordChat( chatRequest, completeResponse );
+				if ( !hql.isDone() ) {
+					metrics.onStage( AssistantMetrics.Stage.CHAT, System.nanoTime() - start );
+					try {
+						hql.complete( extractHql( completeResponse, structuredJson ) );
+					}
+					catch (RuntimeException e) {
+						hql.completeExceptionally( e );
+					}
+				}
+			}
+
+			@Override
+			public void onError(Throwable error) {
+				hql.completeExceptionally( error );
+			}
+		} );
+
+		try {
+			return hql.get( streamHqlTimeout.toNanos(), TimeUnit.NANOSECONDS );
+		}
+		catch (InterruptedException e) {
+			hql.completeExceptionally( e );
+			Thread.currentThread().interrupt();
+			throw new RuntimeException( e );
+		}
+		catch (TimeoutException e) {
+			// ignore the rest of the response, if it ever arrives
+			hql.completeExceptionally( e );
+			throw new RuntimeException( "No complete HQL query was streamed within " + streamHqlTimeout, e );
+		}
+		catch (ExecutionException e) {
+			throw e.getCause() instanceof RuntimeException runtimeException ?
+					runtimeException :
+					new RuntimeException( e.getCause() );
+		}
+	}
+
+	private ChatResponse chat(ChatRequest chatRequest) {
+		final long start = System.nanoTime();
+		final ChatResponse chatResponse = chatModel.chat( chatRequest );
+		metrics.onStage( AssistantMetrics.Stage.CHAT, System.nanoTime() - start );
+		recordChat( chatRequest, chatResponse );
+		return chatResponse;
+	}
+
+	private void recordChat(ChatRequest chatRequest, ChatResponse chatResponse) {
+		int promptLength = 0;
+		for ( ChatMessage message : chatRequest.messages() ) {
+			promptLength += length( message );
+		}
+		final TokenUsage tokenUsage = chatResponse.metadata() != null ? chatResponse.metadata().tokenUsage() : null;
+		metrics.onChat(
+				promptLength,
+				length( chatResponse.aiMessage() ),
+				tokenUsage != null ? tokenUsage.inputTokenCount() : null,
+				tokenUsage != null ? tokenUsage.outputTokenCount() : null
+		);
+	}
+
+	private static int length(ChatMessage message) {
+		return switch ( message ) {
+			case SystemMessage systemMessage -> systemMessage.text().length();
+			case UserMessage userMessage -> {
+				int length = 0;
+				for ( Content content : userMessage.contents() ) {
+					if ( content instanceof TextContent textContent ) {
+						length += textContent.text().length();
+					}
+				}
+				yield length;
+			}
+			case AiMessage aiMessage -> aiMessage.text() != null ? aiMessage.text().length() : 0;
+			case ToolExecutionResultMessage toolMessage -> toolMessage.text().length();
+			case null, default -> 0;
+		};
+	}
+
+	/**
+	 * Prepends the given system message to a conversation's messages. Memories don't usually contain system
+	 * messages, since the domain model one is shared by all conversations, but user-provided memories might.
+	 */
+	private static List<ChatMessage> withSystemMessage(SystemMessage systemMessage, List<ChatMessage> history) {
+		final List<ChatMessage> messages = new ArrayList<>( history.size() + 2 );
+		messages.add( systemMessage );
+		for ( ChatMessage message : history ) {
+			if ( !( message instanceof SystemMessage ) ) {
+				messages.add( message );
+			}
+		}
+		return messages;
+	}
+
+	private static String extractHql(ChatResponse chatResponse, boolean structuredJson) {
+		final String response = chatResponse.aiMessage().text();
+
+		log.debugf( "Raw model response: %s", response );
+
+		if ( structuredJson ) {
+			final HqlHolder hqlHolder;
+			try {
+				hqlHolder = OBJECT_MAPPER.readValue( response, HqlHolder.class );
+			}
+			catch (JsonProcessingException e) {
+				throw new RuntimeException( e );
+			}
+
+			return hqlHolder.hqlQuery();
+		}
+		else {
+			return IncrementalHqlExtractor.extractHql( response );
+		}
+	}
+
+	/**
+	 * @return the response the model would have sent with the given query, in the format it was asked to use
+	 */
+	private static AiMessage hqlMessage(String hql, boolean structuredJson) {
+		if ( structuredJson ) {
+			try {
+				return AiMessage.from( OBJECT_MAPPER.writeValueAsString( new HqlHolder( hql ) ) );
+			}
+			catch (JsonProcessingException e) {
+				throw new RuntimeException( e );
+			}
+		}
+		else {
+			return AiMessage.from( hql );
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Each request results in exactly two round trips to the LLM: one to generate the HQL query, and one
+	 * to answer the original question based on the serialized query results. Only the (augmented) question
+	 * and the final answer are stored in the conversation's {@link ChatMemory}, so the memory needs to be able
+	 * to store at least 2 messages: the augmented user request and the natural language response.
+	 * <p>
+	 * You can also use this RAG-like (retrieval-augmented generation) functionality through the
+	 * {@link HibernateContentRetriever} that directly plugs into LangChain4J's {@link RetrievalAugmentor} APIs.
+	 *
+	 * @param conversationId the id of the conversation
+	 * @param message the natural language request
+	 * @param sessionFactory Hibernate's session factory
+	 *
+	 * @return a natural language response based on the results of the query
+	 */
+	@Override
+	public String executeQuery(Object conversationId, String message, SessionFactory sessionFactory) {
+		final RetrievalAugmentor retrievalAugmentor = retrievalAugmentors.computeIfAbsent(
+				sessionFactory,
+				this::createRetrievalAugmentor
+		);
+		// same as LangChain4j's ConversationalRetrievalChain, but with a per-conversation memory
+		final UserMessage userMessage = UserMessage.from( message );
+		final Metadata metadata = Metadata.from( userMessage, conversationId, conversations.messages( conversationId ) );
+		final ChatMessage augmentedMessage = retrievalAugmentor.augment( new AugmentationRequest( userMessage, metadata ) )
+				.chatMessage();
+
+		final List<ChatMessage> history = conversations.add( conversationId, augmentedMessage );
+		final ChatRequest chatRequest = ChatRequest.builder()
+				.messages( withSystemMessage( metamodelPrompt, history ) )
+				.build();
+
+		final AiMessage aiMessage = chat( chatRequest ).aiMessage();
+		conversations.add( conversationId, aiMessage );
+		return aiMessage.text();
+	}
+
+	@Override
+	public CompletableFuture<String> executeQueryAsync(
+			Object conversationId,
+			String message,
+			SessionFactory sessionFactory) {
+		return InterruptibleFuture.submit(
+				() -> executeQuery( conversationId, message, sessionFactory ),
+				executor
+		);
+	}
+
+	private RetrievalAugmentor createRetrievalAugmentor(SessionFactory sessionFactory) {
+		final HibernateContentRetriever contentRetriever = new HibernateContentRetriever( this, sessionFactory );
+		return DefaultRetrievalAugmentor.builder()
+				.contentRetriever( contentRetriever )
+				.contentInjector( DefaultContentInjector.builder().promptTemplate( INJECTOR_PROMPT_TEMPLATE ).build() )
+				.build();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Note that this requires the conversation's {@link ChatMemory} to be able to store at least 2 messages:
+	 * the initial request to create the query and the textual representation of the query results.
+	 * When {@linkplain Builder#mapReduceChunkLength(int) map-reduce answering} is enabled, the latter is replaced
+	 * by the request combining the partial answers based on each chunk of the results.
+	 */
+	@Override
+	public String executeQuery(Object conversationId, SelectionQuery<?> query, SharedSessionContract session) {
+		final ChatResponse chatResponse = chat( answerRequest( conversationId, query, session ) );
+		return chatResponse.aiMessage().text();
+	}
+
+	/**
+	 * Same as {@link #executeQuery(SelectionQuery, SharedSessionContract)}, but the natural language response
+	 * is streamed to the given handler as it's generated by the configured {@link StreamingChatModel}.
+	 *
+	 * @param query the AI query to execute
+	 * @param session the session in which to execute the query
+	 * @param handler the handler receiving the partial and complete responses
+	 *
+	 * @see #executeQueryStreaming(Object, SelectionQuery, SharedSessionContract, StreamingChatResponseHandler)
+	 */
+	public void executeQueryStreaming(
+			SelectionQuery<?> query,
+			SharedSessionContract session,
+			StreamingChatResponseHandler handler) {
+		executeQueryStreaming( DEFAULT_CONVERSATION_ID, query, session, handler );
+	}
+
+	/**
+	 * Executes the given {@link SelectionQuery}, and streams a natural language response, generated by passing
+	 * the resulting data back to the configured {@link StreamingChatModel}, to the given handler. The query
+	 * is executed in the calling thread, while the handler is notified of each partial response as soon as it
+	 * is received, usually from the model's own threads. Once the response is complete, the final answer is
+	 * recorded in the conversation's {@link ChatMemory} before notifying the handler.
+	 *
+	 * @param conversationId the id of the conversation
+	 * @param query the AI query to execute
+	 * @param session the session in which to execute the query
+	 * @param handler the handler receiving the partial and complete responses
+	 *
+	 * @throws IllegalStateException if no {@link StreamingChatModel} was configured,
+	 * see {@link Builder#streamingChatModel(StreamingChatModel)}
+	 */
+	public void executeQueryStreaming(
+			Object conversationId,
+			SelectionQuery<?> query,
+			SharedSessionContract session,
+			StreamingChatResponseHandler handler) {
+		if ( streamingChatModel == null ) {
+			throw new IllegalStateException( "No StreamingChatModel was configured for this assistant" );
+		}
+		ensureNotNull( handler, "StreamingChatResponseHandler" );
+		final ChatRequest chatRequest = answerRequest( conversationId, query, session );
+		final long start = System.nanoTime();
+		streamingChatModel.chat( chatRequest, new StreamingChatResponseHandler() {
+			@Override
+			public void onPartialResponse(String partialResponse) {
+				handler.onPartialResponse( partialResponse );
+			}
+
+			@Override
+			public void onCompleteResponse(ChatResponse completeResponse) {
+				metrics.onStage( AssistantMetrics.Stage.CHAT, System.nanoTime() - start );
+				recordChat( chatRequest, completeResponse );
+				conversations.add( conversationId, completeResponse.aiMessage() );
+				handler.onCompleteResponse( completeResponse );
+			}
+
+			@Override
+			public void onError(Throwable error) {
+				handler.onError( error );
+			}
+		} );
+	}
+
+	/**
+	 * Executes the query and creates the request asking the LLM to answer the original question
+	 * based on the results. The prompt containing the results is added to the conversation's memory.
+	 */
+	private ChatRequest answerRequest(Object conversationId, SelectionQuery<?> query, SharedSessionContract session) {
+		final String prompt = mapReduceChunkLength > 0 ?
+				mapReducePrompt( conversationId, query, session ) :
+				resultsPrompt( executeQueryToString( query, session ), resultFormat );
+
+		log.debugf( "Query result prompt: %s", prompt );
+
+		final UserMessage userMessage = UserMessage.from( prompt );
+		final List<ChatMessage> history = conversations.add( conversationId, userMessage );
+
+		return ChatRequest.builder()
+				.messages( withSystemMessage( metamodelPrompt, history ) )
+				.build();
+	}
+
+	private static String resultsPrompt(String result, ResultFormat format) {
+		return "The query returned the following data:\n" + result +
+				( format == ResultFormat.TABULAR ? "\n" + TabularFormat.DESCRIPTION : "" ) +
+				// this seems to be needed, otherwise with some models we just get an HQL query
+				"\nAnswer the original question using natural language and do not create a query!";
+	}
+
+	/**
+	 * Spills all the query results to a temporary file and asks the LLM for a partial answer based on each
+	 * chunk, see {@link Builder#mapReduceChunkLength(int)}. Returns the prompt asking to combine the partial
+	 * answers, or the one containing the results themselves when they fit in a single chunk.
+	 */
+	private String mapReducePrompt(Object conversationId, SelectionQuery<?> query, SharedSessionContract session) {
+		prepareQuery( query, session );
+		try (final ResultSpill spill = ResultSpill.create( mapReduceChunkLength )) {
+			QuerySerializer.serializeRows( query, session, spill::append, metrics );
+			if ( spill.chunkCount() <= 1 ) {
+				return resultsPrompt(
+						spill.chunkCount() == 0 ? "The query did not return any results." : spill.chunk( 0 ),
+						ResultFormat.JSON
+				);
+			}
+
+			final List<ChatMessage> history = withSystemMessage(
+					metamodelPrompt,
+					conversations.messages( conversationId )
+			);
+			final List<String> partialAnswers = combinePartialAnswers(
+					history,
+					spill.chunkCount(),
+					partialAnswers( history, spill )
+			);
+			final StringBuilder prompt = new StringBuilder( "The query returned " ).append( spill.rowCount() )
+					.append( " rows, which were split into " ).append( spill.chunkCount() )
+					.append( " parts. These are the answers based on them:\n" );
+			appendAnswers( prompt, partialAnswers );
+			return prompt.append( "Combine them to answer the original question using natural language" )
+					.append( " and do not create a query!" )
+					.toString();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException( e );
+		}
+	}
+
+	/**
+	 * Sends a request for each chunk of the spilled results. Chunks are only read from the file once
+	 * a request can be sent, and the chat memory is neither used for the answers nor updated.
+	 */
+	private List<String> partialAnswers(List<ChatMessage> history, ResultSpill spill) {
+		final int parts = spill.chunkCount();
+		final List<Callable<String>> requests = new ArrayList<>( parts );
+		for ( int i = 0; i < parts; i++ ) {
+			final int index = i;
+			requests.add( () -> partialAnswer(
+					history,
+					"The query returned too much data to read at once, so it was split into " + parts
+							+ " parts. This is part " + ( index + 1 ) + ":\n" + spill.chunk( index )
+							+ "\nExtract from this part only what is needed to answer the original question,"
+							+ " e.g. matching rows, counts or partial sums, and do not create a query!"
+			) );
+		}
+		return chatConcurrently( requests );
+	}
+
+	/**
+	 * Combines consecutive partial answers in groups of at most {@link Builder#mapReduceChunkLength(int)}
+	 * characters, until all of them fit in a single chunk, so that the final request stays bounded
+	 * regardless of the number of parts.
+	 */
+	private List<String> combinePartialAnswers(List<ChatMessage> history, int parts, List<String> partialAnswers) {
+		List<String> answers = partialAnswers;
+		while ( answers.size() > 1 && length( answers ) > mapReduceChunkLength ) {
+			final List<Callable<String>> requests = new ArrayList<>();
+			int start = 0;
+			while ( start < answers.size() ) {
+				// each group combines at least two answers, even if they are longer than a chunk
+				int end = Math.min( start + 2, answers.size() );
+				int length = length( answers.subList( start, end ) );
+				while ( end < answers.size() && length + answers.get( end ).length() <= mapReduceChunkLength ) {
+					length += answers.get( end++ ).length();
+				}
+				final List<String> group = answers.subList( start, end );
+				if ( group.size() == 1 ) {
+					requests.add( group::getFirst );
+				}
+				else {
+					final StringBuilder prompt = new StringBuilder(
+							"The query returned too much data to read at once, so it was split into " )
+							.append( parts ).append( " parts. These are some of the answers based on them:\n" );
+					appendAnswers( prompt, group );
+					prompt.append( "Combine them into a single answer, keeping only what is needed to answer" )
+							.append( " the original question, e.g. matching rows, counts or partial sums," )
+							.append( " and do not create a query!" );
+					requests.add( () -> partialAnswer( history, prompt.toString() ) );
+				}
+				start = end;
+			}
+			answers = chatConcurrently( requests );
+		}
+		return answers;
+	}
+
+	private String partialAnswer(List<ChatMessage> history, String prompt) {
+		final List<ChatMessage> messages = new ArrayList<>( history.size() + 1 );
+		messages.addAll( history );
+		messages.add( UserMessage.from( prompt ) );
+		return chat( ChatRequest.builder().messages( messages ).build() ).aiMessage().text();
+	}
+
+	/**
+	 * Runs the given requests with up to {@link Builder#batchParallelism(int)} of them at the same time.
+	 * If any of them fails, or the calling thread is interrupted while waiting, the others are cancelled.
+	 *
+	 * @return the answers, in the same order as the requests
+	 */
+	private List<String> chatConcurrently(List<Callable<String>> requests) {
+		final Semaphore permits = new Semaphore( batchParallelism );
+		final List<CompletableFuture<String>> futures = new ArrayList<>( requests.size() );
+		for ( Callable<String> request : requests ) {
+			futures.add( InterruptibleFuture.submit(
+					() -> {
+						permits.acquire();
+						try {
+							return request.call();
+						}
+						finally {
+							permits.release();
+						}
+					},
+					FAN_OUT_EXECUTOR
+			) );
+		}
+
+		final List<String> answers = new ArrayList<>( requests.size() );
+		try {
+			for ( CompletableFuture<String> future : futures ) {
+				answers.add( future.get() );
+			}
+		}
+		catch (InterruptedException e) {
+			futures.forEach( future -> future.cancel( true ) );
+			Thread.currentThread().interrupt();
+			throw new RuntimeException( e );
+		}
+		catch (ExecutionException e) {
+			futures.forEach( future -> future.cancel( true ) );
+			throw e.getCause() instanceof RuntimeException runtimeException ?
+					runtimeException :
+					new RuntimeException( e.getCause() );
+		}
+		return answers;
+	}
+
+	private static void appendAnswers(StringBuilder prompt, List<String> answers) {
+		for ( int i = 0; i < answers.size(); i++ ) {
+			prompt.append( "Answer " ).append( i + 1 ).append( ": " ).append( answers.get( i ) ).append( '\n' );
+		}
+	}
+
+	private static int length(List<String> answers) {
+		int length = 0;
+		for ( String answer : answers ) {
+			length += answer.length();
+		}
+		return length;
+	}
+
+	@Override
+	public CompletableFuture<String> executeQueryAsync(
+			Object conversationId,
+			SelectionQuery<?> query,
+			SharedSessionContract session) {
+		return InterruptibleFuture.submit( () -> executeQuery( conversationId, query, session ), executor );
+	}
+
+	/**
+	 * Executes the given {@link SelectionQuery} as a {@link org.hibernate.query.SelectionQuery}, and provides
+	 * a string representation of the response. The string will be created based on Hibernate's
+	 * knowledge of the domain model, but it will not print the entire object tree since that
+	 * would cause circularity problems. This is a best-effort attempt at providing a useful
+	 * string-representation based on data, mainly used to pass it back to a {@link ChatModel}
+	 * like in {@link #executeQuery(SelectionQuery, SharedSessionContract)}.
+	 * <p>
+	 * If you wish to execute the query manually and obtain the structured results yourself,
+	 * you should use {@link SelectionQuery}'s direct execution methods, e.g. {@link SelectionQuery#getResultList()}
+	 * or {@link SelectionQuery#getSingleResult()}.
+	 * <p>
+	 * The representation uses the configured {@link Builder#resultFormat(ResultFormat) result format}, and is
+	 * limited to the configured {@link Builder#maxResultLength(int) maximum length}: when there are more results,
+	 * it ends with a footer reporting how many rows were included.
+	 *
+	 * @param query the AI query to execute
+	 * @param session the session in which to execute the query
+	 *
+	 * @return a natural language response based on the results of the query
+	 *
+	 * @see #writeQueryResults(SelectionQuery, SharedSessionContract, Appendable)
+	 */
+	public String executeQueryToString(SelectionQuery<?> query, SharedSessionContract session) {
+		final StringBuilder sb = new StringBuilder();
+		final long count;
+		try {
+			count = writeQueryResults( query, session, sb, maxResultLength );
+		}
+		catch (IOException e) {
+			// a StringBuilder never throws
+			throw new UncheckedIOException( e );
+		}
+		return count == 0 ? "The query did not return any results." : sb.toString();
+	}
+
+	/**
+	 * Executes the given {@link SelectionQuery} and writes the string representation of its results,
+	 * as described in {@link #executeQueryToString(SelectionQuery, SharedSessionContract)}, to the provided
+	 * {@link Appendable} (e.g. a {@link java.io.Writer}). Rows are scrolled and written one at a time with the
+	 * configured {@link Builder#fetchSize(int) fetch size}, so memory usage does not depend on the number of
+	 * results, and loaded entities are evicted from the session as they are written.
+	 *
+	 * @param query the AI query to execute
+	 * @param session the session in which to execute the query
+	 * @param appendable where to write the query results
+	 *
+	 * @return the number of rows written
+	 *
+	 * @throws IOException if writing to the {@link Appendable} fails
+	 * @see QuerySerializer#serialize(SelectionQuery, SharedSessionContract, Appendable)
+	 */
+	public long writeQueryResults(
+			SelectionQuery<?> query,
+			SharedSessionContract session,
+			Appendable appendable) throws IOException {
+		return writeQueryResults( query, session, appendable, 0 );
+	}
+
+	private long writeQueryResults(
+			SelectionQuery<?> query,
+			SharedSessionContract session,
+			Appendable appendable,
+			int maxLength) throws IOException {
+		prepareQuery( query, session );
+		return QuerySerializer.serialize( query, session, appendable, maxLength, metrics, resultFormat );
+	}
+
+	private void prepareQuery(SelectionQuery<?> query, SharedSessionContract session) {
+		if ( queryGuard != null ) {
+			queryGuard.check( query, session );
+		}
+		if ( fetchSize > 0 && query.getFetchSize() == null ) {
+			query.setFetchSize( fetchSize );
+		}
+	}
+
+	/**
+	 * Executes the given {@link SelectionQuery} and returns the first {@link Builder#pageSize(int) page} of
+	 * its results. The following pages can be retrieved with {@link #nextPage(AiQueryPage, SharedSessionContract)},
+	 * without requesting a new query to the LLM.
+	 *
+	 * @param query the AI query to execute
+	 * @param session the session in which to execute the query
+	 *
+	 * @return the first page of results
+	 *
+	 * @see QueryPaginator
+	 */
+	public <T> AiQueryPage<T> executeQueryPage(SelectionQuery<T> query, SharedSessionContract session) {
+		if ( queryGuard != null ) {
+			queryGuard.check( query, session );
+		}
+		return QueryPaginator.firstPage( query, session, pageSize, maxPagedResults() );
+	}
+
+	/**
+	 * Retrieves the page of results following the given one, reusing the same query. Whenever possible the
+	 * query is restricted to the results following the last identifier of the previous page, instead of
+	 * skipping the previous results, so that retrieving deep pages stays fast. Like the first page, the following
+	 * ones never include results past the maximum number of results of the {@link Builder#queryGuard(QueryGuard)
+	 * query guard}.
+	 *
+	 * @param page the previous page
+	 * @param session the session in which to execute the query
+	 *
+	 * @return the next page of results, empty if there are no more results
+	 *
+	 * @see QueryPaginator
+	 */
+	public <T> AiQueryPage<T> nextPage(AiQueryPage<T> page, SharedSessionContract session) {
+		return QueryPaginator.nextPage( page, session, pageSize, maxPagedResults() );
+	}
+
+	/**
+	 * @return the maximum number of results enforced by the {@link QueryGuard} across all pages
+	 */
+	private int maxPagedResults() {
+		return queryGuard != null && queryGuard.getMaxResults() > 0 ? queryGuard.getMaxResults() : Integer.MAX_VALUE;
+	}
+
+	AssistantMetrics getMetrics() {
+		return metrics;
+	}
+
+	record HqlHolder(String hqlQuery) {
+	}
+
+	private static ResponseFormat hqlResponseFormat() {
+		return ResponseFormat.builder().type( JSON ) // type can be either TEXT (default) or JSON
+				.jsonSchema( JsonSchema.builder().name( "HQL" ) // OpenAI requires specifying the name for the schema
+									 .rootElement( JsonObjectSchema.builder() // see [1] below
+														   .addStringProperty( "hqlQuery" )
+														   .required( "hqlQuery" ) // see [2] below
+														   .build() ).build() ).build();
+	}
+}
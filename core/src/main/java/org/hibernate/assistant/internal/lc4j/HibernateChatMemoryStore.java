@@ -0,0 +1,385 @@
+package org.hibernate.assistant.internal.lc4j;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+
+import org.jboss.logging.Logger;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageDeserializer;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiPredicate;
+
+import static dev.langchain4j.internal.ValidationUtils.ensureGreaterThanZero;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+
+/**
+ * {@link ChatMemoryStore} persisting chat messages in a table mapped by {@link ChatMessageEntity}, so that
+ * conversations survive restarts and can be shared by multiple JVMs. Messages are stored as JSON and never
+ * updated: the full history of each conversation is kept, while only the last {@code windowSize} messages
+ * are loaded when reading it.
+ * <p>
+ * Chat requests never wait for the database: the last messages of recently used conversations are kept in memory
+ * and serve reads, while new messages are written behind in the background. Cached messages are reloaded from
+ * the database once they are older than {@code cacheTimeToLive}, so that a conversation continued on another JVM
+ * sees the messages it wrote, once flushed, within that time. Pending writes are flushed every
+ * {@code flushInterval}, or as soon as {@code batchSize} of them accumulate, through a {@link StatelessSession}
+ * using JDBC batching. Writes that fail are retried with the next flush. Use {@link #flush()} to write pending
+ * messages synchronously, and {@link #close()} to flush them and stop the background thread.
+ * <p>
+ * The store is meant to be used by {@link MessageWindowChatMemory} instances, e.g. configured through
+ * {@link HibernateAssistantLC4J.Builder#chatMemoryStore(ChatMemoryStore)}, which always read the messages of a
+ * conversation before updating them: new messages are identified as the ones following the messages returned
+ * by the previous read, or if they are no longer cached, the ones following the stored messages.
+ * <p>
+ * Messages are ordered by creation time, and by identifier when created at the same time, since identifiers
+ * allocated by different JVMs don't follow the creation order.
+ */
+public class HibernateChatMemoryStore implements ChatMemoryStore, AutoCloseable {
+	private static final Logger log = Logger.getLogger( HibernateChatMemoryStore.class );
+
+	public static final int DEFAULT_WINDOW_SIZE = 10;
+
+	public static final int DEFAULT_BATCH_SIZE = 50;
+
+	public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofSeconds( 1 );
+
+	public static final Duration DEFAULT_CACHE_TIME_TO_LIVE = Duration.ofSeconds( 30 );
+
+	private static final int MAX_CACHED_CONVERSATIONS = 10_000;
+
+	private final SessionFactory sessionFactory;
+	private final int windowSize;
+	private final int batchSize;
+	private final long cacheTimeToLive;
+
+	// evicted conversations are reloaded from the database, together with their pending writes
+	private final Map<String, Window> windows = Collections.synchronizedMap( new LinkedHashMap<>( 16, 0.75f, true ) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Window> eldest) {
+			return size() > MAX_CACHED_CONVERSATIONS;
+		}
+	} );
+	// guarded by itself
+	private final Deque<Write> pending = new ArrayDeque<>();
+	private final ReentrantLock flushLock = new ReentrantLock();
+	private final AtomicBoolean flushRequested = new AtomicBoolean();
+	private final ScheduledExecutorService flusher;
+
+	/**
+	 * Creates a new store with the default window size, batch size, flush interval and cache time to live.
+	 *
+	 * @param sessionFactory a session factory including {@link ChatMessageEntity} in its domain model
+	 */
+	public HibernateChatMemoryStore(SessionFactory sessionFactory) {
+		this( sessionFactory, DEFAULT_WINDOW_SIZE, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL );
+	}
+
+	/**
+	 * Creates a new store with the default cache time to live.
+	 *
+	 * @param sessionFactory a session factory including {@link ChatMessageEntity} in its domain model
+	 * @param windowSize the maximum number of messages of each conversation kept in memory and loaded from the database
+	 * @param batchSize the JDBC batch size, also the number of pending writes triggering a flush
+	 * @param flushInterval the maximum time messages wait before being written to the database
+	 */
+	public HibernateChatMemoryStore(
+			SessionFactory sessionFactory,
+			int windowSize,
+			int batchSize,
+			Duration flushInterval) {
+		this( sessionFactory, windowSize, batchSize, flushInterval, DEFAULT_CACHE_TIME_TO_LIVE );
+	}
+
+	/**
+	 * Creates a new store instance.
+	 *
+	 * @param sessionFactory a session factory including {@link ChatMessageEntity} in its domain model
+	 * @param windowSize the maximum number of messages of each conversation kept in memory and loaded from the database
+	 * @param batchSize the JDBC batch size, also the number of pending writes triggering a flush
+	 * @param flushInterval the maximum time messages wait before being written to the database
+	 * @param cacheTimeToLive the maximum time messages are read from memory before being reloaded from the database
+	 */
+	public HibernateChatMemoryStore(
+			SessionFactory sessionFactory,
+			int windowSize,
+			int batchSize,
+			Duration flushInterval,
+			Duration cacheTimeToLive) {
+		this.sessionFactory = ensureNotNull( sessionFactory, "SessionFactory" );
+		this.windowSize = ensureGreaterThanZero( windowSize, "windowSize" );
+		this.batchSize = ensureGreaterThanZero( batchSize, "batchSize" );
+		this.cacheTimeToLive = ensureNotNull( cacheTimeToLive, "cacheTimeToLive" ).toNanos();
+		this.flusher = Executors.newSingleThreadScheduledExecutor( runnable -> {
+			final Thread thread = new Thread( runnable, "hibernate-assistant-chat-memory-flush" );
+			thread.setDaemon( true );
+			return thread;
+		} );
+		final long interval = ensureNotNull( flushInterval, "flushInterval" ).toMillis();
+		flusher.scheduleWithFixedDelay( this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS );
+	}
+
+	@Override
+	public List<ChatMessage> getMessages(Object memoryId) {
+		final String conversationId = memoryId.toString();
+		Window window = windows.get( conversationId );
+		if ( window == null || window.expiresAt() - System.nanoTime() < 0 ) {
+			window = cache( conversationId, load( conversationId ), System.nanoTime() + cacheTimeToLive );
+		}
+		return new ArrayList<>( window.messages() );
+	}
+
+	@Override
+	public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+		final String conversationId = memoryId.toString();
+		final Window previous = windows.get( conversationId );
+		final int start;
+		final long expiresAt;
+		if ( previous != null ) {
+			// the memory read the cached messages, even if they expired in the meantime
+			start = firstNewMessage( previous.messages(), messages, (message, stored) -> message == stored );
+			expiresAt = previous.expiresAt();
+		}
+		else {
+			// the cached messages were evicted since the memory read them, compare the stored ones by value
+			start = firstNewMessage( load( conversationId ), messages, Objects::equals );
+			expiresAt = System.nanoTime() + cacheTimeToLive;
+		}
+		final Instant now = Instant.now();
+		final List<Write> writes = new ArrayList<>( messages.size() - start );
+		for ( ChatMessage message : messages.subList( start, messages.size() ) ) {
+			writes.add( new Write( conversationId, message, now ) );
+		}
+		cache( conversationId, messages, expiresAt );
+		enqueue( writes );
+	}
+
+	@Override
+	public void deleteMessages(Object memoryId) {
+		final String conversationId = memoryId.toString();
+		windows.put( conversationId, new Window( List.of(), System.nanoTime() + cacheTimeToLive ) );
+		enqueue( List.of( new Write( conversationId, null, null ) ) );
+	}
+
+	/**
+	 * Aligns the stored messages with the end of the ones held by the memory, which might have dropped
+	 * the oldest ones or hold more than the window.
+	 *
+	 * @return the index of the first message which was not stored yet
+	 */
+	private static int firstNewMessage(
+			List<ChatMessage> stored,
+			List<ChatMessage> messages,
+			BiPredicate<ChatMessage, ChatMessage> same) {
+		for ( int start = messages.size(); start > 0 && !stored.isEmpty(); start-- ) {
+			final int overlap = Math.min( stored.size(), start );
+			boolean matches = true;
+			for ( int i = 1; i <= overlap && matches; i++ ) {
+				matches = same.test( messages.get( start - i ), stored.get( stored.size() - i ) );
+			}
+			if ( matches ) {
+				return start;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Synchronously writes all pending messages to the database.
+	 */
+	public void flush() {
+		flushLock.lock();
+		try {
+			flushRequested.set( false );
+			final List<Write> writes;
+			synchronized ( pending ) {
+				writes = new ArrayList<>( pending );
+				pending.clear();
+			}
+			if ( writes.isEmpty() ) {
+				return;
+			}
+			try {
+				write( writes );
+			}
+			catch (RuntimeException e) {
+				// put the writes back in front of the queue, they will be retried by the next flush
+				synchronized ( pending ) {
+					for ( ListIterator<Write> iterator = writes.listIterator( writes.size() ); iterator.hasPrevious(); ) {
+						pending.addFirst( iterator.previous() );
+					}
+				}
+				throw e;
+			}
+		}
+		finally {
+			flushLock.unlock();
+		}
+	}
+
+	/**
+	 * Flushes pending messages and stops the background thread writing them.
+	 */
+	@Override
+	public void close() {
+		flusher.shutdown();
+		flush();
+	}
+
+	private void flushQuietly() {
+		try {
+			flush();
+		}
+		catch (RuntimeException e) {
+			log.warnf( e, "Failed writing chat messages, retrying with the next flush" );
+		}
+	}
+
+	private void enqueue(List<Write> writes) {
+		if ( writes.isEmpty() ) {
+			return;
+		}
+		final int size;
+		synchronized ( pending ) {
+			pending.addAll( writes );
+			size = pending.size();
+		}
+		if ( size >= batchSize && flushRequested.compareAndSet( false, true ) && !flusher.isShutdown() ) {
+			flusher.execute( this::flushQuietly );
+		}
+	}
+
+	private void write(List<Write> writes) {
+		try (final StatelessSession session = sessionFactory.openStatelessSession()) {
+			session.setJdbcBatchSize( batchSize );
+			session.inTransaction( tx -> {
+				final Map<ChatMessageEntity, Write> inserts = new LinkedHashMap<>( writes.size() );
+				for ( Write write : writes ) {
+					if ( write.message() != null ) {
+						inserts.put( new ChatMessageEntity(
+								write.conversationId(),
+								ChatMessageSerializer.messageToJson( write.message() ),
+								write.createdAt()
+						), write );
+					}
+					else {
+						// keep the order of operations, inserts preceding a delete must be executed first
+						insert( session, inserts );
+						session.createMutationQuery( "delete from AiChatMessage where conversationId = :id" )
+								.setParameter( "id", write.conversationId() )
+								.executeUpdate();
+					}
+				}
+				insert( session, inserts );
+			} );
+		}
+		log.debugf( "Written %d chat memory operations", writes.size() );
+	}
+
+	private static void insert(StatelessSession session, Map<ChatMessageEntity, Write> inserts) {
+		session.insertMultiple( List.copyOf( inserts.keySet() ) );
+		inserts.forEach( (entity, write) -> write.id = entity.getId() );
+		inserts.clear();
+	}
+
+	/**
+	 * Loads the last messages of a conversation from the database, including the pending writes.
+	 */
+	private List<ChatMessage> load(String conversationId) {
+		final List<ChatMessage> messages = new ArrayList<>();
+		final List<Write> writes;
+		synchronized ( pending ) {
+			writes = pending.stream().filter( w -> w.conversationId().equals( conversationId ) ).toList();
+		}
+		final Set<Long> read = new HashSet<>();
+		if ( writes.stream().noneMatch( w -> w.message() == null ) ) {
+			final List<Object[]> stored = sessionFactory.fromStatelessSession( session -> session.createSelectionQuery(
+							"select id, message from AiChatMessage where conversationId = :id order by createdAt desc, id desc",
+							Object[].class
+					)
+					.setParameter( "id", conversationId )
+					.setMaxResults( windowSize )
+					.getResultList() );
+			for ( ListIterator<Object[]> iterator = stored.listIterator( stored.size() ); iterator.hasPrevious(); ) {
+				final Object[] row = iterator.previous();
+				read.add( (Long) row[0] );
+				messages.add( ChatMessageDeserializer.messageFromJson( (String) row[1] ) );
+			}
+		}
+		for ( Write write : writes ) {
+			if ( write.message() == null ) {
+				messages.clear();
+			}
+			else if ( write.id == null || !read.contains( write.id ) ) {
+				// the write might have been flushed after taking the snapshot, and then read from the database
+				messages.add( write.message() );
+			}
+		}
+		return messages;
+	}
+
+	private Window cache(String conversationId, List<ChatMessage> messages, long expiresAt) {
+		final Window window = new Window(
+				List.copyOf( messages.subList( Math.max( 0, messages.size() - windowSize ), messages.size() ) ),
+				expiresAt
+		);
+		windows.put( conversationId, window );
+		return window;
+	}
+
+	/**
+	 * The last messages of a conversation kept in memory, until {@code expiresAt} as returned by {@link System#nanoTime()}.
+	 */
+	private record Window(List<ChatMessage> messages, long expiresAt) {
+	}
+
+	/**
+	 * A pending write: either a message to insert or, when {@code message} is {@code null},
+	 * the deletion of all the messages of the conversation.
+	 */
+	private static final class Write {
+		private final String conversationId;
+		private final ChatMessage message;
+		private final Instant createdAt;
+		// the identifier of the inserted row, once written
+		private volatile Long id;
+
+		private Write(String conversationId, ChatMessage message, Instant createdAt) {
+			this.conversationId = conversationId;
+			this.message = message;
+			this.createdAt = createdAt;
+		}
+
+		String conversationId() {
+			return conversationId;
+		}
+
+		ChatMessage message() {
+			return message;
+		}
+
+		Instant createdAt() {
+			return createdAt;
+		}
+	}
+}
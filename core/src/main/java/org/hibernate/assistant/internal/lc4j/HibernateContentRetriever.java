@@ -2,6 +2,7 @@ package org.hibernate.assistant.internal.lc4j;
 
 import org.hibernate.SessionFactory;
 import org.hibernate.assistant.HibernateAssistant;
+import org.hibernate.assistant.spi.AssistantMetrics;
 import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.hibernate.query.SelectionQuery;
 import org.hibernate.query.spi.SqmQuery;
@@ -13,11 +14,13 @@ import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.input.PromptTemplate;
 import dev.langchain4j.rag.content.Content;
 import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Metadata;
 import dev.langchain4j.rag.query.Query;
 import java.util.List;
 
 import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
 import static java.util.Collections.emptyList;
+import static org.hibernate.assistant.HibernateAssistant.DEFAULT_CONVERSATION_ID;
 import static java.util.Collections.singletonList;
 
 public class HibernateContentRetriever implements ContentRetriever {
@@ -110,30 +113,54 @@ public class HibernateContentRetriever implements ContentRetriever {
 		this( builder.chatModel, builder.chatMemory, builder.metamodelPromptTemplate, builder.sessionFactory );
 	}
 
+	/**
+	 * Generates an HQL query from the natural language request, executes it and returns the serialized
+	 * results as {@link Content}. Note that this does not ask the LLM to answer the question itself, that is
+	 * left to the chain or service the retriever is plugged into, see {@link #INJECTOR_PROMPT_TEMPLATE}.
+	 * <p>
+	 * Generated queries are validated before execution, and invalid ones are repaired by the assistant,
+	 * see {@link HibernateAssistantLC4J.Builder#maxRepairAttempts(int)}. When no valid query could be obtained,
+	 * or its execution fails, no content is returned.
+	 */
 	@Override
 	public List<Content> retrieve(Query naturalLanguageQuery) {
-		// todo : we could implement configurable retries, and pass the error message to the chat model
-		//  something like the following:
-//		String errorMessage = null;
-//		int attemptsLeft = maxRetries + 1;
-//		while (attemptsLeft > 0) {
-//			attemptsLeft--;
-
+		final long start = System.nanoTime();
 		final String result = sessionFactory.fromSession( session -> {
-			final SelectionQuery<?> aiQuery = assistant.createAiQuery( naturalLanguageQuery.text(), session );
+			final SelectionQuery<?> aiQuery;
+			try {
+				aiQuery = assistant.createAiQuery(
+						conversationId( naturalLanguageQuery ),
+						naturalLanguageQuery.text(),
+						session,
+						null,
+						false
+				);
+			}
+			catch (Exception e) {
+				log.errorf( e, "Error creating query for request: %s", naturalLanguageQuery.text() );
+				return null;
+			}
 
 			try {
-				return assistant.executeQuery( aiQuery, session );
+				return assistant.executeQueryToString( aiQuery, session );
 			}
 			catch (Exception e) {
 				log.errorf( e, "Error executing query, hql: %s", ( (SqmQuery) aiQuery ).getQueryString() );
 				return null;
 			}
 		} );
+		assistant.getMetrics().onStage( AssistantMetrics.Stage.RETRIEVAL, System.nanoTime() - start );
 
 		return result == null ? emptyList() : singletonList( Content.from( result ) );
 	}
 
+	private static Object conversationId(Query naturalLanguageQuery) {
+		final Metadata metadata = naturalLanguageQuery.metadata();
+		return metadata != null && metadata.chatMemoryId() != null ?
+				metadata.chatMemoryId() :
+				DEFAULT_CONVERSATION_ID;
+	}
+
 	public static Builder builder() {
 		return new Builder();
 	}
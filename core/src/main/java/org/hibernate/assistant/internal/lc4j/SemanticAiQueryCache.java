@@ -0,0 +1,171 @@
+package org.hibernate.assistant.internal.lc4j;
+
+import org.hibernate.assistant.internal.AiQueryCache;
+import org.hibernate.assistant.internal.LiteralParameterizer;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import static dev.langchain4j.internal.ValidationUtils.ensureBetween;
+import static dev.langchain4j.internal.ValidationUtils.ensureGreaterThanZero;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+
+/**
+ * Semantic cache of the HQL queries generated for natural language prompts. Prompts are embedded through
+ * the provided {@link EmbeddingModel}, ideally an in-process one, and stored together with the generated HQL
+ * in an {@link InMemoryEmbeddingStore}. A new prompt whose cosine similarity with a previously stored one is
+ * at least the configured threshold reuses the stored query, as long as the requested result type and the
+ * domain model prompt are the same.
+ * <p>
+ * This complements the exact-text {@link AiQueryCache}: near-duplicate questions such as
+ * <i>"how many companies are in Milan?"</i> and <i>"count the companies located in Milan"</i>
+ * can be answered without a round trip to the chat model. Once {@code maxSize} queries are stored,
+ * the oldest ones are removed first.
+ * <p>
+ * Since prompts that only differ in a value, e.g. <i>"companies in Milan"</i> and <i>"companies in Rome"</i>,
+ * are usually very similar, a stored query is only reused if all the literals lifted from it by
+ * {@link LiteralParameterizer} also appear in the new prompt: i.e. the two queries would have the same
+ * parameterized form and the same parameter values.
+ */
+public class SemanticAiQueryCache {
+	private static final String RESULT_TYPE = "resultType";
+	private static final String FINGERPRINT = "metamodelFingerprint";
+	private static final String HQL = "hql";
+	private static final int MAX_CANDIDATES = 5;
+
+	private final EmbeddingModel embeddingModel;
+	private final double minScore;
+	private final int maxSize;
+	private final InMemoryEmbeddingStore<TextSegment> store = new InMemoryEmbeddingStore<>();
+	private final ArrayDeque<String> ids = new ArrayDeque<>();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Creates a new semantic cache instance.
+	 *
+	 * @param embeddingModel the model used to embed natural language prompts
+	 * @param minSimilarity the minimum cosine similarity, between {@code -1} and {@code 1},
+	 * for a stored prompt to be considered equivalent to a new one
+	 * @param maxSize the maximum number of cached queries
+	 */
+	public SemanticAiQueryCache(EmbeddingModel embeddingModel, double minSimilarity, int maxSize) {
+		this.embeddingModel = ensureNotNull( embeddingModel, "EmbeddingModel" );
+		this.minScore = RelevanceScore.fromCosineSimilarity( ensureBetween( minSimilarity, -1, 1, "minSimilarity" ) );
+		this.maxSize = ensureGreaterThanZero( maxSize, "maxSize" );
+	}
+
+	public Embedding embed(String prompt) {
+		return embeddingModel.embed( AiQueryCache.normalize( prompt ) ).content();
+	}
+
+	/**
+	 * Returns the HQL query stored for the most similar prompt, if any is similar enough and its literals
+	 * appear in the given prompt.
+	 *
+	 * @param embedding the embedding of the natural language prompt, see {@link #embed(String)}
+	 * @param prompt the natural language prompt
+	 * @param resultType the requested result type, can be {@code null}
+	 * @param metamodelFingerprint fingerprint of the domain model prompt
+	 *
+	 * @return the cached HQL string, or {@code null} if none was found
+	 */
+	public String get(Embedding embedding, String prompt, Class<?> resultType, String metamodelFingerprint) {
+		final List<EmbeddingMatch<TextSegment>> matches = store.search( EmbeddingSearchRequest.builder()
+				.queryEmbedding( embedding )
+				.filter( filter( resultType, metamodelFingerprint ) )
+				.minScore( minScore )
+				.maxResults( MAX_CANDIDATES )
+				.build() ).matches();
+		final String text = prompt.toLowerCase( Locale.ROOT );
+		for ( EmbeddingMatch<TextSegment> match : matches ) {
+			final String hql = match.embedded().metadata().getString( HQL );
+			if ( literalsAppearIn( hql, text ) ) {
+				hits.increment();
+				return hql;
+			}
+		}
+		misses.increment();
+		return null;
+	}
+
+	/**
+	 * Stores the HQL query generated for the given prompt.
+	 *
+	 * @param embedding the embedding of the natural language prompt, see {@link #embed(String)}
+	 * @param prompt the natural language prompt
+	 * @param resultType the requested result type, can be {@code null}
+	 * @param metamodelFingerprint fingerprint of the domain model prompt
+	 * @param hql the generated HQL query
+	 */
+	public void put(Embedding embedding, String prompt, Class<?> resultType, String metamodelFingerprint, String hql) {
+		final Metadata metadata = new Metadata()
+				.put( RESULT_TYPE, resultTypeName( resultType ) )
+				.put( FINGERPRINT, metamodelFingerprint )
+				.put( HQL, hql );
+		final String id = store.add( embedding, TextSegment.from( prompt, metadata ) );
+		synchronized ( ids ) {
+			ids.addLast( id );
+			if ( ids.size() > maxSize ) {
+				store.removeAll( List.of( ids.removeFirst() ) );
+			}
+		}
+	}
+
+	public void clear() {
+		synchronized ( ids ) {
+			store.removeAll();
+			ids.clear();
+		}
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	private static boolean literalsAppearIn(String hql, String text) {
+		for ( Object value : LiteralParameterizer.parameterize( hql ).parameters().values() ) {
+			final boolean found;
+			if ( value instanceof String string ) {
+				found = text.contains( string.toLowerCase( Locale.ROOT ) );
+			}
+			else {
+				// don't match e.g. 10 in 100 or 1.5
+				final String number = value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+				found = Pattern.compile( "(?<![\\d.])" + Pattern.quote( number ) + "(?![.,]?\\d)" ).matcher( text ).find();
+			}
+			if ( !found ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static Filter filter(Class<?> resultType, String metamodelFingerprint) {
+		return metadataKey( RESULT_TYPE ).isEqualTo( resultTypeName( resultType ) )
+				.and( metadataKey( FINGERPRINT ).isEqualTo( metamodelFingerprint ) );
+	}
+
+	private static String resultTypeName(Class<?> resultType) {
+		return resultType == null ? "" : resultType.getName();
+	}
+}
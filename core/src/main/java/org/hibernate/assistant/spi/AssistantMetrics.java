@@ -0,0 +1,67 @@
+package org.hibernate.assistant.spi;
+
+/**
+ * Listener notified by the assistant about the cost of each stage of its pipeline, to understand where time
+ * is spent when answering a request: in the LLM, interpreting the generated HQL, executing the SQL query
+ * or serializing its results. All methods do nothing by default, and {@link #NONE} ignores all events.
+ * <p>
+ * Implementations are called synchronously from the threads running the pipeline, possibly concurrently,
+ * so they must be thread-safe and should be cheap.
+ */
+public interface AssistantMetrics {
+	AssistantMetrics NONE = new AssistantMetrics() {
+	};
+
+	enum Stage {
+		/**
+		 * A round trip to the chat model, to generate or repair a query, or to answer a question.
+		 */
+		CHAT,
+		/**
+		 * Parsing and semantic interpretation of a query generated by the chat model.
+		 */
+		HQL_INTERPRETATION,
+		/**
+		 * Execution of a query, including reading the results from the database.
+		 */
+		QUERY_EXECUTION,
+		/**
+		 * Rendering the results of a query as text.
+		 */
+		SERIALIZATION,
+		/**
+		 * Retrieving the content for a natural language request, i.e. generating a query and executing it,
+		 * through {@link org.hibernate.assistant.internal.lc4j.HibernateContentRetriever}.
+		 */
+		RETRIEVAL
+	}
+
+	/**
+	 * Called when a stage of the pipeline completes.
+	 *
+	 * @param stage the stage
+	 * @param nanos the duration of the stage, in nanoseconds
+	 */
+	default void onStage(Stage stage, long nanos) {
+	}
+
+	/**
+	 * Called when the chat model responds to a request.
+	 *
+	 * @param promptLength the number of characters of the messages sent to the model
+	 * @param responseLength the number of characters of the model's response
+	 * @param inputTokens the number of input tokens reported by the model, {@code null} if unknown
+	 * @param outputTokens the number of output tokens reported by the model, {@code null} if unknown
+	 */
+	default void onChat(int promptLength, int responseLength, Integer inputTokens, Integer outputTokens) {
+	}
+
+	/**
+	 * Called when the results of a query have been serialized.
+	 *
+	 * @param rows the number of serialized rows
+	 * @param bytes the size of the serialized results, in UTF-8 encoded bytes
+	 */
+	default void onResults(long rows, long bytes) {
+	}
+}
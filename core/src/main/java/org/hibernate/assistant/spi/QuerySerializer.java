@@ -0,0 +1,844 @@
+package org.hibernate.assistant.spi;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Hibernate;
+import org.hibernate.SharedSessionContract;
+import org.hibernate.assistant.internal.JsonWriters;
+import org.hibernate.assistant.internal.JsonWriters.ValueWriter;
+import org.hibernate.assistant.internal.ResultFormat;
+import org.hibernate.assistant.internal.TabularFormat;
+import org.hibernate.dialect.JsonHelper.JsonAppender;
+import org.hibernate.engine.FetchTiming;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.metamodel.mapping.AttributeMapping;
+import org.hibernate.metamodel.mapping.BasicValuedModelPart;
+import org.hibernate.metamodel.mapping.CollectionPart;
+import org.hibernate.metamodel.mapping.EmbeddableMappingType;
+import org.hibernate.metamodel.mapping.EmbeddableValuedModelPart;
+import org.hibernate.metamodel.mapping.EntityIdentifierMapping;
+import org.hibernate.metamodel.mapping.EntityMappingType;
+import org.hibernate.metamodel.mapping.EntityValuedModelPart;
+import org.hibernate.metamodel.mapping.ModelPart;
+import org.hibernate.metamodel.mapping.PluralAttributeMapping;
+import org.hibernate.metamodel.mapping.ValuedModelPart;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.proxy.LazyInitializer;
+import org.hibernate.query.SelectionQuery;
+import org.hibernate.query.sqm.SqmExpressible;
+import org.hibernate.query.sqm.SqmSelectionQuery;
+import org.hibernate.query.sqm.tree.SqmExpressibleAccessor;
+import org.hibernate.query.sqm.tree.SqmStatement;
+import org.hibernate.query.sqm.tree.SqmVisitableNode;
+import org.hibernate.query.sqm.tree.domain.SqmPath;
+import org.hibernate.query.sqm.tree.from.SqmAttributeJoin;
+import org.hibernate.query.sqm.tree.from.SqmFrom;
+import org.hibernate.query.sqm.tree.from.SqmJoin;
+import org.hibernate.query.sqm.tree.from.SqmRoot;
+import org.hibernate.query.sqm.tree.select.SqmJpaCompoundSelection;
+import org.hibernate.query.sqm.tree.select.SqmSelectStatement;
+import org.hibernate.query.sqm.tree.select.SqmSelection;
+import org.hibernate.type.descriptor.java.JavaType;
+
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.Selection;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.hibernate.internal.util.NullnessUtil.castNonNull;
+
+public class QuerySerializer {
+	public static String serializeToString(
+			List<?> resultList,
+			SelectionQuery<?> query,
+			SessionFactoryImplementor factory) {
+		if ( resultList.isEmpty() ) {
+			return "[]";
+		}
+
+		final ValueWriter writer = compile( query, factory );
+		final StringBuilder sb = new StringBuilder();
+		final JsonAppender jsonAppender = new JsonAppender( sb, true );
+		char separator = '[';
+		for ( final Object value : resultList ) {
+			sb.append( separator );
+			writer.write( value, jsonAppender );
+			separator = ',';
+		}
+		sb.append( ']' );
+		return sb.toString();
+	}
+
+	/**
+	 * Executes the given query and writes the JSON representation of its results to the provided
+	 * {@link Appendable}, one row at a time. Results are read through {@link ScrollableResults}, so that
+	 * the full result list is never materialized, and each row is only buffered while it's being rendered.
+	 * <p>
+	 * To keep the persistence context small while scrolling, entities loaded by the query are evicted as
+	 * rows are written: if the session's persistence context was empty before executing the query it's
+	 * cleared periodically, otherwise the entities which were not managed before executing the query,
+	 * including the ones loaded transitively, are periodically detached.
+	 *
+	 * @param query the query to execute
+	 * @param session the session in which to execute the query
+	 * @param appendable where to write the serialized results
+	 *
+	 * @return the number of rows that were written
+	 *
+	 * @throws IOException if writing to the {@link Appendable} fails
+	 */
+	public static long serialize(
+			SelectionQuery<?> query,
+			SharedSessionContract session,
+			Appendable appendable) throws IOException {
+		return serialize( query, session, appendable, 0 );
+	}
+
+	/**
+	 * Same as {@link #serialize(SelectionQuery, SharedSessionContract, Appendable)}, but stops rendering rows
+	 * once the serialized results would exceed {@code maxLength} characters. The first row is always written.
+	 * When results are truncated, a footer like {@code (showing 200 of 48,213 rows)} is appended after the
+	 * JSON array, with the total number of rows obtained through {@link SelectionQuery#getResultCount()}.
+	 * The same footer is appended when the {@linkplain SelectionQuery#getMaxResults() row limit} of the query
+	 * is reached and more rows are available.
+	 *
+	 * @param query the query to execute
+	 * @param session the session in which to execute the query
+	 * @param appendable where to write the serialized results
+	 * @param maxLength the maximum number of characters to write, excluding the footer, {@code 0} for no limit
+	 *
+	 * @return the number of rows that were written
+	 *
+	 * @throws IOException if writing to the {@link Appendable} fails
+	 */
+	public static long serialize(
+			SelectionQuery<?> query,
+			SharedSessionContract session,
+			Appendable appendable,
+			int maxLength) throws IOException {
+		return serialize( query, session, appendable, maxLength, AssistantMetrics.NONE );
+	}
+
+	/**
+	 * Same as {@link #serialize(SelectionQuery, SharedSessionContract, Appendable, int)}, additionally reporting
+	 * the time spent executing the query and reading rows, and the time spent rendering them, as separate
+	 * {@linkplain AssistantMetrics.Stage stages}, as well as the number and size of the serialized rows.
+	 *
+	 * @param query the query to execute
+	 * @param session the session in which to execute the query
+	 * @param appendable where to write the serialized results
+	 * @param maxLength the maximum number of characters to write, excluding the footer, {@code 0} for no limit
+	 * @param metrics the listener notified about the serialization
+	 *
+	 * @return the number of rows that were written
+	 *
+	 * @throws IOException if writing to the {@link Appendable} fails
+	 */
+	public static long serialize(
+			SelectionQuery<?> query,
+			SharedSessionContract session,
+			Appendable appendable,
+			int maxLength,
+			AssistantMetrics metrics) throws IOException {
+		final ValueWriter writer = compile( query, (SessionFactoryImplementor) session.getFactory() );
+		final RowEvictor evictor = RowEvictor.forSession( session, query.getFetchSize() );
+		final StringBuilder row = new StringBuilder();
+		final JsonAppender jsonAppender = new JsonAppender( row, true );
+		long count = 0;
+		long length = 0;
+		long bytes = 0;
+		boolean truncated = false;
+		long executionNanos = 0;
+		long serializationNanos = 0;
+		long start = System.nanoTime();
+		try (final ScrollableResults<?> results = query.scroll( ScrollMode.FORWARD_ONLY )) {
+			while ( results.next() ) {
+				final Object value = results.get();
+				final long rendering = System.nanoTime();
+				executionNanos += rendering - start;
+				row.append( count == 0 ? '[' : ',' );
+				writer.write( value, jsonAppender );
+				if ( maxLength > 0 && count > 0 && length + row.length() + 1 > maxLength ) {
+					truncated = true;
+					serializationNanos += System.nanoTime() - rendering;
+					break;
+				}
+				appendable.append( row );
+				length += row.length();
+				bytes += utf8Length( row );
+				row.setLength( 0 );
+				start = System.nanoTime();
+				serializationNanos += start - rendering;
+				evictor.evict( ++count );
+			}
+			if ( !truncated ) {
+				executionNanos += System.nanoTime() - start;
+			}
+		}
+		evictor.finish();
+		appendable.append( count == 0 ? "[]" : "]" );
+		bytes += count == 0 ? 2 : 1;
+		if ( truncated || count >= query.getMaxResults() ) {
+			start = System.nanoTime();
+			final String footer = truncationFooter( query, count, truncated );
+			executionNanos += System.nanoTime() - start;
+			if ( footer != null ) {
+				appendable.append( footer );
+				bytes += utf8Length( footer );
+			}
+		}
+		metrics.onStage( AssistantMetrics.Stage.QUERY_EXECUTION, executionNanos );
+		metrics.onStage( AssistantMetrics.Stage.SERIALIZATION, serializationNanos );
+		metrics.onResults( count, bytes );
+		return count;
+	}
+
+	/**
+	 * Executes the given query and passes the JSON representation of each row, without any separator, to the
+	 * provided consumer. Like {@link #serialize(SelectionQuery, SharedSessionContract, Appendable)}, results are
+	 * scrolled and loaded entities are evicted as rows are consumed, so no limit is needed on the number of rows.
+	 *
+	 * @param query the query to execute
+	 * @param session the session in which to execute the query
+	 * @param consumer the consumer of the serialized rows, which must not retain them
+	 * @param metrics the listener notified about the serialization
+	 *
+	 * @return the number of rows that were serialized
+	 *
+	 * @throws IOException if the consumer fails
+	 */
+	public static long serializeRows(
+			SelectionQuery<?> query,
+			SharedSessionContract session,
+			RowConsumer consumer,
+			AssistantMetrics metrics) throws IOException {
+		final ValueWriter writer = compile( query, (SessionFactoryImplementor) session.getFactory() );
+		final RowEvictor evictor = RowEvictor.forSession( session, query.getFetchSize() );
+		final StringBuilder row = new StringBuilder();
+		final JsonAppender jsonAppender = new JsonAppender( row, true );
+		long count = 0;
+		long bytes = 0;
+		long executionNanos = 0;
+		long serializationNanos = 0;
+		long start = System.nanoTime();
+		try (final ScrollableResults<?> results = query.scroll( ScrollMode.FORWARD_ONLY )) {
+			while ( results.next() ) {
+				final Object value = results.get();
+				final long rendering = System.nanoTime();
+				executionNanos += rendering - start;
+				writer.write( value, jsonAppender );
+				consumer.accept( row );
+				bytes += utf8Length( row );
+				row.setLength( 0 );
+				start = System.nanoTime();
+				serializationNanos += start - rendering;
+				evictor.evict( ++count );
+			}
+			executionNanos += System.nanoTime() - start;
+		}
+		evictor.finish();
+		metrics.onStage( AssistantMetrics.Stage.QUERY_EXECUTION, executionNanos );
+		metrics.onStage( AssistantMetrics.Stage.SERIALIZATION, serializationNanos );
+		metrics.onResults( count, bytes );
+		return count;
+	}
+
+	/**
+	 * Same as {@link #serialize(SelectionQuery, SharedSessionContract, Appendable, int, AssistantMetrics)}, writing
+	 * the results in the given {@linkplain ResultFormat format}. With the {@link ResultFormat#TABULAR tabular}
+	 * format rows are kept in memory until the last one is read, as the encoding of each column depends on all
+	 * of its values, so the query should be limited to a reasonable number of results.
+	 *
+	 * @param query the query to execute
+	 * @param session the session in which to execute the query
+	 * @param appendable where to write the serialized results
+	 * @param maxLength the maximum number of characters to write, excluding the footer, {@code 0} for no limit
+	 * @param metrics the listener notified about the serialization
+	 * @param format the format of the results
+	 *
+	 * @return the number of rows that were written
+	 *
+	 * @throws IOException if writing to the {@link Appendable} fails
+	 */
+	public static long serialize(
+			SelectionQuery<?> query,
+			SharedSessionContract session,
+			Appendable appendable,
+			int maxLength,
+			AssistantMetrics metrics,
+			ResultFormat format) throws IOException {
+		return format == ResultFormat.TABULAR ?
+				serializeTabular( query, session, appendable, maxLength, metrics ) :
+				serialize( query, session, appendable, maxLength, metrics );
+	}
+
+	private static long serializeTabular(
+			SelectionQuery<?> query,
+			SharedSessionContract session,
+			Appendable appendable,
+			int maxLength,
+			AssistantMetrics metrics) throws IOException {
+		final Columns columns = compileColumns( query, (SessionFactoryImplementor) session.getFactory() );
+		final RowEvictor evictor = RowEvictor.forSession( session, query.getFetchSize() );
+		final List<String[]> rows = new ArrayList<>();
+		// the length without encoding is an upper bound of the actual length
+		long length = TabularFormat.length( columns.names().toArray( new String[0] ) );
+		boolean truncated = false;
+		long executionNanos = 0;
+		long serializationNanos = 0;
+		long start = System.nanoTime();
+		try (final ScrollableResults<?> results = query.scroll( ScrollMode.FORWARD_ONLY )) {
+			while ( results.next() ) {
+				final Object value = results.get();
+				final long rendering = System.nanoTime();
+				executionNanos += rendering - start;
+				final String[] row = new String[columns.names().size()];
+				columns.writer().write( value, row, 0 );
+				final int rowLength = TabularFormat.length( row ) + 1;
+				if ( maxLength > 0 && !rows.isEmpty() && length + rowLength > maxLength ) {
+					truncated = true;
+					serializationNanos += System.nanoTime() - rendering;
+					break;
+				}
+				rows.add( row );
+				length += rowLength;
+				start = System.nanoTime();
+				serializationNanos += start - rendering;
+				evictor.evict( rows.size() );
+			}
+			if ( !truncated ) {
+				executionNanos += System.nanoTime() - start;
+			}
+		}
+		evictor.finish();
+
+		start = System.nanoTime();
+		final StringBuilder sb = new StringBuilder( (int) Math.min( length, Integer.MAX_VALUE ) );
+		TabularFormat.write( columns.names(), rows, sb );
+		serializationNanos += System.nanoTime() - start;
+		appendable.append( sb );
+		long bytes = utf8Length( sb );
+		if ( truncated || rows.size() >= query.getMaxResults() ) {
+			start = System.nanoTime();
+			final String footer = truncationFooter( query, rows.size(), truncated );
+			executionNanos += System.nanoTime() - start;
+			if ( footer != null ) {
+				appendable.append( footer );
+				bytes += utf8Length( footer );
+			}
+		}
+		metrics.onStage( AssistantMetrics.Stage.QUERY_EXECUTION, executionNanos );
+		metrics.onStage( AssistantMetrics.Stage.SERIALIZATION, serializationNanos );
+		metrics.onResults( rows.size(), bytes );
+		return rows.size();
+	}
+
+	/**
+	 * Receives the rows serialized by {@link #serializeRows(SelectionQuery, SharedSessionContract, RowConsumer,
+	 * AssistantMetrics)}.
+	 */
+	@FunctionalInterface
+	public interface RowConsumer {
+		/**
+		 * @param row the JSON representation of a row, only valid until this method returns
+		 *
+		 * @throws IOException if consuming the row fails
+		 */
+		void accept(CharSequence row) throws IOException;
+	}
+
+	private static long utf8Length(CharSequence chars) {
+		long length = chars.length();
+		for ( int i = 0; i < chars.length(); i++ ) {
+			final char c = chars.charAt( i );
+			if ( c >= 0x80 ) {
+				// surrogate pairs count 2 + 2, i.e. 4 bytes
+				length += c >= 0x800 && !Character.isSurrogate( c ) ? 2 : 1;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * @param truncated whether rows were left out because of the length limit, otherwise the row limit was reached
+	 *
+	 * @return the footer describing the rows that were left out, or {@code null} if there were none
+	 */
+	private static String truncationFooter(SelectionQuery<?> query, long count, boolean truncated) {
+		long total;
+		try {
+			// the count ignores the row limit, so it reports all the rows matching the query
+			total = query.getResultCount();
+		}
+		catch (RuntimeException e) {
+			// the count query could not be derived, e.g. because of fetch joins
+			total = -1;
+		}
+		if ( total > query.getFirstResult() + count ) {
+			return String.format( Locale.ROOT, "\n(showing %,d of %,d rows)", count, total );
+		}
+		else if ( truncated ) {
+			return String.format( Locale.ROOT, "\n(showing the first %,d rows, more are available)", count );
+		}
+		else if ( total < 0 ) {
+			return String.format( Locale.ROOT, "\n(showing the first %,d rows, more might be available)", count );
+		}
+		// the row limit matches the number of rows exactly
+		return null;
+	}
+
+	/**
+	 * Compiles the serialization plan of a query: the select clause is inspected and the mapping model parts
+	 * of all selections are resolved once, so that rendering each row of the results requires no further
+	 * metamodel lookups.
+	 */
+	private static ValueWriter compile(SelectionQuery<?> query, SessionFactoryImplementor factory) {
+		final List<SqmSelection<?>> selections = getSelections( query );
+		if ( selections.size() == 1 ) {
+			return compile( selections.getFirst().getSelectableNode(), factory );
+		}
+		else {
+			// wrap each result tuple in square brackets
+			final ValueWriter[] writers = new ValueWriter[selections.size()];
+			for ( int i = 0; i < writers.length; i++ ) {
+				writers[i] = compile( selections.get( i ).getSelectableNode(), factory );
+			}
+			return tupleWriter( writers );
+		}
+	}
+
+	private static List<SqmSelection<?>> getSelections(SelectionQuery<?> query) {
+		final SqmStatement<?> sqm = ( (SqmSelectionQuery<?>) query ).getSqmStatement();
+		if ( !( sqm instanceof SqmSelectStatement<?> sqmSelect ) ) {
+			throw new IllegalArgumentException( "Query is not a select statement." );
+		}
+		final List<SqmSelection<?>> selections = sqmSelect.getQuerySpec().getSelectClause().getSelections();
+		assert !selections.isEmpty();
+		return selections;
+	}
+
+	private static ValueWriter compile(Selection<?> selection, SessionFactoryImplementor factory) {
+		switch ( selection ) {
+			case SqmRoot<?> root -> {
+				final EntityPersister persister = factory.getMappingMetamodel()
+						.getEntityDescriptor( root.getEntityName() );
+				return JsonWriters.forFactory( factory ).entityWriter( persister.getEntityMappingType() );
+			}
+			case SqmPath<?> path -> {
+				// extract the attribute from the path
+				final ValuedModelPart subPart = getSubPart(
+						path.getLhs(),
+						path.getNavigablePath().getLocalName(),
+						factory
+				);
+				return subPart != null ?
+						JsonWriters.forFactory( factory ).writer( subPart ) :
+						expressibleWriter( path );
+			}
+			case SqmJpaCompoundSelection<?> compoundSelection -> {
+				final List<Selection<?>> compoundSelectionItems = compoundSelection.getCompoundSelectionItems();
+				assert compoundSelectionItems.size() > 1;
+				final ValueWriter[] writers = new ValueWriter[compoundSelectionItems.size()];
+				for ( int j = 0; j < writers.length; j++ ) {
+					writers[j] = compile( compoundSelectionItems.get( j ), factory );
+				}
+				return tupleWriter( writers );
+			}
+			case SqmExpressibleAccessor<?> node -> {
+				return expressibleWriter( node );
+			}
+			case null, default -> {
+				// best effort
+				return (value, jsonAppender) -> jsonAppender.append( '"' ).append( value.toString() ).append( '"' );
+			}
+		}
+	}
+
+	private static ValueWriter tupleWriter(ValueWriter[] writers) {
+		return (value, jsonAppender) -> {
+			char separator = '[';
+			for ( int i = 0; i < writers.length; i++ ) {
+				jsonAppender.append( separator );
+				writers[i].write( getValue( value, i ), jsonAppender );
+				separator = ',';
+			}
+			jsonAppender.append( ']' );
+		};
+	}
+
+	private static ValueWriter expressibleWriter(SqmExpressibleAccessor<?> node) {
+		//noinspection unchecked
+		final SqmExpressible<Object> expressible = (SqmExpressible<Object>) node.getExpressible();
+		final JavaType<Object> javaType = expressible != null ? expressible.getExpressibleJavaType() : null;
+		return (value, jsonAppender) -> {
+			final String result = javaType != null ?
+					javaType.toString( value ) :
+					value.toString(); // best effort
+			// avoid quoting numbers as they can be represented in JSON
+			if ( value instanceof Number ) {
+				jsonAppender.append( result );
+			}
+			else {
+				jsonAppender.append( '"' ).append( result ).append( '"' );
+			}
+		};
+	}
+
+	/**
+	 * Compiles the columns of the {@link ResultFormat#TABULAR tabular} format from the select clause of a query:
+	 * entities and embeddables are flattened into one column per attribute, named after the attribute's path,
+	 * while associated entities are represented by their identifier.
+	 */
+	private static Columns compileColumns(SelectionQuery<?> query, SessionFactoryImplementor factory) {
+		final List<SqmSelection<?>> selections = getSelections( query );
+		if ( selections.size() == 1 ) {
+			return columns( selections.getFirst().getSelectableNode(), selections.getFirst().getAlias(), true, factory );
+		}
+		else {
+			final List<Columns> children = new ArrayList<>( selections.size() );
+			final List<Function<Object, Object>> accessors = new ArrayList<>( selections.size() );
+			for ( int i = 0; i < selections.size(); i++ ) {
+				final SqmSelection<?> selection = selections.get( i );
+				final int index = i;
+				children.add( columns( selection.getSelectableNode(), selection.getAlias(), false, factory ) );
+				accessors.add( value -> getValue( value, index ) );
+			}
+			return Columns.composite( children, accessors );
+		}
+	}
+
+	private static Columns columns(
+			Selection<?> selection,
+			String alias,
+			boolean single,
+			SessionFactoryImplementor factory) {
+		switch ( selection ) {
+			case SqmRoot<?> root -> {
+				final EntityPersister persister = factory.getMappingMetamodel()
+						.getEntityDescriptor( root.getEntityName() );
+				// the attributes of a single entity need no prefix
+				final String prefix;
+				if ( single ) {
+					prefix = null;
+				}
+				else if ( alias != null ) {
+					prefix = alias;
+				}
+				else {
+					prefix = root.getExplicitAlias() != null ? root.getExplicitAlias() : root.getEntityName();
+				}
+				final Set<String> fetched = new HashSet<>();
+				for ( SqmJoin<?, ?> join : root.getSqmJoins() ) {
+					if ( join instanceof SqmAttributeJoin<?, ?> attributeJoin && attributeJoin.isFetched() ) {
+						fetched.add( attributeJoin.getNavigablePath().getLocalName() );
+					}
+				}
+				return entityColumns( persister.getEntityMappingType(), prefix, fetched, factory );
+			}
+			case SqmPath<?> path -> {
+				final ValuedModelPart subPart = getSubPart(
+						path.getLhs(),
+						path.getNavigablePath().getLocalName(),
+						factory
+				);
+				final String name = alias != null ? alias : getPathName( path );
+				// plural paths select the elements of the collection
+				final ValuedModelPart part = subPart instanceof PluralAttributeMapping plural ?
+						plural.getElementDescriptor() :
+						subPart;
+				if ( part instanceof EntityValuedModelPart entity ) {
+					return entityColumns( entity.getEntityMappingType(), name, Set.of(), factory );
+				}
+				return part != null ?
+						partColumns( part, name, factory ) :
+						expressibleColumns( path, name );
+			}
+			case SqmJpaCompoundSelection<?> compoundSelection -> {
+				final List<Selection<?>> compoundSelectionItems = compoundSelection.getCompoundSelectionItems();
+				final List<Columns> children = new ArrayList<>( compoundSelectionItems.size() );
+				final List<Function<Object, Object>> accessors = new ArrayList<>( compoundSelectionItems.size() );
+				for ( int j = 0; j < compoundSelectionItems.size(); j++ ) {
+					final Selection<?> item = compoundSelectionItems.get( j );
+					final int index = j;
+					children.add( columns( item, item.getAlias(), false, factory ) );
+					accessors.add( value -> getValue( value, index ) );
+				}
+				return Columns.composite( children, accessors );
+			}
+			case SqmExpressibleAccessor<?> node -> {
+				if ( alias == null && selection instanceof SqmVisitableNode visitable ) {
+					// name the column after the expression, e.g. count(e)
+					return expressibleColumns( node, visitable.toHqlString() );
+				}
+				return expressibleColumns( node, alias != null ? alias : "value" );
+			}
+			case null, default -> {
+				// best effort
+				return Columns.single( alias != null ? alias : "value", Object::toString );
+			}
+		}
+	}
+
+	/**
+	 * Collections are only included when they're fetched by the query or eagerly, as the columns of lazy ones
+	 * would only contain {@code <uninitialized>}.
+	 */
+	private static Columns entityColumns(
+			EntityMappingType entityMappingType,
+			String prefix,
+			Set<String> fetchedCollections,
+			SessionFactoryImplementor factory) {
+		final EntityIdentifierMapping identifierMapping = entityMappingType.getIdentifierMapping();
+		final List<Columns> children = new ArrayList<>( entityMappingType.getNumberOfAttributeMappings() + 1 );
+		final List<Function<Object, Object>> accessors = new ArrayList<>( entityMappingType.getNumberOfAttributeMappings() + 1 );
+		children.add( partColumns( identifierMapping, qualify( prefix, identifierMapping.getAttributeName() ), factory ) );
+		accessors.add( identifierMapping::getIdentifier );
+		for ( int i = 0; i < entityMappingType.getNumberOfAttributeMappings(); i++ ) {
+			final AttributeMapping attribute = entityMappingType.getAttributeMapping( i );
+			if ( attribute != identifierMapping && ( !( attribute instanceof PluralAttributeMapping )
+					|| fetchedCollections.contains( attribute.getAttributeName() )
+					|| attribute.getMappedFetchOptions().getTiming() == FetchTiming.IMMEDIATE ) ) {
+				children.add( partColumns( attribute, qualify( prefix, attribute.getAttributeName() ), factory ) );
+				accessors.add( attribute.getPropertyAccess().getGetter()::get );
+			}
+		}
+		final Columns columns = Columns.composite( children, accessors );
+		return new Columns(
+				columns.names(),
+				(value, cells, offset) -> columns.writer().write( Hibernate.unproxy( value ), cells, offset )
+		);
+	}
+
+	private static Columns partColumns(ModelPart part, String name, SessionFactoryImplementor factory) {
+		switch ( part ) {
+			case PluralAttributeMapping plural -> {
+				// collections don't fit in a single cell, use JSON
+				final ValueWriter writer = JsonWriters.forFactory( factory ).writer( plural );
+				return Columns.single( name, value -> {
+					final StringBuilder sb = new StringBuilder();
+					writer.write( value, new JsonAppender( sb, true ) );
+					return sb.toString();
+				} );
+			}
+			case EntityValuedModelPart entity -> {
+				final EntityIdentifierMapping identifierMapping = entity.getEntityMappingType().getIdentifierMapping();
+				return Columns.single( qualify( name, identifierMapping.getAttributeName() ), value -> {
+					// don't initialize proxies
+					final LazyInitializer lazyInitializer = HibernateProxy.extractLazyInitializer( value );
+					return String.valueOf( lazyInitializer != null ?
+												lazyInitializer.getInternalIdentifier() :
+												identifierMapping.getIdentifier( value ) );
+				} );
+			}
+			case EmbeddableValuedModelPart embeddable -> {
+				final EmbeddableMappingType embeddableType = embeddable.getEmbeddableTypeDescriptor();
+				final List<Columns> children = new ArrayList<>( embeddableType.getNumberOfAttributeMappings() );
+				final List<Function<Object, Object>> accessors = new ArrayList<>( embeddableType.getNumberOfAttributeMappings() );
+				for ( int i = 0; i < embeddableType.getNumberOfAttributeMappings(); i++ ) {
+					final AttributeMapping attribute = embeddableType.getAttributeMapping( i );
+					children.add( partColumns( attribute, qualify( name, attribute.getAttributeName() ), factory ) );
+					accessors.add( attribute.getPropertyAccess().getGetter()::get );
+				}
+				return Columns.composite( children, accessors );
+			}
+			case BasicValuedModelPart basic -> {
+				//noinspection unchecked
+				final JavaType<Object> javaType = (JavaType<Object>) basic.getJdbcMapping().getJavaTypeDescriptor();
+				return Columns.single( name, javaType::toString );
+			}
+			default -> {
+				return Columns.single( name, Object::toString );
+			}
+		}
+	}
+
+	private static Columns expressibleColumns(SqmExpressibleAccessor<?> node, String name) {
+		//noinspection unchecked
+		final SqmExpressible<Object> expressible = (SqmExpressible<Object>) node.getExpressible();
+		final JavaType<Object> javaType = expressible != null ? expressible.getExpressibleJavaType() : null;
+		return Columns.single(
+				name,
+				javaType != null ?
+						javaType::toString :
+						Object::toString // best effort
+		);
+	}
+
+	private static String getPathName(SqmPath<?> path) {
+		if ( path instanceof SqmFrom<?, ?> from && from.getExplicitAlias() != null ) {
+			return from.getExplicitAlias();
+		}
+		else if ( path instanceof SqmRoot<?> ) {
+			return null;
+		}
+		final String lhsName = path.getLhs() != null ? getPathName( path.getLhs() ) : null;
+		return qualify( lhsName, path.getNavigablePath().getLocalName() );
+	}
+
+	private static String qualify(String prefix, String name) {
+		return prefix != null ? prefix + '.' + name : name;
+	}
+
+	private static Object getValue(Object value, int index) {
+		if ( value.getClass().isArray() ) {
+			return ( (Object[]) value )[index];
+		}
+		else if ( value instanceof Tuple tuple ) {
+			return tuple.get( index );
+		}
+		else {
+			if ( index > 0 ) {
+				throw new IllegalArgumentException( "Index out of range: " + index );
+			}
+			return value;
+		}
+	}
+
+	private static ValuedModelPart getSubPart(
+			SqmPath<?> path,
+			String propertyName,
+			SessionFactoryImplementor factory) {
+		if ( path instanceof SqmRoot<?> root ) {
+			final EntityPersister entityDescriptor = factory.getMappingMetamodel()
+					.getEntityDescriptor( root.getEntityName() );
+			return entityDescriptor.findAttributeMapping( propertyName );
+		}
+		else {
+			// try to derive the subpart from the lhs
+			final ValuedModelPart subPart = getSubPart(
+					path.getLhs(),
+					path.getNavigablePath().getLocalName(),
+					factory
+			);
+			if ( subPart instanceof EmbeddableValuedModelPart embeddable ) {
+				return embeddable.getEmbeddableTypeDescriptor().findAttributeMapping( propertyName );
+			}
+			else if ( subPart instanceof EntityValuedModelPart entity ) {
+				return entity.getEntityMappingType().findAttributeMapping( propertyName );
+			}
+			else if ( subPart instanceof PluralAttributeMapping plural ) {
+				final CollectionPart.Nature nature = castNonNull( CollectionPart.Nature.fromNameExact( propertyName ) );
+				return switch ( nature ) {
+					case ELEMENT -> plural.getElementDescriptor();
+					case ID -> plural.getIdentifierDescriptor();
+					case INDEX -> plural.getIndexDescriptor();
+				};
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Writes the cells of a value, starting at {@code offset}, for the {@link ResultFormat#TABULAR tabular} format.
+	 */
+	@FunctionalInterface
+	private interface CellWriter {
+		void write(Object value, String[] cells, int offset);
+	}
+
+	private record Columns(List<String> names, CellWriter writer) {
+		static Columns single(String name, Function<Object, String> formatter) {
+			return new Columns(
+					List.of( name ),
+					(value, cells, offset) -> cells[offset] = value != null ? formatter.apply( value ) : null
+			);
+		}
+
+		static Columns composite(List<Columns> children, List<Function<Object, Object>> accessors) {
+			final List<String> names = new ArrayList<>();
+			final int[] offsets = new int[children.size()];
+			for ( int i = 0; i < children.size(); i++ ) {
+				offsets[i] = names.size();
+				names.addAll( children.get( i ).names() );
+			}
+			final CellWriter[] writers = new CellWriter[children.size()];
+			for ( int i = 0; i < writers.length; i++ ) {
+				writers[i] = children.get( i ).writer();
+			}
+			final List<Function<Object, Object>> accessorList = List.copyOf( accessors );
+			return new Columns( List.copyOf( names ), (value, cells, offset) -> {
+				for ( int i = 0; i < writers.length; i++ ) {
+					writers[i].write( value != null ? accessorList.get( i ).apply( value ) : null, cells, offset + offsets[i] );
+				}
+			} );
+		}
+	}
+
+	private interface RowEvictor {
+		int DEFAULT_CLEAR_INTERVAL = 100;
+
+		RowEvictor NONE = count -> {
+		};
+
+		void evict(long count);
+
+		/**
+		 * Called once all rows were written.
+		 */
+		default void finish() {
+		}
+
+		static RowEvictor forSession(SharedSessionContract session, Integer fetchSize) {
+			if ( !( session instanceof SessionImplementor sessionImplementor ) ) {
+				// stateless sessions have no persistence context
+				return NONE;
+			}
+			final PersistenceContext persistenceContext = sessionImplementor.getPersistenceContextInternal();
+			final int interval = fetchSize != null && fetchSize > 0 ? fetchSize : DEFAULT_CLEAR_INTERVAL;
+			if ( persistenceContext.getNumberOfManagedEntities() == 0
+					&& persistenceContext.getCollectionEntriesSize() == 0 ) {
+				// nothing else is managed by the session, we can safely clear it
+				return count -> {
+					if ( count % interval == 0 ) {
+						sessionImplementor.clear();
+					}
+				};
+			}
+			// only detach the entities loaded by the query, the others might have pending changes
+			final Set<Object> managed = Collections.newSetFromMap( new IdentityHashMap<>() );
+			for ( Map.Entry<Object, EntityEntry> entry : persistenceContext.reentrantSafeEntityEntries() ) {
+				managed.add( entry.getKey() );
+			}
+			return new RowEvictor() {
+				@Override
+				public void evict(long count) {
+					if ( count % interval == 0 ) {
+						detachLoaded( sessionImplementor, managed );
+					}
+				}
+
+				@Override
+				public void finish() {
+					detachLoaded( sessionImplementor, managed );
+				}
+			};
+		}
+
+		/**
+		 * Detaches all the entities which were not managed before executing the query, including the ones
+		 * loaded transitively, e.g. through eager associations or fetched collections.
+		 */
+		private static void detachLoaded(SessionImplementor session, Set<Object> managed) {
+			final PersistenceContext persistenceContext = session.getPersistenceContextInternal();
+			for ( Map.Entry<Object, EntityEntry> entry : persistenceContext.reentrantSafeEntityEntries() ) {
+				final Object entity = entry.getKey();
+				// detaching an entity might cascade to the others, so check they're still managed
+				if ( !managed.contains( entity ) && persistenceContext.getEntry( entity ) != null ) {
+					session.detach( entity );
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,267 @@
+package org.hibernate.assistant.async;
+
+import org.hibernate.assistant.AiQueryResult;
+import org.hibernate.assistant.domain.Address;
+import org.hibernate.assistant.domain.Company;
+import org.hibernate.assistant.domain.Employee;
+import org.hibernate.assistant.internal.lc4j.HibernateAssistantLC4J;
+import org.hibernate.assistant.util.FakeChatModel;
+import org.hibernate.query.SelectionQuery;
+
+import org.hibernate.testing.orm.junit.DomainModel;
+import org.hibernate.testing.orm.junit.SessionFactory;
+import org.hibernate.testing.orm.junit.SessionFactoryScope;
+import org.junit.jupiter.api.Test;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SessionFactory
+@DomainModel(annotatedClasses = { Company.class, Address.class, Employee.class })
+public class AsyncTests {
+	@Test
+	public void testCreateAiQueryAsync(SessionFactoryScope scope) {
+		final AtomicReference<Thread> chatThread = new AtomicReference<>();
+		final HibernateAssistantLC4J assistant = HibernateAssistantLC4J.builder()
+				.chatModel( FakeChatModel.builder()
+									.query( ".*", "from Company", null )
+									.respond( request -> {
+										chatThread.set( Thread.currentThread() );
+										return null;
+									} )
+									.build() )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.build();
+
+		scope.inTransaction( session -> {
+			final CompletableFuture<SelectionQuery<Company>> future = assistant.createAiQueryAsync(
+					"List all companies",
+					session,
+					Company.class
+			);
+			assertThat( future.join().getResultList() ).isEmpty();
+			assertThat( chatThread.get().isVirtual() ).isTrue();
+		} );
+	}
+
+	@Test
+	public void testSingleThreadExecutor(SessionFactoryScope scope) {
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		final HibernateAssistantLC4J assistant = HibernateAssistantLC4J.builder()
+				.chatModel( FakeChatModel.builder().query( ".*", "from Company", null ).build() )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.executor( executor )
+				.speculativeCandidates( 2 )
+				.build();
+
+		try {
+			scope.inSession( session -> {
+				// the candidates don't wait for the thread running the operation that requested them
+				final CompletableFuture<SelectionQuery<Company>> future = assistant.createAiQueryAsync(
+						"List all companies",
+						session,
+						Company.class
+				);
+				assertThat( future.completeOnTimeout( null, 10, TimeUnit.SECONDS ).join() ).isNotNull();
+				assertThat( assistant.createAiQueries( List.of( "All companies", "Every company" ), session, Company.class ) )
+						.allMatch( AiQueryResult::isSuccess );
+			} );
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testCancellationInterruptsChatRequest(SessionFactoryScope scope) throws InterruptedException {
+		final CountDownLatch started = new CountDownLatch( 1 );
+		final CountDownLatch interrupted = new CountDownLatch( 1 );
+		final AtomicBoolean completed = new AtomicBoolean();
+		final HibernateAssistantLC4J assistant = HibernateAssistantLC4J.builder()
+				.chatModel( FakeChatModel.builder()
+									.respond( request -> {
+										started.countDown();
+										try {
+											// simulate a slow LLM round trip
+											Thread.sleep( 30_000 );
+											completed.set( true );
+										}
+										catch (InterruptedException e) {
+											interrupted.countDown();
+											Thread.currentThread().interrupt();
+										}
+										throw new RuntimeException( "Chat request aborted" );
+									} )
+									.build() )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.build();
+
+		final CompletableFuture<String> future = assistant.executeQueryAsync(
+				"How many companies are there?",
+				scope.getSessionFactory()
+		);
+		assertThat( started.await( 10, TimeUnit.SECONDS ) ).isTrue();
+		assertThat( future.cancel( true ) ).isTrue();
+		assertThat( future.isCancelled() ).isTrue();
+		assertThat( interrupted.await( 10, TimeUnit.SECONDS ) ).isTrue();
+		assertThat( completed.get() ).isFalse();
+	}
+
+	@Test
+	public void testExecuteQueryStreaming(SessionFactoryScope scope) {
+		final FakeChatModel chatModel = FakeChatModel.builder()
+				.query( ".*", "select count(*) from Company", null )
+				.build();
+		final HibernateAssistantLC4J assistant = HibernateAssistantLC4J.builder()
+				.chatModel( chatModel )
+				.streamingChatModel( new StreamingChatModel() {
+					@Override
+					public void doChat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+						final List<String> tokens = List.of( "There ", "are ", "no ", "companies." );
+						tokens.forEach( handler::onPartialResponse );
+						handler.onCompleteResponse( ChatResponse.builder()
+															.aiMessage( AiMessage.from( String.join( "", tokens ) ) )
+															.build() );
+					}
+				} )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.build();
+
+		final List<String> partialResponses = new ArrayList<>();
+		final CompletableFuture<ChatResponse> completeResponse = new CompletableFuture<>();
+		scope.inTransaction( session -> {
+			final SelectionQuery<?> query = assistant.createAiQuery( "How many companies are there?", session );
+			assistant.executeQueryStreaming( query, session, new StreamingChatResponseHandler() {
+				@Override
+				public void onPartialResponse(String partialResponse) {
+					partialResponses.add( partialResponse );
+				}
+
+				@Override
+				public void onCompleteResponse(ChatResponse response) {
+					completeResponse.complete( response );
+				}
+
+				@Override
+				public void onError(Throwable error) {
+					completeResponse.completeExceptionally( error );
+				}
+			} );
+			assertThat( partialResponses ).containsExactly( "There ", "are ", "no ", "companies." );
+			assertThat( completeResponse.join().aiMessage().text() ).isEqualTo( "There are no companies." );
+
+			// the final answer is recorded in the chat memory
+			assistant.createAiQuery( "And employees?", session );
+			assertThat( chatModel.requests().getLast().messages() ).anyMatch(
+					m -> m instanceof AiMessage aiMessage && "There are no companies.".equals( aiMessage.text() )
+			);
+		} );
+	}
+
+	@Test
+	public void testInterruptCancelsBatchRequests(SessionFactoryScope scope) throws InterruptedException {
+		final CountDownLatch started = new CountDownLatch( 2 );
+		final CountDownLatch interrupted = new CountDownLatch( 2 );
+		final HibernateAssistantLC4J assistant = HibernateAssistantLC4J.builder()
+				.chatModel( FakeChatModel.builder()
+									.respond( request -> {
+										started.countDown();
+										try {
+											Thread.sleep( 30_000 );
+										}
+										catch (InterruptedException e) {
+											interrupted.countDown();
+											Thread.currentThread().interrupt();
+										}
+										return "from Company";
+									} )
+									.build() )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.build();
+
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		final Thread thread = Thread.ofVirtual().start( () -> scope.inSession( session -> {
+			try {
+				assistant.createAiQueries( List.of( "All companies", "Every company" ), session, Company.class );
+			}
+			catch (RuntimeException e) {
+				failure.set( e );
+			}
+		} ) );
+		assertThat( started.await( 10, TimeUnit.SECONDS ) ).isTrue();
+		thread.interrupt();
+		thread.join( 10_000 );
+
+		assertThat( failure.get() ).hasCauseInstanceOf( InterruptedException.class );
+		assertThat( interrupted.await( 10, TimeUnit.SECONDS ) ).isTrue();
+	}
+
+	@Test
+	public void testCreateAiQueries(SessionFactoryScope scope) {
+		final AtomicInteger inFlight = new AtomicInteger();
+		final AtomicInteger maxInFlight = new AtomicInteger();
+		final FakeChatModel chatModel = FakeChatModel.builder()
+				.query( "^invalid", "from Nothing", null )
+				.query( ".*", "from Company", null )
+				.respond( request -> {
+					maxInFlight.accumulateAndGet( inFlight.incrementAndGet(), Math::max );
+					try {
+						Thread.sleep( 50 );
+					}
+					catch (InterruptedException e) {
+						throw new RuntimeException( e );
+					}
+					finally {
+						inFlight.decrementAndGet();
+					}
+					return null;
+				} )
+				.build();
+		final HibernateAssistantLC4J assistant = HibernateAssistantLC4J.builder()
+				.chatModel( chatModel )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.batchParallelism( 3 )
+				.maxRepairAttempts( 0 )
+				.build();
+
+		final List<String> prompts = new ArrayList<>();
+		for ( int i = 0; i < 10; i++ ) {
+			prompts.add( "Companies number " + i );
+		}
+		prompts.add( 3, "invalid question" );
+		prompts.add( "Companies  number 1?" );
+
+		scope.inSession( session -> {
+			final List<AiQueryResult<Company>> results = assistant.createAiQueries( prompts, session, Company.class );
+			assertThat( results ).hasSize( prompts.size() );
+			for ( int i = 0; i < prompts.size(); i++ ) {
+				final AiQueryResult<Company> result = results.get( i );
+				assertThat( result.message() ).isEqualTo( prompts.get( i ) );
+				assertThat( result.isSuccess() ).isEqualTo( i != 3 );
+			}
+			assertThat( results.get( 3 ).failure() ).isNotNull();
+			assertThat( results.get( 0 ).query().getResultList() ).isEmpty();
+		} );
+
+		// the last prompt is a duplicate
+		assertThat( chatModel.requests() ).hasSize( 11 )
+				// each request only contains the system message and the prompt
+				.allSatisfy( request -> assertThat( request.messages() ).hasSize( 2 ) );
+		assertThat( maxInFlight.get() ).isBetween( 2, 3 );
+	}
+}
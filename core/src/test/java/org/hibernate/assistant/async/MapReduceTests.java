@@ -0,0 +1,281 @@
+package org.hibernate.assistant.async;
+
+import org.hibernate.assistant.domain.Address;
+import org.hibernate.assistant.domain.Company;
+import org.hibernate.assistant.domain.Employee;
+import org.hibernate.assistant.internal.ResultSpill;
+import org.hibernate.assistant.internal.lc4j.HibernateAssistantLC4J;
+import org.hibernate.assistant.util.FakeChatModel;
+import org.hibernate.query.SelectionQuery;
+
+import org.hibernate.testing.orm.junit.DomainModel;
+import org.hibernate.testing.orm.junit.SessionFactory;
+import org.hibernate.testing.orm.junit.SessionFactoryScope;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SessionFactory
+@DomainModel(annotatedClasses = { Company.class, Address.class, Employee.class })
+public class MapReduceTests {
+	private static final int COMPANIES = 30;
+	private static final Pattern PARTIAL_ANSWER = Pattern.compile( "Answer \\d+: (\\d+) companies" );
+
+	@BeforeAll
+	public void beforeAll(SessionFactoryScope scope) {
+		scope.inTransaction( session -> {
+			for ( long i = 1; i <= COMPANIES; i++ ) {
+				session.persist( new Company( i, "Company " + i, new Address( "City " + i, "Street " + i ) ) );
+			}
+		} );
+	}
+
+	@Test
+	public void testMapReduce(SessionFactoryScope scope) {
+		final List<String> chunks = new CopyOnWriteArrayList<>();
+		final AtomicInteger inFlight = new AtomicInteger();
+		final AtomicInteger maxInFlight = new AtomicInteger();
+		final FakeChatModel chatModel = FakeChatModel.builder()
+				.query( ".*", "from Company c order by c.id", null )
+				.respond( request -> {
+					final String prompt = prompt( request );
+					if ( prompt.contains( "This is part" ) ) {
+						maxInFlight.accumulateAndGet( inFlight.incrementAndGet(), Math::max );
+						try {
+							Thread.sleep( 20 );
+						}
+						catch (InterruptedException e) {
+							throw new RuntimeException( e );
+						}
+						finally {
+							inFlight.decrementAndGet();
+						}
+						final String chunk = prompt.substring( prompt.indexOf( '[' ), prompt.lastIndexOf( ']' ) + 1 );
+						chunks.add( chunk );
+						return chunk.split( "\"name\"" ).length - 1 + " companies";
+					}
+					else if ( prompt.contains( "Combine them" ) ) {
+						int total = 0;
+						for ( Matcher matcher = PARTIAL_ANSWER.matcher( prompt ); matcher.find(); ) {
+							total += Integer.parseInt( matcher.group( 1 ) );
+						}
+						return "There are " + total + " companies.";
+					}
+					return null;
+				} )
+				.build();
+		final HibernateAssistantLC4J assistant = HibernateAssistantLC4J.builder()
+				.chatModel( chatModel )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.pageSize( 10 )
+				.batchParallelism( 2 )
+				.mapReduceChunkLength( 500 )
+				.build();
+
+		scope.inSession( session -> {
+			final SelectionQuery<?> query = assistant.createAiQuery( "How many companies are there?", session );
+			// all results are processed, not just the first page
+			assertThat( query.getMaxResults() ).isEqualTo( Integer.MAX_VALUE );
+			assertThat( assistant.executeQuery( query, session ) ).isEqualTo( "There are 30 companies." );
+		} );
+
+		assertThat( chunks ).hasSizeGreaterThan( 2 ).allSatisfy(
+				chunk -> assertThat( chunk ).startsWith( "[{" ).endsWith( "}]" ).hasSizeLessThanOrEqualTo( 502 )
+		);
+		assertThat( maxInFlight.get() ).isLessThanOrEqualTo( 2 );
+
+		// the partial requests are not recorded in the chat memory
+		final List<ChatRequest> reduceRequests = chatModel.requests().stream()
+				.filter( request -> prompt( request ).contains( "Combine them" ) )
+				.toList();
+		assertThat( reduceRequests ).hasSize( 1 );
+		assertThat( reduceRequests.getFirst().messages() ).noneMatch(
+				m -> m instanceof UserMessage userMessage && userMessage.singleText().contains( "This is part" )
+		);
+	}
+
+	@Test
+	public void testPartialAnswersAreCombinedInGroups(SessionFactoryScope scope) {
+		final String padding = ", listed here with many details that make the answer long".repeat( 2 );
+		final FakeChatModel chatModel = FakeChatModel.builder()
+				.query( ".*", "from Company c order by c.id", null )
+				.respond( request -> {
+					final String prompt = prompt( request );
+					if ( prompt.contains( "This is part" ) ) {
+						final String chunk = prompt.substring( prompt.indexOf( '[' ), prompt.lastIndexOf( ']' ) + 1 );
+						return chunk.split( "\"name\"" ).length - 1 + " companies" + padding;
+					}
+					int total = 0;
+					for ( Matcher matcher = PARTIAL_ANSWER.matcher( prompt ); matcher.find(); ) {
+						total += Integer.parseInt( matcher.group( 1 ) );
+					}
+					if ( prompt.contains( "Combine them into a single answer" ) ) {
+						return total + " companies" + padding;
+					}
+					else if ( prompt.contains( "Combine them to answer" ) ) {
+						return "There are " + total + " companies.";
+					}
+					return null;
+				} )
+				.build();
+		final HibernateAssistantLC4J assistant = HibernateAssistantLC4J.builder()
+				.chatModel( chatModel )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.mapReduceChunkLength( 500 )
+				.build();
+
+		scope.inSession( session -> {
+			final SelectionQuery<?> query = assistant.createAiQuery( "How many companies are there?", session );
+			assertThat( assistant.executeQuery( query, session ) ).isEqualTo( "There are 30 companies." );
+		} );
+
+		// the answers are combined in bounded groups, more than once
+		final List<String> combinePrompts = chatModel.requests().stream()
+				.map( MapReduceTests::prompt )
+				.filter( prompt -> prompt.contains( "Combine them" ) )
+				.toList();
+		assertThat( combinePrompts ).hasSizeGreaterThan( 2 ).allSatisfy(
+				prompt -> assertThat( prompt ).hasSizeLessThan( 1000 )
+		);
+	}
+
+	@Test
+	public void testInterruptCancelsPartialRequests(SessionFactoryScope scope) throws InterruptedException {
+		final CountDownLatch started = new CountDownLatch( 2 );
+		final CountDownLatch interrupted = new CountDownLatch( 2 );
+		final FakeChatModel chatModel = FakeChatModel.builder()
+				.query( ".*", "from Company c order by c.id", null )
+				.respond( request -> {
+					if ( prompt( request ).contains( "This is part" ) ) {
+						started.countDown();
+						try {
+							Thread.sleep( 30_000 );
+						}
+						catch (InterruptedException e) {
+							interrupted.countDown();
+							Thread.currentThread().interrupt();
+						}
+						return "no companies";
+					}
+					return null;
+				} )
+				.build();
+		final HibernateAssistantLC4J assistant = HibernateAssistantLC4J.builder()
+				.chatModel( chatModel )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.batchParallelism( 2 )
+				.mapReduceChunkLength( 500 )
+				.build();
+
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		final Thread thread = Thread.ofVirtual().start( () -> scope.inSession( session -> {
+			try {
+				assistant.executeQuery( assistant.createAiQuery( "How many companies are there?", session ), session );
+			}
+			catch (RuntimeException e) {
+				failure.set( e );
+			}
+		} ) );
+		assertThat( started.await( 10, TimeUnit.SECONDS ) ).isTrue();
+		thread.interrupt();
+		thread.join( 10_000 );
+
+		assertThat( failure.get() ).hasCauseInstanceOf( InterruptedException.class );
+		assertThat( interrupted.await( 10, TimeUnit.SECONDS ) ).isTrue();
+	}
+
+	@Test
+	public void testSingleThreadExecutor(SessionFactoryScope scope) {
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		final FakeChatModel chatModel = FakeChatModel.builder()
+				.query( ".*", "from Company c order by c.id", null )
+				.respond( request -> {
+					final String prompt = prompt( request );
+					if ( prompt.contains( "This is part" ) ) {
+						return "Some companies";
+					}
+					return prompt.contains( "Combine them" ) ? "Many companies." : null;
+				} )
+				.build();
+		final HibernateAssistantLC4J assistant = HibernateAssistantLC4J.builder()
+				.chatModel( chatModel )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.executor( executor )
+				.mapReduceChunkLength( 500 )
+				.build();
+
+		try {
+			scope.inSession( session -> {
+				final SelectionQuery<?> query = assistant.createAiQuery( "How many companies are there?", session );
+				// the partial requests don't wait for the thread running the answer that requested them
+				assertThat( assistant.executeQueryAsync( query, session )
+									.completeOnTimeout( null, 10, TimeUnit.SECONDS )
+									.join() ).isEqualTo( "Many companies." );
+			} );
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testSingleChunk(SessionFactoryScope scope) {
+		final FakeChatModel chatModel = FakeChatModel.builder()
+				.query( ".*", "select c.name from Company c where c.id <= 2", null )
+				.build();
+		final List<ChatRequest> requests = chatModel.requests();
+		final HibernateAssistantLC4J assistant = HibernateAssistantLC4J.builder()
+				.chatModel( chatModel )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.mapReduceChunkLength( 500 )
+				.build();
+
+		scope.inSession( session -> {
+			final SelectionQuery<?> query = assistant.createAiQuery( "Name two companies", session );
+			assistant.executeQuery( query, session );
+		} );
+
+		// the results are sent as they are, without partial answers
+		assertThat( requests ).hasSize( 2 );
+		final ChatMessage last = requests.getLast().messages().getLast();
+		assertThat( ( (UserMessage) last ).singleText() )
+				.contains( "The query returned the following data:\n[\"Company 1\",\"Company 2\"]" );
+	}
+
+	@Test
+	public void testSpillChunks() throws IOException {
+		try (final ResultSpill spill = ResultSpill.create( 10 )) {
+			assertThat( spill.chunkCount() ).isZero();
+			spill.append( "1" );
+			spill.append( "\"città\"" );
+			spill.append( "\"longer than a chunk\"" );
+			spill.append( "2" );
+			spill.append( "3" );
+			assertThat( spill.rowCount() ).isEqualTo( 5 );
+			assertThat( spill.chunkCount() ).isEqualTo( 3 );
+			assertThat( spill.chunk( 0 ) ).isEqualTo( "[1,\"città\"]" );
+			assertThat( spill.chunk( 1 ) ).isEqualTo( "[\"longer than a chunk\"]" );
+			assertThat( spill.chunk( 2 ) ).isEqualTo( "[2,3]" );
+		}
+	}
+
+	private static String prompt(ChatRequest request) {
+		return ( (UserMessage) request.messages().getLast() ).singleText();
+	}
+}
@@ -0,0 +1,160 @@
+package org.hibernate.assistant.async;
+
+import org.hibernate.assistant.domain.Address;
+import org.hibernate.assistant.domain.Company;
+import org.hibernate.assistant.domain.Employee;
+import org.hibernate.assistant.internal.IncrementalHqlExtractor;
+import org.hibernate.assistant.internal.lc4j.HibernateAssistantLC4J;
+import org.hibernate.assistant.util.FakeChatModel;
+import org.hibernate.query.SelectionQuery;
+import org.hibernate.query.sqm.SqmSelectionQuery;
+
+import org.hibernate.testing.orm.junit.DomainModel;
+import org.hibernate.testing.orm.junit.SessionFactory;
+import org.hibernate.testing.orm.junit.SessionFactoryScope;
+import org.junit.jupiter.api.Test;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SessionFactory
+@DomainModel(annotatedClasses = { Company.class, Address.class, Employee.class })
+public class StreamingHqlTests {
+	@Test
+	public void testJsonExtraction() {
+		assertExtracted(
+				true,
+				List.of( "{\"hql", "Query\" : \"select c from Company c where c.name = \\\"Red", " Hat\\\"\"", ", \"extra\": 1}" ),
+				"select c from Company c where c.name = \"Red Hat\"",
+				3
+		);
+		// other properties and escapes are skipped
+		assertExtracted(
+				true,
+				List.of( "{\"note\": \"a \\\"hqlQuery\\\": \\u0022\", \"hqlQuery\": \"from Company\\n\"}" ),
+				"from Company\n",
+				1
+		);
+		assertExtracted( true, List.of( "{\"hqlQuery\": null}" ), null, -1 );
+	}
+
+	@Test
+	public void testTextExtraction() {
+		assertExtracted(
+				false,
+				List.of( "Here is the query: SEL", "ECT c.name from Company c", ";\nIt returns" ),
+				"SELECT c.name from Company c;",
+				3
+		);
+		// only complete once terminated
+		assertExtracted( false, List.of( "select c.name from Company c" ), null, -1 );
+		assertThat( IncrementalHqlExtractor.extractHql( "select c.name from Company c" ) )
+				.isEqualTo( "select c.name from Company c" );
+	}
+
+	@Test
+	public void testQueryCreatedBeforeResponseEnds(SessionFactoryScope scope) throws InterruptedException {
+		final CountDownLatch queryCreated = new CountDownLatch( 1 );
+		final CountDownLatch completed = new CountDownLatch( 1 );
+		final FakeChatModel chatModel = FakeChatModel.builder().build();
+		final HibernateAssistantLC4J assistant = HibernateAssistantLC4J.builder()
+				.chatModel( chatModel )
+				.streamingChatModel( new StreamingChatModel() {
+					@Override
+					public void doChat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+						Thread.ofVirtual().start( () -> {
+							final List<String> tokens = List.of( "{\"hqlQuery\": \"from ", "Company\"", ", \"comment\": \"" );
+							tokens.forEach( handler::onPartialResponse );
+							try {
+								// the rest of the response is not awaited
+								assertThat( queryCreated.await( 10, TimeUnit.SECONDS ) ).isTrue();
+							}
+							catch (InterruptedException e) {
+								throw new RuntimeException( e );
+							}
+							handler.onPartialResponse( "all companies\"}" );
+							handler.onCompleteResponse( ChatResponse.builder()
+																.aiMessage( AiMessage.from( String.join( "", tokens ) + "all companies\"}" ) )
+																.build() );
+							completed.countDown();
+						} );
+					}
+				} )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.streamHql( true )
+				.build();
+
+		scope.inSession( session -> {
+			final SelectionQuery<Company> query = assistant.createAiQuery( "List all companies", session, Company.class );
+			assertThat( ( (SqmSelectionQuery<?>) query ).getQueryString() ).isEqualTo( "from Company" );
+			assertThat( completed.getCount() ).isEqualTo( 1 );
+			queryCreated.countDown();
+		} );
+		assertThat( completed.await( 10, TimeUnit.SECONDS ) ).isTrue();
+		// the non-streaming model is not used
+		assertThat( chatModel.requests() ).isEmpty();
+	}
+
+	@Test
+	public void testStreamingErrorAndMissingModel(SessionFactoryScope scope) {
+		final HibernateAssistantLC4J assistant = HibernateAssistantLC4J.builder()
+				.chatModel( FakeChatModel.builder().build() )
+				.streamingChatModel( new StreamingChatModel() {
+					@Override
+					public void doChat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+						handler.onPartialResponse( "{\"hqlQuery\": \"from Comp" );
+						handler.onError( new IllegalStateException( "Connection reset" ) );
+					}
+				} )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.streamHql( true )
+				.build();
+		scope.inSession( session -> assertThatThrownBy( () -> assistant.createAiQuery( "List all companies", session ) )
+				.isInstanceOf( IllegalStateException.class )
+				.hasMessage( "Connection reset" ) );
+
+		assertThatThrownBy( () -> HibernateAssistantLC4J.builder()
+				.chatModel( FakeChatModel.builder().build() )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.streamHql( true )
+				.build() ).isInstanceOf( IllegalArgumentException.class );
+	}
+
+	@Test
+	public void testStreamingTimeout(SessionFactoryScope scope) {
+		final HibernateAssistantLC4J assistant = HibernateAssistantLC4J.builder()
+				.chatModel( FakeChatModel.builder().build() )
+				.streamingChatModel( new StreamingChatModel() {
+					@Override
+					public void doChat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+						// the response stalls before the query is complete
+						handler.onPartialResponse( "{\"hqlQuery\": \"from Comp" );
+					}
+				} )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.streamHql( true )
+				.streamHqlTimeout( Duration.ofMillis( 100 ) )
+				.build();
+		scope.inSession( session -> assertThatThrownBy( () -> assistant.createAiQuery( "List all companies", session ) )
+				.hasCauseInstanceOf( TimeoutException.class ) );
+	}
+
+	private static void assertExtracted(boolean structuredJson, List<String> parts, String expected, int completedAt) {
+		final IncrementalHqlExtractor extractor = new IncrementalHqlExtractor( structuredJson );
+		for ( int i = 0; i < parts.size(); i++ ) {
+			assertThat( extractor.append( parts.get( i ) ) ).isEqualTo( completedAt >= 0 && i + 1 >= completedAt );
+		}
+		assertThat( extractor.hql() ).isEqualTo( expected );
+	}
+}
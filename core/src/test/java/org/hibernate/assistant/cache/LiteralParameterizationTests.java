@@ -0,0 +1,148 @@
+package org.hibernate.assistant.cache;
+
+import org.hibernate.assistant.domain.Address;
+import org.hibernate.assistant.domain.Company;
+import org.hibernate.assistant.domain.Employee;
+import org.hibernate.assistant.internal.LiteralParameterizer;
+import org.hibernate.assistant.internal.LiteralParameterizer.ParameterizedHql;
+import org.hibernate.assistant.internal.lc4j.HibernateAssistantLC4J;
+import org.hibernate.assistant.util.FakeChatModel;
+import org.hibernate.query.SelectionQuery;
+import org.hibernate.query.sqm.SqmSelectionQuery;
+
+import org.hibernate.testing.jdbc.SQLStatementInspector;
+import org.hibernate.testing.orm.junit.DomainModel;
+import org.hibernate.testing.orm.junit.SessionFactory;
+import org.hibernate.testing.orm.junit.SessionFactoryScope;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SessionFactory(useCollectingStatementInspector = true)
+@DomainModel(annotatedClasses = { Company.class, Address.class, Employee.class })
+public class LiteralParameterizationTests {
+	@BeforeAll
+	public void beforeAll(SessionFactoryScope scope) {
+		scope.inTransaction( session -> {
+			final Company redHat = new Company( 1L, "Red Hat", new Address( "Milan", "Via Gustavo Fara" ) );
+			final Company ibm = new Company( 2L, "IBM", new Address( "Armonk", "New Orchard Road" ) );
+			session.persist( redHat );
+			session.persist( ibm );
+			session.persist( new Employee( 1L, "Marco", "Belladelli", 100_000, redHat ) );
+			session.persist( new Employee( 2L, "Matteo", "Cauzzi", 50_000, redHat ) );
+			session.persist( new Employee( 3L, "Arvind", "Krishna", 200_000, ibm ) );
+		} );
+	}
+
+	@Test
+	public void testComparisons() {
+		assertParameterized(
+				"from Company c where c.name = 'Red Hat' and c.id > 1",
+				"from Company c where c.name = :p1 and c.id > :p2",
+				Map.of( "p1", "Red Hat", "p2", 1 )
+		);
+		assertParameterized(
+				"from Employee e where e.salary >= 50000.5f or e.firstName like 'M%' escape '!'",
+				"from Employee e where e.salary >= :p1 or e.firstName like :p2 escape '!'",
+				Map.of( "p1", 50000.5f, "p2", "M%" )
+		);
+		assertParameterized(
+				"from Company c where c.name <> 'O''Reilly' and c.id <= 10000000000L",
+				"from Company c where c.name <> :p1 and c.id <= :p2",
+				Map.of( "p1", "O'Reilly", "p2", 10000000000L )
+		);
+	}
+
+	@Test
+	public void testInListAndBetween() {
+		assertParameterized(
+				"from Company c where c.address.city in ('Milan', 'Armonk') and c.id between 1 and 2",
+				"from Company c where c.address.city in (:p1, :p2) and c.id between :p3 and :p4",
+				Map.of( "p1", "Milan", "p2", "Armonk", "p3", 1, "p4", 2 )
+		);
+		// subqueries are not lists of literals
+		assertParameterized(
+				"from Company c where c.id in (select e.company.id from Employee e where e.salary > 1000)",
+				"from Company c where c.id in (select e.company.id from Employee e where e.salary > :p1)",
+				Map.of( "p1", 1000 )
+		);
+	}
+
+	@Test
+	public void testUntouchedLiterals() {
+		assertUnchanged( "select c.name, 'company' from Company c" );
+		assertUnchanged( "from Employee e where e.salary > 1000 * 2" );
+		assertUnchanged( "from Employee e where e.salary + 1000 > 2000" );
+		assertUnchanged( "from Employee e where upper(e.firstName) = upper('marco')" );
+		assertUnchanged( "from Employee e where 1 = 1" );
+		assertUnchanged( "from Company c limit 10" );
+		assertUnchanged( "from Company c where c.name = :name or c.id = 1" );
+		assertUnchanged( "from Company c where c.id = 0x10" );
+	}
+
+	@Test
+	public void testStructurallyIdenticalQueriesShareStatement(SessionFactoryScope scope) {
+		final HibernateAssistantLC4J assistant = HibernateAssistantLC4J.builder()
+				.chatModel( FakeChatModel.builder()
+									.query( "Red Hat", "from Company c where c.name = 'Red Hat'", null )
+									.query( "IBM", "from Company c where c.name = 'IBM'", null )
+									.query( "well paid", "from Employee e where e.salary > 60000", null )
+									.build() )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.build();
+		final SQLStatementInspector inspector = scope.getCollectingStatementInspector();
+
+		scope.inTransaction( session -> {
+			inspector.clear();
+			final SelectionQuery<Company> redHat = assistant.createAiQuery( "Where is Red Hat?", session, Company.class );
+			final SelectionQuery<Company> ibm = assistant.createAiQuery( "Where is IBM?", session, Company.class );
+			assertThat( redHat.getResultList() ).extracting( Company::getName ).containsExactly( "Red Hat" );
+			assertThat( ibm.getResultList() ).extracting( Company::getName ).containsExactly( "IBM" );
+
+			assertThat( ( (SqmSelectionQuery<?>) redHat ).getQueryString() )
+					.isEqualTo( ( (SqmSelectionQuery<?>) ibm ).getQueryString() )
+					.isEqualTo( "from Company c where c.name = :p1" );
+			final List<String> sql = inspector.getSqlQueries();
+			assertThat( sql ).hasSize( 2 );
+			assertThat( sql.get( 0 ) ).isEqualTo( sql.get( 1 ) );
+
+			// the integer literal is bound to the float attribute
+			final SelectionQuery<?> employees = assistant.createAiQuery( "Who is well paid?", session, null );
+			assertThat( employees.getResultList() ).hasSize( 2 );
+		} );
+	}
+
+	@Test
+	public void testDisabled(SessionFactoryScope scope) {
+		final HibernateAssistantLC4J assistant = HibernateAssistantLC4J.builder()
+				.chatModel( FakeChatModel.builder()
+									.query( "Red Hat", "from Company c where c.name = 'Red Hat'", null )
+									.build() )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.parameterizeLiterals( false )
+				.build();
+
+		scope.inTransaction( session -> {
+			final SelectionQuery<Company> query = assistant.createAiQuery( "Where is Red Hat?", session, Company.class );
+			assertThat( ( (SqmSelectionQuery<?>) query ).getQueryString() )
+					.isEqualTo( "from Company c where c.name = 'Red Hat'" );
+			assertThat( query.getResultList() ).hasSize( 1 );
+		} );
+	}
+
+	private static void assertParameterized(String hql, String expected, Map<String, Object> parameters) {
+		final ParameterizedHql parameterized = LiteralParameterizer.parameterize( hql );
+		assertThat( parameterized.hql() ).isEqualTo( expected );
+		assertThat( parameterized.parameters() ).containsExactlyInAnyOrderEntriesOf( parameters );
+	}
+
+	private static void assertUnchanged(String hql) {
+		final ParameterizedHql parameterized = LiteralParameterizer.parameterize( hql );
+		assertThat( parameterized.hql() ).isEqualTo( hql );
+		assertThat( parameterized.parameters() ).isEmpty();
+	}
+}
@@ -0,0 +1,211 @@
+package org.hibernate.assistant.cache;
+
+import org.hibernate.assistant.domain.Address;
+import org.hibernate.assistant.domain.Company;
+import org.hibernate.assistant.domain.Employee;
+import org.hibernate.assistant.internal.AiQueryCache;
+import org.hibernate.assistant.internal.lc4j.HibernateAssistantLC4J;
+import org.hibernate.assistant.util.FakeChatModel;
+import org.hibernate.query.SelectionQuery;
+
+import org.hibernate.testing.orm.junit.DomainModel;
+import org.hibernate.testing.orm.junit.SessionFactory;
+import org.hibernate.testing.orm.junit.SessionFactoryScope;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SessionFactory
+@DomainModel(annotatedClasses = { Company.class, Address.class, Employee.class })
+public class QueryCacheTests {
+	@Test
+	public void testNormalization() {
+		assertThat( AiQueryCache.normalize( "  How many   companies\nare in Milan? " ) )
+				.isEqualTo( "How many companies are in Milan" );
+	}
+
+	@Test
+	public void testLruEviction() {
+		final AiQueryCache cache = new AiQueryCache( 2, null );
+		cache.put( "first", null, "fp", "from Company" );
+		cache.put( "second", null, "fp", "from Employee" );
+		assertThat( cache.get( "first", null, "fp" ) ).isEqualTo( "from Company" );
+		cache.put( "third", null, "fp", "select address from Company" );
+
+		// "second" was the least recently used entry
+		assertThat( cache.get( "second", null, "fp" ) ).isNull();
+		assertThat( cache.get( "third", null, "fp" ) ).isNotNull();
+		assertThat( cache.size() ).isEqualTo( 2 );
+		assertThat( cache.getHitCount() ).isEqualTo( 2 );
+		assertThat( cache.getMissCount() ).isEqualTo( 1 );
+		assertThat( cache.getEvictionCount() ).isEqualTo( 1 );
+	}
+
+	@Test
+	public void testKeyIncludesResultTypeAndFingerprint() {
+		final AiQueryCache cache = new AiQueryCache( 10, Duration.ofMinutes( 5 ) );
+		cache.put( "all companies", Company.class, "fp", "from Company" );
+		assertThat( cache.get( "all companies", null, "fp" ) ).isNull();
+		assertThat( cache.get( "all companies", Company.class, "other" ) ).isNull();
+		assertThat( cache.get( "all companies.", Company.class, "fp" ) ).isEqualTo( "from Company" );
+		// case might be significant
+		assertThat( cache.get( "ALL companies", Company.class, "fp" ) ).isNull();
+	}
+
+	@Test
+	public void testExpiration() throws InterruptedException {
+		final AiQueryCache cache = new AiQueryCache( 10, Duration.ofMillis( 1 ) );
+		cache.put( "all companies", null, "fp", "from Company" );
+		Thread.sleep( 10 );
+		assertThat( cache.get( "all companies", null, "fp" ) ).isNull();
+		assertThat( cache.getEvictionCount() ).isEqualTo( 1 );
+	}
+
+	@Test
+	public void testCacheHitSkipsChatModel(SessionFactoryScope scope) {
+		final FakeChatModel chatModel = companiesInMilan();
+		final HibernateAssistantLC4J assistant = HibernateAssistantLC4J.builder()
+				.chatModel( chatModel )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.queryCacheSize( 10 )
+				.build();
+
+		scope.inTransaction( session -> {
+			final SelectionQuery<Company> first = assistant.createAiQuery(
+					"first",
+					"Which companies are in Milan?",
+					session,
+					Company.class
+			);
+			assertThat( first.getResultList() ).hasSize( 1 );
+
+			final SelectionQuery<Company> second = assistant.createAiQuery(
+					"second",
+					"Which companies are in  Milan",
+					session,
+					Company.class
+			);
+			assertThat( second.getResultList() ).hasSize( 1 );
+		} );
+
+		assertThat( chatModel.requests() ).hasSize( 1 );
+		assertThat( assistant.getQueryCache().getHitCount() ).isEqualTo( 1 );
+		assertThat( assistant.getQueryCache().getMissCount() ).isEqualTo( 1 );
+	}
+
+	@Test
+	public void testSemanticCacheHitSkipsChatModel(SessionFactoryScope scope) {
+		final FakeChatModel chatModel = companiesInMilan();
+		final HibernateAssistantLC4J assistant = HibernateAssistantLC4J.builder()
+				.chatModel( chatModel )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.semanticQueryCache( new BagOfWordsEmbeddingModel(), 0.8, 10 )
+				.build();
+
+		scope.inTransaction( session -> {
+			assertThat( assistant.createAiQuery( "first", "Which companies are in Milan?", session, Company.class )
+								.getResultList() ).hasSize( 1 );
+			assertThat( assistant.createAiQuery( "second", "Which companies are located in Milan?", session, Company.class )
+								.getResultList() ).hasSize( 1 );
+			assertThat( chatModel.requests() ).hasSize( 1 );
+
+			// an unrelated question still goes to the chat model
+			assistant.createAiQuery( "third", "List the employees earning the highest salary", session, Company.class );
+			assertThat( chatModel.requests() ).hasSize( 2 );
+		} );
+
+		assertThat( assistant.getSemanticQueryCache().getHitCount() ).isEqualTo( 1 );
+		assertThat( assistant.getSemanticQueryCache().getMissCount() ).isEqualTo( 2 );
+	}
+
+	@Test
+	public void testSemanticCacheChecksLiterals(SessionFactoryScope scope) {
+		final FakeChatModel chatModel = FakeChatModel.builder()
+				.query( "Milan", "from Company where address.city = 'Milan'", null )
+				.query( "Segrate", "from Company where address.city = 'Segrate'", null )
+				.build();
+		final HibernateAssistantLC4J assistant = HibernateAssistantLC4J.builder()
+				.chatModel( chatModel )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.queryCacheSize( 10 )
+				.semanticQueryCache( new BagOfWordsEmbeddingModel(), 0.7, 10 )
+				.build();
+
+		scope.inTransaction( session -> {
+			assertThat( assistant.createAiQuery( "first", "Which companies are in Milan?", session, Company.class )
+								.getResultList() ).extracting( Company::getName ).containsExactly( "Red Hat" );
+			// similar, but the city is different
+			assertThat( assistant.createAiQuery( "second", "Which companies are in Segrate?", session, Company.class )
+								.getResultList() ).extracting( Company::getName ).containsExactly( "IBM" );
+			assertThat( chatModel.requests() ).hasSize( 2 );
+
+			assertThat( assistant.createAiQuery( "third", "Which companies are located in Milan?", session, Company.class )
+								.getResultList() ).extracting( Company::getName ).containsExactly( "Red Hat" );
+			assertThat( chatModel.requests() ).hasSize( 2 );
+		} );
+
+		assertThat( assistant.getSemanticQueryCache().getHitCount() ).isEqualTo( 1 );
+		// semantic hits are not stored in the exact cache
+		assertThat( assistant.getQueryCache().size() ).isEqualTo( 2 );
+	}
+
+	@Test
+	public void testFollowUpQuestionsAreNotCached(SessionFactoryScope scope) {
+		final FakeChatModel chatModel = companiesInMilan();
+		final HibernateAssistantLC4J assistant = HibernateAssistantLC4J.builder()
+				.chatModel( chatModel )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.queryCacheSize( 10 )
+				.semanticQueryCache( new BagOfWordsEmbeddingModel(), 0.8, 10 )
+				.build();
+
+		scope.inTransaction( session -> {
+			assistant.createAiQuery( "first", "Which companies are in Milan?", session, Company.class );
+			assistant.createAiQuery( "conversation", "List all employees", session, Company.class );
+			assistant.createAiQuery( "conversation", "Which companies are in Milan?", session, Company.class );
+		} );
+
+		assertThat( chatModel.requests() ).hasSize( 3 );
+		assertThat( assistant.getQueryCache().size() ).isEqualTo( 2 );
+		assertThat( assistant.getQueryCache().getHitCount() ).isZero();
+	}
+
+	private static FakeChatModel companiesInMilan() {
+		return FakeChatModel.builder()
+				.query( ".*", "from Company where address.city = 'Milan'", null )
+				.build();
+	}
+
+	/**
+	 * Deterministic stand-in for an in-process embedding model, hashing each word to a vector dimension.
+	 */
+	private static class BagOfWordsEmbeddingModel implements EmbeddingModel {
+		@Override
+		public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+			return Response.from( textSegments.stream().map( segment -> {
+				final float[] vector = new float[64];
+				for ( String word : segment.text().toLowerCase( Locale.ROOT ).split( "\\W+" ) ) {
+					vector[Math.floorMod( word.hashCode(), vector.length )] += 1f;
+				}
+				return Embedding.from( vector );
+			} ).toList() );
+		}
+	}
+
+	@BeforeAll
+	public void createData(SessionFactoryScope scope) {
+		scope.inTransaction( session -> {
+			session.persist( new Company( 1L, "Red Hat", new Address( "Milan", "Via Gustavo Fara" ) ) );
+			session.persist( new Company( 2L, "IBM", new Address( "Segrate", "Circonvallazione Idroscalo" ) ) );
+		} );
+	}
+}
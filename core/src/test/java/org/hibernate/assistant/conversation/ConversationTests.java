@@ -0,0 +1,135 @@
+package org.hibernate.assistant.conversation;
+
+import org.hibernate.assistant.domain.Address;
+import org.hibernate.assistant.domain.Company;
+import org.hibernate.assistant.domain.Employee;
+import org.hibernate.assistant.internal.lc4j.HibernateAssistantLC4J;
+import org.hibernate.assistant.util.FakeChatModel;
+
+import org.hibernate.testing.orm.junit.DomainModel;
+import org.hibernate.testing.orm.junit.SessionFactory;
+import org.hibernate.testing.orm.junit.SessionFactoryScope;
+import org.junit.jupiter.api.Test;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SessionFactory
+@DomainModel(annotatedClasses = { Company.class, Address.class, Employee.class })
+public class ConversationTests {
+	@Test
+	public void testConversationsAreIsolated(SessionFactoryScope scope) {
+		final FakeChatModel chatModel = allCompanies();
+		final List<ChatRequest> requests = chatModel.requests();
+		final HibernateAssistantLC4J assistant = HibernateAssistantLC4J.builder()
+				.chatModel( chatModel )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.build();
+
+		scope.inSession( session -> {
+			assistant.createAiQuery( "alice", "How many companies are there?", session, null );
+			assistant.createAiQuery( "bob", "List all employees", session, null );
+			assistant.createAiQuery( "alice", "And in Milan?", session, null );
+		} );
+
+		assertThat( requests ).hasSize( 3 );
+		assertThat( userMessages( requests.get( 1 ) ) ).containsExactly( "List all employees" );
+		assertThat( userMessages( requests.get( 2 ) ) ).containsExactly( "How many companies are there?", "And in Milan?" );
+
+		// the domain model system message is shared by all conversations
+		final ChatMessage systemMessage = requests.getFirst().messages().getFirst();
+		assertThat( systemMessage ).isInstanceOf( SystemMessage.class );
+		requests.forEach( r -> {
+			assertThat( r.messages().getFirst() ).isSameAs( systemMessage );
+			assertThat( r.messages().stream().filter( SystemMessage.class::isInstance ) ).hasSize( 1 );
+		} );
+
+		assistant.clear( "alice" );
+		scope.inSession( session -> assistant.createAiQuery( "alice", "All companies", session, null ) );
+		assertThat( userMessages( requests.getLast() ) ).containsExactly( "All companies" );
+	}
+
+	@Test
+	public void testConcurrentConversations(SessionFactoryScope scope) throws Exception {
+		final FakeChatModel chatModel = allCompanies();
+		final List<ChatRequest> requests = chatModel.requests();
+		final HibernateAssistantLC4J assistant = HibernateAssistantLC4J.builder()
+				.chatModel( chatModel )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.build();
+
+		final int conversations = 100;
+		try (final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			final List<Future<?>> futures = new ArrayList<>();
+			for ( int i = 0; i < conversations; i++ ) {
+				final String id = "user-" + i;
+				futures.add( executor.submit( () -> scope.inSession( session -> {
+					assistant.createAiQuery( id, id + " first", session, null );
+					assistant.createAiQuery( id, id + " second", session, null );
+				} ) ) );
+			}
+			for ( Future<?> future : futures ) {
+				future.get();
+			}
+		}
+
+		assertThat( requests ).hasSize( conversations * 2 );
+		for ( ChatRequest request : requests ) {
+			final List<String> userMessages = userMessages( request );
+			final String id = userMessages.getLast().split( " " )[0];
+			assertThat( userMessages ).allMatch( m -> m.startsWith( id + " " ) );
+			if ( userMessages.getLast().endsWith( "second" ) ) {
+				assertThat( userMessages ).containsExactly( id + " first", id + " second" );
+			}
+		}
+	}
+
+	@Test
+	public void testIdleConversationsAreEvicted(SessionFactoryScope scope) throws InterruptedException {
+		final AtomicInteger created = new AtomicInteger();
+		final HibernateAssistantLC4J assistant = HibernateAssistantLC4J.builder()
+				.chatModel( allCompanies() )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.chatMemoryProvider( id -> {
+					created.incrementAndGet();
+					return MessageWindowChatMemory.withMaxMessages( 10 );
+				} )
+				.conversationIdleTimeout( Duration.ofMillis( 5 ) )
+				.build();
+		// the default conversation's memory
+		assertThat( created.get() ).isEqualTo( 1 );
+
+		scope.inSession( session -> assistant.createAiQuery( "alice", "All companies", session, null ) );
+		assertThat( created.get() ).isEqualTo( 2 );
+		Thread.sleep( 20 );
+		scope.inSession( session -> {
+			assistant.createAiQuery( "bob", "All companies", session, null );
+			assistant.createAiQuery( "alice", "All employees", session, null );
+		} );
+		// alice's memory was evicted, so a new one was created
+		assertThat( created.get() ).isEqualTo( 4 );
+	}
+
+	private static List<String> userMessages(ChatRequest request) {
+		return request.messages().stream()
+				.filter( UserMessage.class::isInstance )
+				.map( m -> ( (UserMessage) m ).singleText() )
+				.toList();
+	}
+
+	private static FakeChatModel allCompanies() {
+		return FakeChatModel.builder().query( ".*", "from Company", null ).build();
+	}
+}
@@ -0,0 +1,160 @@
+package org.hibernate.assistant.conversation;
+
+import org.hibernate.assistant.domain.Address;
+import org.hibernate.assistant.domain.Company;
+import org.hibernate.assistant.domain.Employee;
+import org.hibernate.assistant.internal.lc4j.ChatMessageEntity;
+import org.hibernate.assistant.internal.lc4j.HibernateAssistantLC4J;
+import org.hibernate.assistant.internal.lc4j.HibernateChatMemoryStore;
+import org.hibernate.assistant.util.FakeChatModel;
+
+import org.hibernate.testing.orm.junit.DomainModel;
+import org.hibernate.testing.orm.junit.SessionFactory;
+import org.hibernate.testing.orm.junit.SessionFactoryScope;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SessionFactory
+@DomainModel(annotatedClasses = { Company.class, Address.class, Employee.class, ChatMessageEntity.class })
+public class PersistentChatMemoryTests {
+	@AfterEach
+	public void cleanup(SessionFactoryScope scope) {
+		scope.inTransaction( session -> session.createMutationQuery( "delete from AiChatMessage" ).executeUpdate() );
+	}
+
+	@Test
+	public void testConversationsSurviveRestarts(SessionFactoryScope scope) {
+		final HibernateChatMemoryStore store = new HibernateChatMemoryStore(
+				scope.getSessionFactory(),
+				10,
+				50,
+				Duration.ofHours( 1 )
+		);
+		final FakeChatModel chatModel = FakeChatModel.builder().query( ".*", "from Company", null ).build();
+		final HibernateAssistantLC4J assistant = assistant( scope, store, chatModel );
+		scope.inSession( session -> {
+			assistant.createAiQuery( "alice", "How many companies are there?", session, null );
+			assistant.createAiQuery( "bob", "List all employees", session, null );
+		} );
+		// nothing is written synchronously
+		assertThat( count( scope ) ).isZero();
+		store.close();
+		assertThat( count( scope ) ).isEqualTo( 2 );
+
+		// a new store, e.g. after a restart or on another node, reads the persisted messages
+		try (final HibernateChatMemoryStore restarted = new HibernateChatMemoryStore( scope.getSessionFactory() )) {
+			assertThat( restarted.getMessages( "alice" ) ).map( PersistentChatMemoryTests::text )
+					.containsExactly( "How many companies are there?" );
+			final HibernateAssistantLC4J restartedAssistant = assistant( scope, restarted, chatModel );
+			scope.inSession( session -> restartedAssistant.createAiQuery( "alice", "And in Milan?", session, null ) );
+			assertThat( chatModel.requests().getLast().messages() ).filteredOn( UserMessage.class::isInstance )
+					.map( PersistentChatMemoryTests::text )
+					.containsExactly( "How many companies are there?", "And in Milan?" );
+
+			restartedAssistant.clear( "bob" );
+			assertThat( restarted.getMessages( "bob" ) ).isEmpty();
+			restarted.flush();
+			assertThat( count( scope ) ).isEqualTo( 2 );
+		}
+	}
+
+	@Test
+	public void testWritesAreBatched(SessionFactoryScope scope) throws InterruptedException {
+		try (final HibernateChatMemoryStore store = new HibernateChatMemoryStore(
+				scope.getSessionFactory(),
+				5,
+				4,
+				Duration.ofHours( 1 )
+		)) {
+			final List<ChatMessage> messages = new ArrayList<>( store.getMessages( "carol" ) );
+			for ( int i = 0; i < 8; i++ ) {
+				messages.add( UserMessage.from( "message " + i ) );
+				store.updateMessages( "carol", messages );
+			}
+			// reaching the batch size triggers a flush in the background
+			for ( int i = 0; i < 100 && count( scope ) < 4; i++ ) {
+				Thread.sleep( 50 );
+			}
+			assertThat( count( scope ) ).isGreaterThanOrEqualTo( 4 );
+
+			// the in-memory window is bounded
+			assertThat( store.getMessages( "carol" ) ).map( PersistentChatMemoryTests::text )
+					.containsExactly( "message 3", "message 4", "message 5", "message 6", "message 7" );
+		}
+		assertThat( count( scope ) ).isEqualTo( 8 );
+	}
+
+	@Test
+	public void testConversationsSharedAcrossStores(SessionFactoryScope scope) {
+		try (final HibernateChatMemoryStore first = new HibernateChatMemoryStore( scope.getSessionFactory() );
+			final HibernateChatMemoryStore second = new HibernateChatMemoryStore(
+					scope.getSessionFactory(),
+					10,
+					50,
+					Duration.ofHours( 1 ),
+					Duration.ZERO
+			)) {
+			first.updateMessages( "dave", List.of( UserMessage.from( "first" ), UserMessage.from( "second" ) ) );
+			first.flush();
+			assertThat( second.getMessages( "dave" ) ).map( PersistentChatMemoryTests::text )
+					.containsExactly( "first", "second" );
+
+			// expired messages are reloaded, including the ones written by other stores
+			final List<ChatMessage> messages = first.getMessages( "dave" );
+			messages.add( UserMessage.from( "third" ) );
+			first.updateMessages( "dave", messages );
+			first.flush();
+			assertThat( second.getMessages( "dave" ) ).map( PersistentChatMemoryTests::text )
+					.containsExactly( "first", "second", "third" );
+		}
+		assertThat( count( scope ) ).isEqualTo( 3 );
+
+		// without cached messages, only the ones not stored yet are written
+		try (final HibernateChatMemoryStore store = new HibernateChatMemoryStore( scope.getSessionFactory() )) {
+			store.updateMessages(
+					"dave",
+					List.of(
+							UserMessage.from( "second" ),
+							UserMessage.from( "third" ),
+							UserMessage.from( "fourth" ),
+							UserMessage.from( "third" )
+					)
+			);
+		}
+		assertThat( count( scope ) ).isEqualTo( 5 );
+		try (final HibernateChatMemoryStore store = new HibernateChatMemoryStore( scope.getSessionFactory() )) {
+			assertThat( store.getMessages( "dave" ) ).map( PersistentChatMemoryTests::text )
+					.containsExactly( "first", "second", "third", "fourth", "third" );
+		}
+	}
+
+	private static long count(SessionFactoryScope scope) {
+		return scope.fromSession( session -> session.createSelectionQuery(
+				"select count(*) from AiChatMessage",
+				Long.class
+		).getSingleResult() );
+	}
+
+	private static String text(ChatMessage message) {
+		return ( (UserMessage) message ).singleText();
+	}
+
+	private static HibernateAssistantLC4J assistant(
+			SessionFactoryScope scope,
+			HibernateChatMemoryStore store,
+			FakeChatModel chatModel) {
+		return HibernateAssistantLC4J.builder()
+				.chatModel( chatModel )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.chatMemoryStore( store )
+				.build();
+	}
+}
@@ -0,0 +1,128 @@
+package org.hibernate.assistant.load;
+
+import org.hibernate.assistant.domain.Address;
+import org.hibernate.assistant.domain.Company;
+import org.hibernate.assistant.domain.Employee;
+import org.hibernate.assistant.internal.InMemoryAssistantMetrics;
+import org.hibernate.assistant.internal.InMemoryAssistantMetrics.Histogram;
+import org.hibernate.assistant.internal.lc4j.HibernateAssistantLC4J;
+import org.hibernate.assistant.util.FakeChatModel;
+import org.hibernate.query.SelectionQuery;
+
+import org.hibernate.testing.orm.junit.DomainModel;
+import org.hibernate.testing.orm.junit.SessionFactory;
+import org.hibernate.testing.orm.junit.SessionFactoryScope;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hibernate.assistant.util.LanguageModels.fakeChatModel;
+
+/**
+ * Load driver for the full pipeline: generating a query, executing it, serializing its results and answering
+ * the question, with a {@link FakeChatModel} standing in for the LLM so that only the library's own overhead
+ * (plus the simulated model latency) is measured. Reports throughput and latency percentiles.
+ * <p>
+ * The load can be configured through the {@code hibernate.assistant.load.threads}, {@code requests},
+ * {@code latency-ms} and {@code jitter-ms} system properties. The defaults keep the run short enough for the
+ * regular build, increase them for capacity planning.
+ */
+@SessionFactory
+@DomainModel(annotatedClasses = { Company.class, Address.class, Employee.class })
+public class PipelineLoadTests {
+	private static final String[] QUESTIONS = {
+			"How many companies are there?",
+			"What are the names of all the companies?",
+			"List the employees of each company",
+			"Show me the companies",
+	};
+
+	@BeforeAll
+	public void beforeAll(SessionFactoryScope scope) {
+		scope.inTransaction( session -> {
+			for ( long i = 1; i <= 200; i++ ) {
+				final Company company = new Company( i, "Company " + i, new Address( "City " + i % 10, "Street " + i ) );
+				session.persist( company );
+				for ( long j = 1; j <= 5; j++ ) {
+					final long id = ( i - 1 ) * 5 + j;
+					session.persist( new Employee( id, "Name " + id, "Surname " + id, 1_000 * j, company ) );
+				}
+			}
+		} );
+	}
+
+	@Test
+	public void testPipelineLoad(SessionFactoryScope scope) throws Exception {
+		final int threads = Integer.getInteger( "hibernate.assistant.load.threads", 4 );
+		final int requests = Integer.getInteger( "hibernate.assistant.load.requests", 200 );
+		final FakeChatModel chatModel = fakeChatModel()
+				.latency( Duration.ofMillis( Long.getLong( "hibernate.assistant.load.latency-ms", 0 ) ) )
+				.jitter( Duration.ofMillis( Long.getLong( "hibernate.assistant.load.jitter-ms", 0 ) ) )
+				.build();
+		final InMemoryAssistantMetrics metrics = new InMemoryAssistantMetrics();
+		final HibernateAssistantLC4J assistant = HibernateAssistantLC4J.builder()
+				.chatModel( chatModel )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.metrics( metrics )
+				.build();
+
+		final Histogram latencies = new Histogram();
+		final AtomicInteger next = new AtomicInteger();
+		final CountDownLatch start = new CountDownLatch( 1 );
+		final ExecutorService executor = Executors.newFixedThreadPool( threads );
+		final List<Future<?>> futures = new ArrayList<>( threads );
+		for ( int t = 0; t < threads; t++ ) {
+			final String conversationId = "load-" + t;
+			futures.add( executor.submit( () -> {
+				start.await();
+				for ( int i = next.getAndIncrement(); i < requests; i = next.getAndIncrement() ) {
+					final String question = QUESTIONS[i % QUESTIONS.length];
+					final long begin = System.nanoTime();
+					final String answer = scope.fromSession( session -> {
+						final SelectionQuery<?> query = assistant.createAiQuery( conversationId, question, session, null );
+						return assistant.executeQuery( conversationId, query, session );
+					} );
+					latencies.record( System.nanoTime() - begin );
+					assertThat( answer ).isNotBlank();
+				}
+				return null;
+			} ) );
+		}
+
+		final long begin = System.nanoTime();
+		start.countDown();
+		try {
+			for ( Future<?> future : futures ) {
+				future.get();
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		final double seconds = ( System.nanoTime() - begin ) / 1e9;
+
+		System.out.printf(
+				Locale.ROOT,
+				"Pipeline load: %d requests, %d threads, %.1f requests/s, p50=%.2fms p99=%.2fms max=%.2fms%n%s%n",
+				requests,
+				threads,
+				requests / seconds,
+				latencies.getPercentile( 50 ) / 1e6,
+				latencies.getPercentile( 99 ) / 1e6,
+				latencies.getMax() / 1e6,
+				metrics
+		);
+		assertThat( latencies.getCount() ).isEqualTo( requests );
+		assertThat( metrics.getResultRows().getCount() ).isEqualTo( requests );
+	}
+}
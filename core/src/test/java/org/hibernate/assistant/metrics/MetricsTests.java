@@ -0,0 +1,97 @@
+package org.hibernate.assistant.metrics;
+
+import org.hibernate.assistant.domain.Address;
+import org.hibernate.assistant.domain.Company;
+import org.hibernate.assistant.domain.Employee;
+import org.hibernate.assistant.internal.InMemoryAssistantMetrics;
+import org.hibernate.assistant.internal.lc4j.HibernateAssistantLC4J;
+import org.hibernate.assistant.spi.AssistantMetrics.Stage;
+import org.hibernate.assistant.util.FakeChatModel;
+import org.hibernate.query.SelectionQuery;
+
+import org.hibernate.testing.orm.junit.DomainModel;
+import org.hibernate.testing.orm.junit.SessionFactory;
+import org.hibernate.testing.orm.junit.SessionFactoryScope;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import dev.langchain4j.model.output.TokenUsage;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SessionFactory
+@DomainModel(annotatedClasses = { Company.class, Address.class, Employee.class })
+public class MetricsTests {
+	private static final String HQL = "select c.name from Company c order by c.id";
+	private static final String RESPONSE = "{\"hqlQuery\": \"" + HQL + "\"}";
+
+	@BeforeAll
+	public void beforeAll(SessionFactoryScope scope) {
+		scope.inTransaction( session -> {
+			for ( long i = 1; i <= 3; i++ ) {
+				session.persist( new Company( i, "Società " + i, new Address( "Milan", "Via Roma " + i ) ) );
+			}
+		} );
+	}
+
+	@Test
+	public void testQueryMetrics(SessionFactoryScope scope) {
+		final InMemoryAssistantMetrics metrics = new InMemoryAssistantMetrics();
+		final HibernateAssistantLC4J assistant = assistant( scope, metrics );
+		scope.inSession( session -> {
+			final SelectionQuery<?> query = assistant.createAiQuery( "Company names", session );
+			assertThat( metrics.getLatencies( Stage.CHAT ).getCount() ).isEqualTo( 1 );
+			assertThat( metrics.getLatencies( Stage.HQL_INTERPRETATION ).getCount() ).isEqualTo( 1 );
+
+			final String results = assistant.executeQueryToString( query, session );
+			assertThat( metrics.getLatencies( Stage.QUERY_EXECUTION ).getCount() ).isEqualTo( 1 );
+			assertThat( metrics.getLatencies( Stage.SERIALIZATION ).getCount() ).isEqualTo( 1 );
+			assertThat( metrics.getResultRows().getMax() ).isEqualTo( 3 );
+			assertThat( metrics.getResultBytes().getMax() ).isEqualTo( results.getBytes( StandardCharsets.UTF_8 ).length );
+		} );
+		assertThat( metrics.getInputTokens() ).isEqualTo( 10 );
+		assertThat( metrics.getOutputTokens() ).isEqualTo( 5 );
+		assertThat( metrics.getPromptLengths().getMax() ).isGreaterThan( "Company names".length() );
+		assertThat( metrics.getResponseLengths().getMax() ).isEqualTo( RESPONSE.length() );
+	}
+
+	@Test
+	public void testRetrievalMetrics(SessionFactoryScope scope) {
+		final InMemoryAssistantMetrics metrics = new InMemoryAssistantMetrics();
+		final HibernateAssistantLC4J assistant = assistant( scope, metrics );
+		assistant.executeQuery( "Company names", scope.getSessionFactory() );
+
+		assertThat( metrics.getLatencies( Stage.RETRIEVAL ).getCount() ).isEqualTo( 1 );
+		assertThat( metrics.getLatencies( Stage.CHAT ).getCount() ).isEqualTo( 2 );
+		assertThat( metrics.getResultRows().getCount() ).isEqualTo( 1 );
+		assertThat( metrics.getInputTokens() ).isEqualTo( 20 );
+	}
+
+	@Test
+	public void testHistogramPercentiles() {
+		final InMemoryAssistantMetrics.Histogram histogram = new InMemoryAssistantMetrics.Histogram();
+		assertThat( histogram.getPercentile( 99 ) ).isZero();
+		for ( int i = 1; i <= 100; i++ ) {
+			histogram.record( i );
+		}
+		assertThat( histogram.getCount() ).isEqualTo( 100 );
+		assertThat( histogram.getMean() ).isEqualTo( 50.5 );
+		assertThat( histogram.getMax() ).isEqualTo( 100 );
+		// 50 falls in the [32, 64) bucket, 90 and 99 in [64, 128) which is capped at the maximum
+		assertThat( histogram.getPercentile( 50 ) ).isEqualTo( 63 );
+		assertThat( histogram.getPercentile( 90 ) ).isEqualTo( 100 );
+		assertThat( histogram.getPercentile( 0 ) ).isEqualTo( 1 );
+	}
+
+	private static HibernateAssistantLC4J assistant(SessionFactoryScope scope, InMemoryAssistantMetrics metrics) {
+		return HibernateAssistantLC4J.builder()
+				.chatModel( FakeChatModel.builder()
+									.query( ".*", HQL, null )
+									.tokenUsage( new TokenUsage( 10, 5 ) )
+									.build() )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.metrics( metrics )
+				.build();
+	}
+}
@@ -0,0 +1,129 @@
+package org.hibernate.assistant.model;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.assistant.domain.Address;
+import org.hibernate.assistant.domain.Company;
+import org.hibernate.assistant.domain.Employee;
+import org.hibernate.assistant.internal.DomainModelPruner;
+import org.hibernate.assistant.internal.MetamodelPromptFormat;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.MetadataSources;
+
+import org.hibernate.testing.orm.domain.StandardDomainModel;
+import org.hibernate.testing.orm.domain.animal.Cat;
+import org.hibernate.testing.orm.domain.animal.Human;
+import org.hibernate.testing.orm.domain.animal.Mammal;
+import org.hibernate.testing.orm.domain.animal.Name;
+import org.hibernate.testing.orm.domain.animal.Zoo;
+import org.junit.jupiter.api.Test;
+
+import jakarta.persistence.metamodel.ManagedType;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hibernate.assistant.internal.AssistantUtils.getCompactDomainModelPrompt;
+import static org.hibernate.assistant.internal.AssistantUtils.getDomainModelPrompt;
+
+public class DomainModelTests {
+	/**
+	 * Rough approximation of LLM tokenization: words, numbers and single punctuation characters
+	 */
+	private static final Pattern TOKEN = Pattern.compile( "\\p{L}+|\\p{N}+|[^\\p{L}\\p{N}\\s]" );
+
+	@Test
+	public void testSimpleDomainModel() {
+		final Metadata metadata = new MetadataSources().addAnnotatedClass( Address.class )
+				.addAnnotatedClass( Company.class )
+				.addAnnotatedClass( Employee.class )
+				.buildMetadata();
+		try (final SessionFactory sf = metadata.buildSessionFactory()) {
+			final String result = getDomainModelPrompt( sf.getMetamodel() );
+			System.out.println( result );
+
+			// todo : create some meaningful assertions
+		}
+	}
+
+	@Test
+	public void testPrunedDomainModel() {
+		final MetadataSources metadataSources = new MetadataSources().addAnnotatedClass( Address.class )
+				.addAnnotatedClass( Company.class )
+				.addAnnotatedClass( Employee.class );
+		StandardDomainModel.ANIMAL.getDescriptor().applyDomainModel( metadataSources );
+		try (final SessionFactory sf = metadataSources.buildMetadata().buildSessionFactory()) {
+			final DomainModelPruner pruner = new DomainModelPruner( sf.getMetamodel(), 1 );
+
+			// the embedded address and the associated employees are included, no animals
+			assertThat( javaTypes( pruner.getRelevantTypes( "How many companies are there in Milan?" ) ) )
+					.containsExactlyInAnyOrder( Address.class, Company.class, Employee.class );
+
+			// supertypes are always included, and their associations are inherited
+			final List<Class<?>> catTypes = javaTypes( pruner.getRelevantTypes( "Which cats weigh more than 5kg?" ) );
+			assertThat( catTypes ).contains( Cat.class, Mammal.class, Human.class, Name.class, Zoo.class )
+					.doesNotContain( Company.class, Employee.class );
+
+			// unknown terms fall back to the whole domain model
+			assertThat( pruner.getRelevantTypes( "What is the answer?" ) ).hasSameSizeAs( sf.getMetamodel()
+																							.getManagedTypes() );
+			assertThat( pruner.getDomainModelPrompt( "What is the answer?" ) ).hasSameSizeAs(
+					getDomainModelPrompt( sf.getMetamodel() ) );
+
+			// the same question shape produces the same prompt
+			final String prompt = pruner.getDomainModelPrompt( "List all the companies" );
+			assertThat( pruner.getDomainModelPrompt( "Show me every company!" ) ).isSameAs( prompt );
+			assertThat( prompt.length() ).isLessThan( getDomainModelPrompt( sf.getMetamodel() ).length() / 2 );
+		}
+	}
+
+	@Test
+	public void testCompactDomainModel() {
+		final Metadata metadata = new MetadataSources().addAnnotatedClass( Address.class )
+				.addAnnotatedClass( Company.class )
+				.addAnnotatedClass( Employee.class )
+				.buildMetadata();
+		try (final SessionFactory sf = metadata.buildSessionFactory()) {
+			final String result = getCompactDomainModelPrompt( sf.getMetamodel() );
+			System.out.println( result );
+
+			assertThat( result ).contains(
+					"Company(id:long,address:Address,name:String) -> employees:List<Employee>",
+					"Employee(id:Long,",
+					"-> company:Company",
+					"@Embeddable Address("
+			);
+			reportReduction( "simple", getDomainModelPrompt( sf.getMetamodel() ), result );
+		}
+
+		final MetadataSources metadataSources = new MetadataSources();
+		StandardDomainModel.ANIMAL.getDescriptor().applyDomainModel( metadataSources );
+		try (final SessionFactory sf = metadataSources.buildMetadata().buildSessionFactory()) {
+			final String result = MetamodelPromptFormat.COMPACT.getDomainModelPrompt( sf.getMetamodel() );
+			System.out.println( result );
+
+			assertThat( result ).contains( "Cat extends DomesticAnimal()", "DomesticAnimal extends Mammal()" );
+			reportReduction( "animal", MetamodelPromptFormat.JSON.getDomainModelPrompt( sf.getMetamodel() ), result );
+		}
+	}
+
+	private static void reportReduction(String model, String json, String compact) {
+		final long jsonTokens = TOKEN.matcher( json ).results().count();
+		final long compactTokens = TOKEN.matcher( compact ).results().count();
+		System.out.printf(
+				"Domain model '%s': %d -> %d characters (-%d%%), ~%d -> ~%d tokens (-%d%%)%n",
+				model,
+				json.length(),
+				compact.length(),
+				100 - compact.length() * 100 / json.length(),
+				jsonTokens,
+				compactTokens,
+				100 - compactTokens * 100 / jsonTokens
+		);
+		assertThat( compact.length() ).isLessThan( json.length() / 2 );
+		assertThat( compactTokens ).isLessThan( jsonTokens / 2 );
+	}
+
+	private static List<Class<?>> javaTypes(List<ManagedType<?>> managedTypes) {
+		return managedTypes.stream().<Class<?>>map( ManagedType::getJavaType ).toList();
+	}
+}
@@ -0,0 +1,254 @@
+package org.hibernate.assistant.pagination;
+
+import org.hibernate.assistant.AiQueryPage;
+import org.hibernate.assistant.domain.Address;
+import org.hibernate.assistant.domain.Company;
+import org.hibernate.assistant.domain.Employee;
+import org.hibernate.assistant.internal.QueryGuard;
+import org.hibernate.assistant.internal.lc4j.HibernateAssistantLC4J;
+import org.hibernate.assistant.util.FakeChatModel;
+import org.hibernate.query.SelectionQuery;
+
+import org.hibernate.testing.jdbc.SQLStatementInspector;
+import org.hibernate.testing.orm.junit.DomainModel;
+import org.hibernate.testing.orm.junit.SessionFactory;
+import org.hibernate.testing.orm.junit.SessionFactoryScope;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import dev.langchain4j.data.message.UserMessage;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SessionFactory(useCollectingStatementInspector = true)
+@DomainModel(annotatedClasses = { Company.class, Address.class, Employee.class })
+public class PaginationTests {
+	@BeforeAll
+	public void beforeAll(SessionFactoryScope scope) {
+		scope.inTransaction( session -> {
+			// persist in reverse order, so that the natural order of rows doesn't match the identifiers
+			for ( long i = 25; i > 0; i-- ) {
+				final String city = i % 5 == 0 ? "Rome" : "Milan";
+				session.persist( new Company( i, "Company " + i, new Address( city, "Via Roma " + i ) ) );
+			}
+		} );
+	}
+
+	@Test
+	public void testPageSizeIsApplied(SessionFactoryScope scope) {
+		final HibernateAssistantLC4J assistant = assistant( scope, fixedQuery( "select c from Company c" ) )
+				.pageSize( 10 )
+				.build();
+		scope.inSession( session -> {
+			final SelectionQuery<Company> query = assistant.createAiQuery( "All companies", session, Company.class );
+			assertThat( query.getMaxResults() ).isEqualTo( 10 );
+			assertThat( query.getFetchSize() ).isEqualTo( 10 );
+			assertThat( query.getResultList() ).hasSize( 10 );
+		} );
+	}
+
+	@Test
+	public void testRowLimitIsReported(SessionFactoryScope scope) {
+		final FakeChatModel chatModel = fixedQuery( "select c.name from Company c order by c.id" );
+		final HibernateAssistantLC4J assistant = assistant( scope, chatModel ).pageSize( 10 ).build();
+		scope.inSession( session -> {
+			final SelectionQuery<?> query = assistant.createAiQuery( "Company names", session );
+			assistant.executeQuery( query, session );
+		} );
+
+		// the LLM knows that it only sees the first page of results
+		final UserMessage results = (UserMessage) chatModel.requests().getLast().messages().getLast();
+		assertThat( results.singleText() ).contains( "\"Company 10\"]\n(showing 10 of 25 rows)" );
+	}
+
+	@Test
+	public void testKeysetPagination(SessionFactoryScope scope) {
+		final FakeChatModel chatModel = fixedQuery(
+				"select c.name, c.address.city from Company c where c.address.city = 'Milan'"
+		);
+		final HibernateAssistantLC4J assistant = assistant( scope, chatModel ).pageSize( 8 ).build();
+		final SQLStatementInspector inspector = scope.getCollectingStatementInspector();
+
+		scope.inSession( session -> {
+			final SelectionQuery<?> query = assistant.createAiQuery( "Companies in Milan", session );
+			AiQueryPage<?> page = assistant.executeQueryPage( query, session );
+			final List<Object> names = new ArrayList<>();
+			int pages = 1;
+			page.results().forEach( row -> names.add( ( (Object[]) row )[0] ) );
+			while ( page.hasNextPage() ) {
+				inspector.clear();
+				page = assistant.nextPage( page, session );
+				pages++;
+				page.results().forEach( row -> names.add( ( (Object[]) row )[0] ) );
+				assertThat( inspector.getSqlQueries() ).singleElement().asString()
+						.doesNotContain( "offset" )
+						.contains( ">" );
+			}
+			assertThat( pages ).isEqualTo( 3 );
+			assertThat( page.results() ).hasSize( 4 );
+			assertThat( page.firstResult() ).isEqualTo( 16 );
+			assertThat( names ).hasSize( 20 ).doesNotHaveDuplicates().startsWith( "Company 1", "Company 2" );
+			assertThat( assistant.nextPage( page, session ).results() ).isEmpty();
+		} );
+		assertThat( chatModel.requests() ).hasSize( 1 );
+	}
+
+	@Test
+	public void testOffsetPagination(SessionFactoryScope scope) {
+		final HibernateAssistantLC4J assistant = assistant(
+				scope,
+				fixedQuery( "select c from Company c order by c.name desc" )
+		).pageSize( 10 ).build();
+		final SQLStatementInspector inspector = scope.getCollectingStatementInspector();
+
+		scope.inSession( session -> {
+			final SelectionQuery<Company> query = assistant.createAiQuery( "All companies", session, Company.class );
+			final AiQueryPage<Company> first = assistant.executeQueryPage( query, session );
+			assertThat( first.hasNextPage() ).isTrue();
+			assertThat( first.lastKey() ).isNull();
+			inspector.clear();
+			final AiQueryPage<Company> second = assistant.nextPage( first, session );
+			assertThat( inspector.getSqlQueries() ).singleElement().asString().contains( "offset" );
+			assertThat( second.results() ).hasSize( 10 );
+			assertThat( second.results().getFirst().getName() ).isEqualTo( "Company 22" );
+			final AiQueryPage<Company> third = assistant.nextPage( second, session );
+			assertThat( third.results() ).hasSize( 5 );
+			assertThat( third.hasNextPage() ).isFalse();
+		} );
+	}
+
+	@Test
+	public void testAggregateIsNotPaginatedByKey(SessionFactoryScope scope) {
+		final HibernateAssistantLC4J assistant = assistant( scope, fixedQuery( "select count(*) from Company c" ) )
+				.pageSize( 10 )
+				.build();
+		scope.inSession( session -> {
+			final SelectionQuery<Long> query = assistant.createAiQuery( "How many companies are there?", session, Long.class );
+			final AiQueryPage<Long> page = assistant.executeQueryPage( query, session );
+			assertThat( page.results() ).containsExactly( 25L );
+			assertThat( page.hasNextPage() ).isFalse();
+		} );
+	}
+
+	@Test
+	public void testLimitOfQueryIsRespected(SessionFactoryScope scope) {
+		final HibernateAssistantLC4J assistant = assistant(
+				scope,
+				fixedQuery( "select c.name from Company c where c.address.city = 'Milan' order by c.id limit 12" )
+		).pageSize( 5 ).build();
+		final SQLStatementInspector inspector = scope.getCollectingStatementInspector();
+
+		scope.inSession( session -> {
+			final SelectionQuery<?> query = assistant.createAiQuery( "Twelve companies in Milan", session );
+			final List<Object> names = new ArrayList<>();
+			AiQueryPage<?> page = assistant.executeQueryPage( query, session );
+			names.addAll( page.results() );
+			while ( page.hasNextPage() ) {
+				inspector.clear();
+				page = assistant.nextPage( page, session );
+				names.addAll( page.results() );
+				assertThat( inspector.getSqlQueries() ).singleElement().asString().contains( "offset" );
+			}
+			assertThat( page.results() ).hasSize( 2 );
+			// every fifth company is in Rome
+			assertThat( names ).hasSize( 12 ).doesNotHaveDuplicates().endsWith( "Company 13", "Company 14" );
+		} );
+	}
+
+	@Test
+	public void testOffsetOfQueryIsRespected(SessionFactoryScope scope) {
+		final HibernateAssistantLC4J assistant = assistant(
+				scope,
+				fixedQuery( "select c.name from Company c order by c.id offset 20" )
+		).pageSize( 3 ).build();
+
+		scope.inSession( session -> {
+			final SelectionQuery<String> query = assistant.createAiQuery(
+					"Companies after the first twenty",
+					session,
+					String.class
+			);
+			final AiQueryPage<String> first = assistant.executeQueryPage( query, session );
+			assertThat( first.results() ).containsExactly( "Company 21", "Company 22", "Company 23" );
+			assertThat( first.hasNextPage() ).isTrue();
+			final AiQueryPage<String> second = assistant.nextPage( first, session );
+			assertThat( second.results() ).containsExactly( "Company 24", "Company 25" );
+			assertThat( second.hasNextPage() ).isFalse();
+		} );
+	}
+
+	@Test
+	public void testLimitOfQueryIsNotReplacedByPageSize(SessionFactoryScope scope) {
+		final HibernateAssistantLC4J assistant = assistant(
+				scope,
+				fixedQuery( "select c.name from Company c order by c.id limit 5" )
+		).pageSize( 10 ).build();
+
+		scope.inSession( session -> {
+			final SelectionQuery<String> query = assistant.createAiQuery( "Five companies", session, String.class );
+			assertThat( query.getResultList() ).hasSize( 5 ).endsWith( "Company 5" );
+			assertThat( assistant.executeQueryToString( assistant.createAiQuery( "Five companies", session ), session ) )
+					.contains( "\"Company 5\"]" )
+					.doesNotContain( "Company 6" );
+		} );
+	}
+
+	@Test
+	public void testOffsetOfQueryIsKeptWithPageSize(SessionFactoryScope scope) {
+		final HibernateAssistantLC4J assistant = assistant(
+				scope,
+				fixedQuery( "select c.name from Company c order by c.id offset 20" )
+		).build();
+
+		scope.inSession( session -> {
+			final SelectionQuery<String> query = assistant.createAiQuery(
+					"Companies after the first twenty",
+					session,
+					String.class
+			);
+			assertThat( query.getResultList() ).containsExactly(
+					"Company 21",
+					"Company 22",
+					"Company 23",
+					"Company 24",
+					"Company 25"
+			);
+			assertThat( assistant.executeQueryToString(
+					assistant.createAiQuery( "Companies after the first twenty", session ),
+					session
+			) ).startsWith( "[\"Company 21\"," ).doesNotContain( "Company 20\"" );
+		} );
+	}
+
+	@Test
+	public void testQueryGuardLimitsAllPages(SessionFactoryScope scope) {
+		final HibernateAssistantLC4J assistant = assistant( scope, fixedQuery( "select c from Company c" ) )
+				.pageSize( 5 )
+				.queryGuard( QueryGuard.builder().maxResults( 12 ).build() )
+				.build();
+
+		scope.inSession( session -> {
+			final SelectionQuery<Company> query = assistant.createAiQuery( "All companies", session, Company.class );
+			AiQueryPage<Company> page = assistant.executeQueryPage( query, session );
+			int results = page.results().size();
+			while ( page.hasNextPage() ) {
+				page = assistant.nextPage( page, session );
+				results += page.results().size();
+			}
+			assertThat( page.results() ).hasSize( 2 );
+			assertThat( results ).isEqualTo( 12 );
+		} );
+	}
+
+	private static FakeChatModel fixedQuery(String hql) {
+		return FakeChatModel.builder().query( ".*", hql, null ).build();
+	}
+
+	private static HibernateAssistantLC4J.Builder assistant(SessionFactoryScope scope, FakeChatModel chatModel) {
+		return HibernateAssistantLC4J.builder()
+				.chatModel( chatModel )
+				.metamodel( scope.getSessionFactory().getMetamodel() );
+	}
+}
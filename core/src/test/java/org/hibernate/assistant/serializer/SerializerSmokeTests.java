@@ -5,6 +5,9 @@ import org.hibernate.Session;
 import org.hibernate.assistant.domain.Address;
 import org.hibernate.assistant.domain.Company;
 import org.hibernate.assistant.domain.Employee;
+import org.hibernate.assistant.internal.JsonWriters;
+import org.hibernate.assistant.internal.JsonWriters.ValueWriter;
+import org.hibernate.dialect.JsonHelper.JsonAppender;
 import org.hibernate.engine.spi.SharedSessionContractImplementor;
 import org.hibernate.query.SelectionQuery;
 
@@ -21,6 +24,9 @@ import org.junit.jupiter.api.Test;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.Tuple;
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -28,6 +34,7 @@ import java.util.Set;
 import java.util.TreeSet;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hibernate.assistant.spi.QuerySerializer.serialize;
 import static org.hibernate.assistant.spi.QuerySerializer.serializeToString;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -309,6 +316,210 @@ public class SerializerSmokeTests {
 		} );
 	}
 
+	@Test
+	public void testStreaming(SessionFactoryScope scope) {
+		scope.inTransaction( session -> {
+			final String hql = "from Employee e join fetch e.company order by e.id";
+			final String expected = serializeToString(
+					aiQuery( hql, Employee.class, session ).getResultList(),
+					aiQuery( hql, Employee.class, session ),
+					scope.getSessionFactory()
+			);
+			session.clear();
+
+			try {
+				final StringWriter writer = new StringWriter();
+				final long count = serialize( aiQuery( hql, Employee.class, session ).setFetchSize( 2 ), session, writer );
+				assertThat( count ).isEqualTo( 3 );
+				assertThat( writer.toString() ).isEqualTo( expected );
+				assertThat( mapper.readTree( writer.toString() ).size() ).isEqualTo( 3 );
+				// the persistence context was empty, so it's cleared while scrolling
+				assertThat( session.getPersistenceContextInternal().getNumberOfManagedEntities() ).isLessThanOrEqualTo( 2 );
+			}
+			catch (IOException e) {
+				fail( "Serialization failed with exception", e );
+			}
+		} );
+	}
+
+	@Test
+	public void testStreamingDetach(SessionFactoryScope scope) {
+		scope.inTransaction( session -> {
+			final Company rh = session.find( Company.class, 1L );
+			try {
+				final StringWriter writer = new StringWriter();
+				final long count = serialize(
+						aiQuery( "from Company where id > 1 order by id", Company.class, session ),
+						session,
+						writer
+				);
+				assertThat( count ).isEqualTo( 3 );
+				assertThat( mapper.readTree( writer.toString() ).size() ).isEqualTo( 3 );
+				// entities managed before the query are kept, the ones it returned are detached
+				assertThat( session.contains( rh ) ).isTrue();
+				assertThat( session.getPersistenceContextInternal().getNumberOfManagedEntities() ).isEqualTo( 1 );
+
+				// an entity returned by the query which was already managed is not detached, keeping its changes
+				rh.setName( "Red Hat, Inc." );
+				final StringWriter managed = new StringWriter();
+				serialize( aiQuery( "from Company where id <= 2 order by id", Company.class, session ), session, managed );
+				assertThat( managed.toString() ).contains( "Red Hat, Inc." );
+				assertThat( session.contains( rh ) ).isTrue();
+				assertThat( session.getPersistenceContextInternal().getNumberOfManagedEntities() ).isEqualTo( 1 );
+				session.flush();
+				session.clear();
+				assertThat( session.find( Company.class, 1L ).getName() ).isEqualTo( "Red Hat, Inc." );
+				rh.setName( "Red Hat" );
+				session.merge( rh );
+				session.flush();
+
+				final StringWriter empty = new StringWriter();
+				assertThat( serialize( aiQuery( "from Company where id < 0", Company.class, session ), session, empty ) )
+						.isZero();
+				assertThat( empty.toString() ).isEqualTo( "[]" );
+			}
+			catch (IOException e) {
+				fail( "Serialization failed with exception", e );
+			}
+		} );
+	}
+
+	@Test
+	public void testStreamingDetachTransitive(SessionFactoryScope scope) {
+		scope.inTransaction( session -> {
+			final Company managed = session.find( Company.class, 3L );
+			try {
+				// the companies of the employees are loaded eagerly
+				final StringWriter employees = new StringWriter();
+				assertThat( serialize( aiQuery( "from Employee order by id", Employee.class, session ), session, employees ) )
+						.isEqualTo( 3 );
+				assertThat( session.contains( managed ) ).isTrue();
+				assertThat( session.getPersistenceContextInternal().getNumberOfManagedEntities() ).isEqualTo( 1 );
+
+				final StringWriter companies = new StringWriter();
+				serialize(
+						aiQuery( "from Company c left join fetch c.employees where c.id < 3 order by c.id", Company.class, session ),
+						session,
+						companies
+				);
+				assertThat( mapper.readTree( companies.toString() ).size() ).isEqualTo( 2 );
+				assertThat( session.contains( managed ) ).isTrue();
+				assertThat( session.getPersistenceContextInternal().getNumberOfManagedEntities() ).isEqualTo( 1 );
+				assertThat( session.getPersistenceContextInternal().getCollectionEntriesSize() ).isLessThanOrEqualTo( 1 );
+			}
+			catch (IOException e) {
+				fail( "Serialization failed with exception", e );
+			}
+		} );
+	}
+
+	@Test
+	public void testStreamingBudget(SessionFactoryScope scope) {
+		scope.inTransaction( session -> {
+			try {
+				final StringWriter writer = new StringWriter();
+				final long count = serialize(
+						aiQuery( "select name from Company order by id", String.class, session ),
+						session,
+						writer,
+						20
+				);
+				assertThat( count ).isEqualTo( 2 );
+				assertThat( writer.toString() ).isEqualTo( "[\"Red Hat\",\"IBM\"]\n(showing 2 of 4 rows)" );
+
+				final StringWriter unlimited = new StringWriter();
+				serialize( aiQuery( "select name from Company order by id", String.class, session ), session, unlimited, 0 );
+				assertThat( mapper.readTree( unlimited.toString() ).size() ).isEqualTo( 4 );
+
+				// reaching the row limit also adds the footer, unless there are no more rows
+				final StringWriter limited = new StringWriter();
+				serialize(
+						aiQuery( "select name from Company order by id", String.class, session ).setMaxResults( 3 ),
+						session,
+						limited,
+						0
+				);
+				assertThat( limited.toString() ).endsWith( "]\n(showing 3 of 4 rows)" );
+				final StringWriter exact = new StringWriter();
+				serialize(
+						aiQuery( "select name from Company order by id", String.class, session ).setMaxResults( 4 ),
+						session,
+						exact,
+						0
+				);
+				assertThat( exact.toString() ).endsWith( "]" );
+			}
+			catch (IOException e) {
+				fail( "Serialization failed with exception", e );
+			}
+		} );
+	}
+
+	@Test
+	public void testMultipleSelections(SessionFactoryScope scope) {
+		scope.inTransaction( session -> {
+			try {
+				final SelectionQuery<Object[]> q = aiQuery(
+						"select c.id, c.name, c.address.city from Company c where c.id = 1",
+						Object[].class,
+						session
+				);
+				final JsonNode row = getSingleValue( mapper.readTree(
+						serializeToString( q.getResultList(), q, scope.getSessionFactory() )
+				) );
+				assertThat( row.size() ).isEqualTo( 3 );
+				assertThat( row.get( 0 ).intValue() ).isEqualTo( 1 );
+				assertThat( row.get( 1 ).textValue() ).isEqualTo( "Red Hat" );
+				assertThat( row.get( 2 ).textValue() ).isEqualTo( "Milan" );
+
+				final SelectionQuery<Tuple> tuples = aiQuery(
+						"select c.id as id, c.name as name from Company c where c.id = 1",
+						Tuple.class,
+						session
+				);
+				assertThat( serializeToString( tuples.getResultList(), tuples, scope.getSessionFactory() ) )
+						.isEqualTo( "[[1,\"Red Hat\"]]" );
+			}
+			catch (JsonProcessingException e) {
+				fail( "Serialization failed with exception", e );
+			}
+		} );
+	}
+
+	@Test
+	public void testEntityWriters(SessionFactoryScope scope) {
+		scope.inTransaction( session -> {
+			final JsonWriters writers = JsonWriters.forFactory( scope.getSessionFactory() );
+			// the writers are shared by all queries on the session factory
+			assertThat( JsonWriters.forFactory( scope.getSessionFactory() ) ).isSameAs( writers );
+			final ValueWriter writer = writers.entityWriter(
+					scope.getSessionFactory().getMappingMetamodel().getEntityDescriptor( Company.class )
+			);
+
+			try {
+				final StringBuilder sb = new StringBuilder();
+				writer.write(
+						new Company( 10L, "Say \"hi\"\n\\", new Address( "Milan", null ) ),
+						new JsonAppender( sb, true )
+				);
+				final JsonNode jsonNode = mapper.readTree( sb.toString() );
+				assertThat( jsonNode.get( "id" ).intValue() ).isEqualTo( 10 );
+				assertThat( jsonNode.get( "name" ).textValue() ).isEqualTo( "Say \"hi\"\n\\" );
+				assertThat( jsonNode.get( "address" ).get( "street" ).isNull() ).isTrue();
+
+				// uninitialized proxies are not loaded
+				final Company proxy = session.getReference( Company.class, 2L );
+				sb.setLength( 0 );
+				writer.write( proxy, new JsonAppender( sb, true ) );
+				assertThat( sb.toString() ).isEqualTo( "\"" + Company.class.getName() + "#2\"" );
+				assertThat( Hibernate.isInitialized( proxy ) ).isFalse();
+			}
+			catch (JsonProcessingException e) {
+				fail( "Serialization failed with exception", e );
+			}
+		} );
+	}
+
 	private <T> SelectionQuery<T> aiQuery(String hql, Class<T> resultType, SharedSessionContractImplementor session) {
 		return session.createSelectionQuery( hql, resultType );
 	}
@@ -0,0 +1,171 @@
+package org.hibernate.assistant.serializer;
+
+import org.hibernate.assistant.domain.Address;
+import org.hibernate.assistant.domain.Company;
+import org.hibernate.assistant.domain.Employee;
+import org.hibernate.assistant.internal.ResultFormat;
+import org.hibernate.assistant.internal.TabularFormat;
+import org.hibernate.assistant.internal.lc4j.HibernateAssistantLC4J;
+import org.hibernate.assistant.spi.AssistantMetrics;
+import org.hibernate.assistant.util.FakeChatModel;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.query.SelectionQuery;
+
+import org.hibernate.testing.orm.junit.DomainModel;
+import org.hibernate.testing.orm.junit.SessionFactory;
+import org.hibernate.testing.orm.junit.SessionFactoryScope;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hibernate.assistant.spi.QuerySerializer.serialize;
+import static org.hibernate.assistant.util.LanguageModels.fakeChatModel;
+
+@SessionFactory
+@DomainModel(annotatedClasses = { Company.class, Address.class, Employee.class })
+public class TabularFormatTests {
+	@BeforeAll
+	public void beforeAll(SessionFactoryScope scope) {
+		scope.inTransaction( session -> {
+			for ( long i = 1; i <= 6; i++ ) {
+				final String city = i % 2 == 0 ? "San Donato Milanese" : "Cernusco sul Naviglio";
+				final Company company = new Company( i, "Company " + i, new Address( city, "Street " + i ) );
+				session.persist( company );
+				session.persist( new Employee( i, "Name|" + i, "Surname " + i, 1_000 * i, company ) );
+			}
+		} );
+	}
+
+	@Test
+	public void testEntities(SessionFactoryScope scope) {
+		scope.inSession( session -> {
+			final String result = serializeTabular( "from Company c order by c.id", session, 0 );
+			assertThat( result ).isEqualTo(
+					"""
+							dictionary of address.city: @1=Cernusco sul Naviglio|@2=San Donato Milanese
+							id|address.city|address.street|name
+							1|@1|Street 1|Company 1
+							2|@2|Street 2|Company 2
+							3|@1|Street 3|Company 3
+							4|@2|Street 4|Company 4
+							5|@1|Street 5|Company 5
+							6|@2|Street 6|Company 6"""
+			);
+
+			// fetched collections are included
+			assertThat( serializeTabular( "from Company c join fetch c.employees where c.id = 1", session, 0 ) )
+					.startsWith( "id|address.city|address.street|employees|name\n1|Cernusco sul Naviglio|Street 1|\"[{" )
+					.contains( "\"\"firstName\"\":\"\"Name|1\"\"" )
+					.endsWith( "}]\"|Company 1" );
+		} );
+	}
+
+	@Test
+	public void testAssociationsAndQuoting(SessionFactoryScope scope) {
+		scope.inSession( session -> {
+			final String result = serializeTabular( "from Employee e where e.id <= 2 order by e.id", session, 0 );
+			assertThat( result ).isEqualTo(
+					"""
+							id|company.id|firstName|lastName|salary
+							1|1|"Name|1"|Surname 1|1000.0
+							2|2|"Name|2"|Surname 2|2000.0"""
+			);
+		} );
+	}
+
+	@Test
+	public void testMultipleSelections(SessionFactoryScope scope) {
+		scope.inSession( session -> {
+			final String result = serializeTabular(
+					"select c.name, c.address, count(e) as employees from Company c join c.employees e"
+							+ " where c.id = 1 group by c.name, c.address",
+					session,
+					0
+			);
+			assertThat( result ).isEqualTo(
+					"""
+							c.name|c.address.city|c.address.street|employees
+							Company 1|Cernusco sul Naviglio|Street 1|1"""
+			);
+		} );
+	}
+
+	@Test
+	public void testTruncation(SessionFactoryScope scope) {
+		scope.inSession( session -> {
+			final String result = serializeTabular( "select c.name from Company c order by c.id", session, 36 );
+			assertThat( result ).isEqualTo( "c.name\nCompany 1\nCompany 2\nCompany 3\n(showing 3 of 6 rows)" );
+		} );
+	}
+
+	@Test
+	public void testNullsAndDictionaryOnlyWhenShorter() {
+		final StringBuilder sb = new StringBuilder();
+		TabularFormat.write(
+				List.of( "code", "description" ),
+				List.of(
+						new String[] { "A", null },
+						new String[] { "A", "null" },
+						new String[] { "A", "@home" },
+						new String[] { "B", " padded" }
+				),
+				sb
+		);
+		assertThat( sb.toString() ).isEqualTo( "code|description\nA|null\nA|\"null\"\nA|\"@home\"\nB|\" padded\"" );
+	}
+
+	@Test
+	public void testExecuteQueryToString(SessionFactoryScope scope) {
+		final HibernateAssistantLC4J assistant = HibernateAssistantLC4J.builder()
+				.chatModel( fakeChatModel().build() )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.resultFormat( ResultFormat.TABULAR )
+				.build();
+		scope.inSession( session -> {
+			final SelectionQuery<?> query = session.createSelectionQuery( "select c.address.city from Company c", String.class );
+			assertThat( assistant.executeQueryToString( query, session ) )
+					.startsWith( "dictionary of c.address.city: " )
+					.contains( "\nc.address.city\n" );
+		} );
+	}
+
+	@Test
+	public void testFormatIsExplained(SessionFactoryScope scope) {
+		final FakeChatModel chatModel = fakeChatModel().build();
+		final HibernateAssistantLC4J assistant = HibernateAssistantLC4J.builder()
+				.chatModel( chatModel )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.resultFormat( ResultFormat.TABULAR )
+				.build();
+		scope.inSession( session -> assistant.executeQuery(
+				session.createSelectionQuery( "select c.name from Company c", String.class ),
+				session
+		) );
+		final ChatMessage prompt = chatModel.requests().getLast().messages().getLast();
+		assertThat( ( (UserMessage) prompt ).singleText() ).contains( TabularFormat.DESCRIPTION );
+	}
+
+	private static String serializeTabular(String hql, SharedSessionContractImplementor session, int maxLength) {
+		final StringBuilder sb = new StringBuilder();
+		try {
+			serialize(
+					session.createSelectionQuery( hql, Object.class ),
+					session,
+					sb,
+					maxLength,
+					AssistantMetrics.NONE,
+					ResultFormat.TABULAR
+			);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException( e );
+		}
+		return sb.toString();
+	}
+}
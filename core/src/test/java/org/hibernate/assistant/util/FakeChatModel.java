@@ -0,0 +1,307 @@
+package org.hibernate.assistant.util;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.ChatResponseMetadata;
+import dev.langchain4j.model.output.TokenUsage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import static dev.langchain4j.model.chat.Capability.RESPONSE_FORMAT_JSON_SCHEMA;
+import static dev.langchain4j.model.chat.request.ResponseFormatType.JSON;
+
+/**
+ * Deterministic stand-in for a real {@link ChatModel}, mapping questions to canned HQL queries and answers,
+ * to run the assistant's pipeline without a live LLM. Each rule is matched against the user messages of a request,
+ * most recent first: requests whose last message contains query results get the rule's answer, all others
+ * get its query, as plain text or in the {@code {"hqlQuery": ...}} JSON format when a JSON response is requested.
+ * Queries can also be returned in a fixed sequence or by sampling temperature, and a custom responder can take
+ * over any request, e.g. to simulate failures. All requests are {@linkplain #requests() recorded}.
+ * <p>
+ * Responses can be delayed by a fixed latency plus a random jitter, to simulate a remote model. The jitter
+ * is drawn from a seeded generator, and token usage is estimated as one token every 4 characters
+ * unless a fixed usage is configured.
+ */
+public class FakeChatModel implements ChatModel {
+	public static final String DEFAULT_ANSWER = "I could not find an answer to your question.";
+
+	private static final String RESULTS_MARKER = "The query returned the following data:";
+
+	private final List<Rule> rules;
+	private final Queue<String> queries;
+	private final Map<Double, String> temperatureQueries;
+	private final Function<ChatRequest, String> responder;
+	private final TokenUsage tokenUsage;
+	private final Duration latency;
+	private final Duration jitter;
+	private final Random random;
+	private final List<ChatRequest> requests = new CopyOnWriteArrayList<>();
+
+	private FakeChatModel(Builder builder) {
+		this.rules = List.copyOf( builder.rules );
+		this.queries = new ConcurrentLinkedQueue<>( builder.queries );
+		this.temperatureQueries = Map.copyOf( builder.temperatureQueries );
+		this.responder = builder.responder;
+		this.tokenUsage = builder.tokenUsage;
+		this.latency = builder.latency;
+		this.jitter = builder.jitter;
+		this.random = new Random( builder.seed );
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	@Override
+	public ChatResponse doChat(ChatRequest chatRequest) {
+		requests.add( chatRequest );
+		final List<ChatMessage> messages = chatRequest.messages();
+		final String custom = responder != null ? responder.apply( chatRequest ) : null;
+		final String text;
+		if ( custom != null ) {
+			text = custom;
+		}
+		else if ( lastUserMessage( messages ).contains( RESULTS_MARKER ) ) {
+			final Rule rule = matchingRule( messages );
+			text = rule != null && rule.answer() != null ? rule.answer() : DEFAULT_ANSWER;
+		}
+		else {
+			final String hql = query( chatRequest );
+			if ( hql == null ) {
+				text = "I don't know how to query that.";
+			}
+			else if ( chatRequest.responseFormat() != null && chatRequest.responseFormat().type() == JSON ) {
+				text = "{\"hqlQuery\": \"" + hql.replace( "\"", "\\\"" ) + "\"}";
+			}
+			else {
+				text = hql;
+			}
+		}
+
+		simulateLatency();
+
+		int promptLength = 0;
+		for ( ChatMessage message : messages ) {
+			promptLength += text( message ).length();
+		}
+		return ChatResponse.builder()
+				.aiMessage( AiMessage.from( text ) )
+				.metadata( ChatResponseMetadata.builder()
+								.tokenUsage( tokenUsage != null ?
+													tokenUsage :
+													new TokenUsage( promptLength / 4, text.length() / 4 ) )
+								.build() )
+				.build();
+	}
+
+	/**
+	 * @return all the requests received so far, in the order they were received
+	 */
+	public List<ChatRequest> requests() {
+		return requests;
+	}
+
+	@Override
+	public Set<Capability> supportedCapabilities() {
+		return Set.of( RESPONSE_FORMAT_JSON_SCHEMA );
+	}
+
+	private String query(ChatRequest chatRequest) {
+		final String temperatureQuery = chatRequest.temperature() != null ?
+				temperatureQueries.get( chatRequest.temperature() ) :
+				null;
+		if ( temperatureQuery != null ) {
+			return temperatureQuery;
+		}
+		final String next = queries.poll();
+		if ( next != null ) {
+			return next;
+		}
+		final Rule rule = matchingRule( chatRequest.messages() );
+		return rule != null ? rule.hql() : null;
+	}
+
+	private Rule matchingRule(List<ChatMessage> messages) {
+		for ( ListIterator<ChatMessage> iterator = messages.listIterator( messages.size() ); iterator.hasPrevious(); ) {
+			if ( iterator.previous() instanceof UserMessage userMessage ) {
+				// only consider the question, not the query results that might follow it
+				final String text = text( userMessage );
+				final int results = text.indexOf( RESULTS_MARKER );
+				final String question = results < 0 ? text : text.substring( 0, results );
+				for ( Rule rule : rules ) {
+					if ( rule.question().matcher( question ).find() ) {
+						return rule;
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	private static String lastUserMessage(List<ChatMessage> messages) {
+		for ( ListIterator<ChatMessage> iterator = messages.listIterator( messages.size() ); iterator.hasPrevious(); ) {
+			if ( iterator.previous() instanceof UserMessage userMessage ) {
+				return text( userMessage );
+			}
+		}
+		return "";
+	}
+
+	private static String text(ChatMessage message) {
+		return switch ( message ) {
+			case UserMessage userMessage -> userMessage.hasSingleText() ? userMessage.singleText() : "";
+			case AiMessage aiMessage -> aiMessage.text() != null ? aiMessage.text() : "";
+			default -> message.toString();
+		};
+	}
+
+	private void simulateLatency() {
+		long millis = latency.toMillis();
+		if ( !jitter.isZero() ) {
+			synchronized ( random ) {
+				millis += random.nextLong( -jitter.toMillis(), jitter.toMillis() + 1 );
+			}
+		}
+		if ( millis > 0 ) {
+			try {
+				Thread.sleep( millis );
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException( e );
+			}
+		}
+	}
+
+	private record Rule(Pattern question, String hql, String answer) {
+	}
+
+	public static class Builder {
+		private final List<Rule> rules = new ArrayList<>();
+		private final List<String> queries = new ArrayList<>();
+		private final Map<Double, String> temperatureQueries = new HashMap<>();
+		private Function<ChatRequest, String> responder;
+		private TokenUsage tokenUsage;
+		private Duration latency = Duration.ZERO;
+		private Duration jitter = Duration.ZERO;
+		private long seed = 42;
+
+		private Builder() {
+		}
+
+		/**
+		 * Maps the questions matching the given regular expression, case-insensitively, to a query and an answer.
+		 * Rules are evaluated in the order they are added.
+		 *
+		 * @param question the regular expression matching the question
+		 * @param hql the HQL query answering the question
+		 * @param answer the natural language answer, or {@code null} for {@link FakeChatModel#DEFAULT_ANSWER}
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder query(String question, String hql, String answer) {
+			rules.add( new Rule( Pattern.compile( question, Pattern.CASE_INSENSITIVE ), hql, answer ) );
+			return this;
+		}
+
+		/**
+		 * Returns the given queries, in order, to the next query requests, each one at most once.
+		 * They take precedence over the rules, which answer the requests after the queries are exhausted.
+		 *
+		 * @param hql the HQL queries
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder queries(String... hql) {
+			queries.addAll( List.of( hql ) );
+			return this;
+		}
+
+		/**
+		 * Returns a query to all query requests sampling with the given temperature, taking precedence over
+		 * the other queries. Requests without an explicit temperature are never matched.
+		 *
+		 * @param temperature the sampling temperature of the request
+		 * @param hql the HQL query
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder temperature(double temperature, String hql) {
+			temperatureQueries.put( temperature, hql );
+			return this;
+		}
+
+		/**
+		 * Sets a custom responder invoked before anything else, whose response text is returned as it is.
+		 * When it returns {@code null}, the request is answered by the queries and rules as usual.
+		 *
+		 * @param responder the function computing the response text of a request
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder respond(Function<ChatRequest, String> responder) {
+			this.responder = responder;
+			return this;
+		}
+
+		/**
+		 * @param tokenUsage the token usage reported by every response, estimated from the text length by default
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder tokenUsage(TokenUsage tokenUsage) {
+			this.tokenUsage = tokenUsage;
+			return this;
+		}
+
+		/**
+		 * @param latency the simulated latency of each response, none by default
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder latency(Duration latency) {
+			this.latency = latency;
+			return this;
+		}
+
+		/**
+		 * @param jitter the maximum random deviation from the latency, in either direction, none by default
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder jitter(Duration jitter) {
+			this.jitter = jitter;
+			return this;
+		}
+
+		/**
+		 * @param seed the seed of the jitter's random generator
+		 *
+		 * @return {@code this} for chaining calls
+		 */
+		public Builder seed(long seed) {
+			this.seed = seed;
+			return this;
+		}
+
+		public FakeChatModel build() {
+			return new FakeChatModel( this );
+		}
+	}
+}
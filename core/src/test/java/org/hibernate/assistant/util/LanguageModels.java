@@ -50,6 +50,7 @@ public class LanguageModels {
 					}
 					yield openAiChatModelBuilder.build();
 				}
+				case "FAKE" -> fakeChatModel().build();
 				default -> throw new IllegalStateException( "Unsupported model type: " + modelType );
 			};
 		}
@@ -63,6 +64,24 @@ public class LanguageModels {
 				.build();
 	}
 
+	/**
+	 * A {@link FakeChatModel} builder, configured to answer the questions asked by tests on the {@code domain} model.
+	 * The model is used when the {@code hibernate.assistant.model-type} system property is set to {@code FAKE}.
+	 */
+	public static FakeChatModel.Builder fakeChatModel() {
+		return FakeChatModel.builder()
+				.query(
+						"street name that starts with the word 'Via'",
+						"select count(c) from Company c where c.address.street like 'Via%'",
+						"There are 2 addresses that start with the word \"Via\"."
+				)
+				.query( "how many companies", "select count(c) from Company c", "There are 4 companies." )
+				.query( "how many employees", "select count(e) from Employee e", null )
+				.query( "names of .*companies", "select c.name from Company c order by c.id", null )
+				.query( "employees .*compan", "select e.firstName, e.lastName, e.company.name from Employee e", null )
+				.query( "compan", "select c from Company c", null );
+	}
+
 	public static HibernateAssistant testAssistant(Metamodel metamodel) {
 		return testAssistant( metamodel, null );
 	}
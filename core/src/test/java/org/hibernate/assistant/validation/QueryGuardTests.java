@@ -0,0 +1,188 @@
+package org.hibernate.assistant.validation;
+
+import org.hibernate.assistant.AiQueryRejectedException;
+import org.hibernate.assistant.domain.Address;
+import org.hibernate.assistant.domain.Company;
+import org.hibernate.assistant.domain.Employee;
+import org.hibernate.assistant.internal.QueryGuard;
+import org.hibernate.assistant.internal.lc4j.HibernateAssistantLC4J;
+import org.hibernate.assistant.util.FakeChatModel;
+import org.hibernate.query.SelectionQuery;
+
+import org.hibernate.testing.orm.junit.DomainModel;
+import org.hibernate.testing.orm.junit.SessionFactory;
+import org.hibernate.testing.orm.junit.SessionFactoryScope;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SessionFactory
+@DomainModel(annotatedClasses = { Company.class, Address.class, Employee.class })
+public class QueryGuardTests {
+	@BeforeAll
+	public void beforeAll(SessionFactoryScope scope) {
+		scope.inTransaction( session -> {
+			for ( long i = 1; i <= 50; i++ ) {
+				final Company company = new Company( i, "Company " + i, new Address( "Milan", "Via Roma " + i ) );
+				session.persist( company );
+				session.persist( new Employee( i, "Name " + i, "Surname " + i, 1_000 * i, company ) );
+			}
+		} );
+	}
+
+	@Test
+	public void testUnconstrainedJoins(SessionFactoryScope scope) {
+		final QueryGuard guard = QueryGuard.builder().build();
+		scope.inSession( session -> {
+			assertThatThrownBy( () -> guard.check(
+					session.createSelectionQuery( "select c, e from Company c, Employee e", Object[].class ),
+					session
+			) ).isInstanceOf( AiQueryRejectedException.class );
+			assertThatThrownBy( () -> guard.check(
+					session.createSelectionQuery( "select c from Company c cross join Employee e", Company.class ),
+					session
+			) ).isInstanceOf( AiQueryRejectedException.class );
+			assertThatThrownBy( () -> guard.check(
+					session.createSelectionQuery( "select c from Company c join Employee e", Company.class ),
+					session
+			) ).isInstanceOf( AiQueryRejectedException.class );
+
+			// association joins and explicit conditions are fine
+			guard.check( session.createSelectionQuery( "select c from Company c join c.employees e", Company.class ), session );
+			guard.check( session.createSelectionQuery(
+					"select c from Company c join Employee e on e.company = c",
+					Company.class
+			), session );
+			guard.check( session.createSelectionQuery(
+					"select c, e from Company c, Employee e where e.company = c",
+					Object[].class
+			), session );
+			guard.check( session.createSelectionQuery(
+					"select c, e from Company c, Employee e where c.name = 'Red Hat' and e.company.id = c.id",
+					Object[].class
+			), session );
+			guard.check( session.createSelectionQuery(
+					"select c from Company c, Employee e where c.id in (select x.company.id from Employee x where x.id = e.id)",
+					Company.class
+			), session );
+
+			// a where clause which doesn't relate the joined entities doesn't prevent cartesian products
+			assertThatThrownBy( () -> guard.check(
+					session.createSelectionQuery(
+							"select c, e from Company c, Employee e where c.name = 'Red Hat' and e.salary > 1000",
+							Object[].class
+					),
+					session
+			) ).isInstanceOf( AiQueryRejectedException.class );
+			assertThatThrownBy( () -> guard.check(
+					session.createSelectionQuery(
+							"select c from Company c join Employee e on e.salary > 1000 where c.name = 'Red Hat'",
+							Company.class
+					),
+					session
+			) ).isInstanceOf( AiQueryRejectedException.class );
+		} );
+	}
+
+	@Test
+	public void testMandatoryMaxResults(SessionFactoryScope scope) {
+		scope.inSession( session -> {
+			final QueryGuard rewrite = QueryGuard.builder().maxResults( 10 ).build();
+			final SelectionQuery<Company> query = session.createSelectionQuery( "from Company", Company.class );
+			rewrite.check( query, session );
+			assertThat( query.getMaxResults() ).isEqualTo( 10 );
+			assertThat( query.getResultList() ).hasSize( 10 );
+
+			final SelectionQuery<Company> smaller = session.createSelectionQuery( "from Company", Company.class )
+					.setMaxResults( 5 );
+			rewrite.check( smaller, session );
+			assertThat( smaller.getMaxResults() ).isEqualTo( 5 );
+
+			final QueryGuard reject = QueryGuard.builder().maxResults( 10 ).action( QueryGuard.Action.REJECT ).build();
+			assertThatThrownBy( () -> reject.check(
+					session.createSelectionQuery( "from Company", Company.class ),
+					session
+			) ).isInstanceOf( AiQueryRejectedException.class );
+			reject.check( session.createSelectionQuery( "from Company", Company.class ).setMaxResults( 10 ), session );
+		} );
+	}
+
+	@Test
+	public void testAssistantConsidersLimitOfQuery(SessionFactoryScope scope) {
+		final HibernateAssistantLC4J reject = HibernateAssistantLC4J.builder()
+				.chatModel( FakeChatModel.builder()
+									.query( "All companies", "select c.name from Company c order by c.id", null )
+									.query( "Five companies", "select c.name from Company c order by c.id limit 5", null )
+									.query( "Twenty companies", "select c.name from Company c order by c.id limit 20", null )
+									.build() )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.queryGuard( QueryGuard.builder().maxResults( 10 ).action( QueryGuard.Action.REJECT ).build() )
+				.build();
+		final HibernateAssistantLC4J rewrite = HibernateAssistantLC4J.builder()
+				.chatModel( FakeChatModel.builder()
+									.query( "Five companies", "select c.name from Company c order by c.id limit 5", null )
+									.query(
+											"Thirty companies",
+											"select c.name from Company c order by c.id limit 30 offset 20",
+											null
+									)
+									.build() )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.queryGuard( QueryGuard.builder().maxResults( 10 ).build() )
+				.build();
+
+		scope.inSession( session -> {
+			// the page size applied by the assistant is not bigger than the guard's limit
+			assertThat( reject.executeQueryToString( reject.createAiQuery( "All companies", session ), session ) )
+					.endsWith( "\"Company 10\"]\n(showing 10 of 50 rows)" );
+			assertThat( reject.executeQueryToString( reject.createAiQuery( "Five companies", session ), session ) )
+					.endsWith( "\"Company 5\"]" );
+			assertThatThrownBy( () -> reject.executeQueryToString(
+					reject.createAiQuery( "Twenty companies", session ),
+					session
+			) ).isInstanceOf( AiQueryRejectedException.class );
+
+			assertThat( rewrite.executeQueryToString( rewrite.createAiQuery( "Five companies", session ), session ) )
+					.endsWith( "\"Company 5\"]" );
+			assertThat( rewrite.executeQueryToString( rewrite.createAiQuery( "Thirty companies", session ), session ) )
+					.startsWith( "[\"Company 21\"," )
+					.contains( "\"Company 30\"]" )
+					.doesNotContain( "Company 31" );
+		} );
+	}
+
+	@Test
+	public void testMaxEstimatedRows(SessionFactoryScope scope) {
+		final QueryGuard guard = QueryGuard.builder().maxEstimatedRows( 100 ).build();
+		scope.inSession( session -> {
+			guard.check( session.createSelectionQuery( "from Company", Company.class ), session );
+			// no index on the names, so both tables are scanned
+			assertThatThrownBy( () -> guard.check(
+					session.createSelectionQuery(
+							"select c, e from Company c, Employee e where c.name = e.firstName",
+							Object[].class
+					),
+					session
+			) ).isInstanceOf( AiQueryRejectedException.class ).hasMessageContaining( "2500" );
+		} );
+	}
+
+	@Test
+	public void testAssistantAppliesGuard(SessionFactoryScope scope) {
+		final HibernateAssistantLC4J assistant = HibernateAssistantLC4J.builder()
+				.chatModel( FakeChatModel.builder()
+									.query( "Company names", "select c.name from Company c order by c.id", null )
+									.build() )
+				.metamodel( scope.getSessionFactory().getMetamodel() )
+				.queryGuard( QueryGuard.builder().maxResults( 2 ).build() )
+				.build();
+
+		scope.inSession( session -> {
+			final SelectionQuery<?> query = assistant.createAiQuery( "Company names", session );
+			assertThat( assistant.executeQueryToString( query, session ) )
+					.isEqualTo( "[\"Company 1\",\"Company 2\"]\n(showing 2 of 50 rows)" );
+		} );
+	}
+}
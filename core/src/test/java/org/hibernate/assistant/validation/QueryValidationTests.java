@@ -0,0 +1,101 @@
+package org.hibernate.assistant.validation;
+
+import org.hibernate.assistant.domain.Address;
+import org.hibernate.assistant.domain.Company;
+import org.hibernate.assistant.domain.Employee;
+import org.hibernate.assistant.internal.lc4j.HibernateAssistantLC4J;
+import org.hibernate.assistant.util.FakeChatModel;
+import org.hibernate.query.SelectionQuery;
+import org.hibernate.query.spi.SqmQuery;
+
+import org.hibernate.testing.orm.junit.DomainModel;
+import org.hibernate.testing.orm.junit.SessionFactory;
+import org.hibernate.testing.orm.junit.SessionFactoryScope;
+import org.junit.jupiter.api.Test;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.request.ChatRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SessionFactory
+@DomainModel(annotatedClasses = { Company.class, Address.class, Employee.class })
+public class QueryValidationTests {
+	@Test
+	public void testInvalidQueryIsRepaired(SessionFactoryScope scope) {
+		final FakeChatModel chatModel = FakeChatModel.builder().queries(
+				"select c from Company c where c.town = 'Milan'",
+				"select c from Company c where c.address.city = 'Milan'"
+		).build();
+		final HibernateAssistantLC4J assistant = assistant( scope, chatModel ).build();
+
+		scope.inSession( session -> {
+			final SelectionQuery<?> query = assistant.createAiQuery( "Companies in Milan", session );
+			// the literals of the repaired query are lifted into parameters
+			assertThat( ( (SqmQuery) query ).getQueryString() )
+					.isEqualTo( "select c from Company c where c.address.city = :p1" );
+		} );
+
+		assertThat( chatModel.requests() ).hasSize( 2 );
+		// the repair request only contains the minimal context
+		final ChatRequest repair = chatModel.requests().get( 1 );
+		assertThat( repair.messages() ).hasSize( 4 );
+		assertThat( repair.messages().get( 0 ) ).isInstanceOf( SystemMessage.class );
+		assertThat( ( (UserMessage) repair.messages().get( 1 ) ).singleText() ).isEqualTo( "Companies in Milan" );
+		// the invalid query is replayed in the format the model was asked to use
+		assertThat( ( (AiMessage) repair.messages().get( 2 ) ).text() )
+				.isEqualTo( "{\"hqlQuery\":\"select c from Company c where c.town = 'Milan'\"}" );
+		assertThat( ( (UserMessage) repair.messages().get( 3 ) ).singleText() ).contains( "town" );
+	}
+
+	@Test
+	public void testInvalidQueryIsRepairedWithoutStructuredJson(SessionFactoryScope scope) {
+		final FakeChatModel chatModel = FakeChatModel.builder().queries(
+				"select c from Company c where c.town = 'Milan'",
+				"select c from Company c where c.address.city = 'Milan'"
+		).build();
+		final HibernateAssistantLC4J assistant = assistant( scope, chatModel ).structuredJson( false ).build();
+
+		scope.inSession( session -> assistant.createAiQuery( "Companies in Milan", session ) );
+		assertThat( chatModel.requests() ).hasSize( 2 );
+		assertThat( ( (AiMessage) chatModel.requests().get( 1 ).messages().get( 2 ) ).text() )
+				.isEqualTo( "select c from Company c where c.town = 'Milan'" );
+	}
+
+	@Test
+	public void testMutationQueryIsRejected(SessionFactoryScope scope) {
+		final FakeChatModel chatModel = FakeChatModel.builder().queries(
+				"delete from Company",
+				"select c from Company c"
+		).build();
+		final HibernateAssistantLC4J assistant = assistant( scope, chatModel ).build();
+
+		scope.inSession( session -> assistant.createAiQuery( "Remove all companies", session ) );
+		assertThat( chatModel.requests() ).hasSize( 2 );
+		assertThat( ( (UserMessage) chatModel.requests().get( 1 ).messages().getLast() ).singleText() )
+				.contains( "Expecting a selection query" );
+	}
+
+	@Test
+	public void testRepairAttemptsAreBounded(SessionFactoryScope scope) {
+		final FakeChatModel chatModel = FakeChatModel.builder().queries(
+				"select n from Nothing n",
+				"select n from Nowhere n",
+				"select c from Company c"
+		).build();
+		final HibernateAssistantLC4J assistant = assistant( scope, chatModel ).maxRepairAttempts( 1 ).build();
+
+		scope.inSession( session -> assertThatThrownBy( () -> assistant.createAiQuery( "Everything", session ) )
+				.hasMessageContaining( "Nowhere" ) );
+		assertThat( chatModel.requests() ).hasSize( 2 );
+	}
+
+	private static HibernateAssistantLC4J.Builder assistant(SessionFactoryScope scope, FakeChatModel chatModel) {
+		return HibernateAssistantLC4J.builder()
+				.chatModel( chatModel )
+				.metamodel( scope.getSessionFactory().getMetamodel() );
+	}
+}
@@ -0,0 +1,150 @@
+package org.hibernate.assistant.validation;
+
+import org.hibernate.assistant.domain.Address;
+import org.hibernate.assistant.domain.Company;
+import org.hibernate.assistant.domain.Employee;
+import org.hibernate.assistant.internal.lc4j.HibernateAssistantLC4J;
+import org.hibernate.assistant.util.FakeChatModel;
+import org.hibernate.query.SelectionQuery;
+import org.hibernate.query.spi.SqmQuery;
+
+import org.hibernate.testing.orm.junit.DomainModel;
+import org.hibernate.testing.orm.junit.SessionFactory;
+import org.hibernate.testing.orm.junit.SessionFactoryScope;
+import org.junit.jupiter.api.Test;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SessionFactory
+@DomainModel(annotatedClasses = { Company.class, Address.class, Employee.class })
+public class SpeculativeCandidatesTests {
+	@Test
+	public void testFirstValidCandidateWins(SessionFactoryScope scope) throws InterruptedException {
+		final CountDownLatch interrupted = new CountDownLatch( 1 );
+		final FakeChatModel chatModel = FakeChatModel.builder()
+				.query( "Milan", "select c from Company c where c.town = 'Milan'", null )
+				.temperature( 0.3, "select c from Company c" )
+				.temperature( 0.6, "select c from Company c where c.address.city = 'Milan'" )
+				.respond( request -> {
+					if ( Double.valueOf( 0.3 ).equals( request.temperature() ) ) {
+						try {
+							// simulate a slow LLM round trip
+							Thread.sleep( 30_000 );
+						}
+						catch (InterruptedException e) {
+							interrupted.countDown();
+							Thread.currentThread().interrupt();
+						}
+					}
+					return null;
+				} )
+				.build();
+		final HibernateAssistantLC4J assistant = assistant( scope, chatModel ).speculativeCandidates( 3 ).build();
+
+		scope.inSession( session -> {
+			final SelectionQuery<?> query = assistant.createAiQuery( "Companies in Milan", session );
+			assertThat( ( (SqmQuery) query ).getQueryString() )
+					.isEqualTo( "select c from Company c where c.address.city = :p1" );
+		} );
+
+		assertThat( chatModel.requests() ).extracting( ChatRequest::temperature )
+				.containsExactlyInAnyOrder( null, 0.3, 0.6 );
+		// the requests still in flight are cancelled
+		assertThat( interrupted.await( 10, TimeUnit.SECONDS ) ).isTrue();
+	}
+
+	@Test
+	public void testInvalidCandidatesAreRepaired(SessionFactoryScope scope) {
+		final FakeChatModel chatModel = FakeChatModel.builder()
+				.query( "not valid", "select c from Company c where c.address.city = 'Milan'", null )
+				.query( "Milan", "select c from Company c where c.town = 'Milan'", null )
+				.temperature( 0.3, "select n from Nothing n" )
+				.temperature( 0.6, "select n from Nowhere n" )
+				.build();
+		final HibernateAssistantLC4J assistant = assistant( scope, chatModel )
+				.speculativeCandidates( 3 )
+				.maxRepairAttempts( 1 )
+				.build();
+
+		scope.inSession( session -> {
+			final SelectionQuery<?> query = assistant.createAiQuery( "Companies in Milan", session );
+			assertThat( ( (SqmQuery) query ).getQueryString() )
+					.isEqualTo( "select c from Company c where c.address.city = :p1" );
+		} );
+
+		// only the first candidate is repaired, with a single request
+		assertThat( chatModel.requests() ).hasSize( 4 );
+		assertThat( ( (AiMessage) chatModel.requests().getLast().messages().get( 2 ) ).text() )
+				.isEqualTo( "{\"hqlQuery\":\"select c from Company c where c.town = 'Milan'\"}" );
+	}
+
+	@Test
+	public void testFirstCandidateFailure(SessionFactoryScope scope) {
+		final FakeChatModel chatModel = FakeChatModel.builder()
+				.temperature( 0.3, "select n from Nothing n" )
+				.temperature( 0.6, "select n from Nowhere n" )
+				.respond( request -> {
+					if ( request.temperature() == null ) {
+						throw new IllegalStateException( "The model is overloaded" );
+					}
+					return null;
+				} )
+				.build();
+		final HibernateAssistantLC4J assistant = assistant( scope, chatModel ).speculativeCandidates( 3 ).build();
+
+		// when no candidate is valid, the first one is used even if it failed
+		scope.inSession( session -> assertThatThrownBy( () -> assistant.createAiQuery( "Companies in Milan", session ) )
+				.isInstanceOf( IllegalStateException.class )
+				.hasMessage( "The model is overloaded" ) );
+		assertThat( chatModel.requests() ).hasSize( 3 );
+	}
+
+	@Test
+	public void testInterruptCancelsCandidates(SessionFactoryScope scope) throws InterruptedException {
+		final CountDownLatch started = new CountDownLatch( 3 );
+		final CountDownLatch interrupted = new CountDownLatch( 3 );
+		final FakeChatModel chatModel = FakeChatModel.builder()
+				.respond( request -> {
+					started.countDown();
+					try {
+						Thread.sleep( 30_000 );
+					}
+					catch (InterruptedException e) {
+						interrupted.countDown();
+						Thread.currentThread().interrupt();
+					}
+					return "from Company";
+				} )
+				.build();
+		final HibernateAssistantLC4J assistant = assistant( scope, chatModel ).speculativeCandidates( 3 ).build();
+
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		final Thread thread = Thread.ofVirtual().start( () -> scope.inSession( session -> {
+			try {
+				assistant.createAiQuery( "Companies in Milan", session );
+			}
+			catch (RuntimeException e) {
+				failure.set( e );
+			}
+		} ) );
+		assertThat( started.await( 10, TimeUnit.SECONDS ) ).isTrue();
+		thread.interrupt();
+		thread.join( 10_000 );
+
+		assertThat( failure.get() ).hasCauseInstanceOf( InterruptedException.class );
+		assertThat( interrupted.await( 10, TimeUnit.SECONDS ) ).isTrue();
+	}
+
+	private static HibernateAssistantLC4J.Builder assistant(SessionFactoryScope scope, FakeChatModel chatModel) {
+		return HibernateAssistantLC4J.builder()
+				.chatModel( chatModel )
+				.metamodel( scope.getSessionFactory().getMetamodel() );
+	}
+}